@@ -0,0 +1,275 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import davidsar.gent.stubjars.classfile.ClassModel;
+import davidsar.gent.stubjars.classfile.FieldModel;
+import davidsar.gent.stubjars.classfile.InnerClassModel;
+import davidsar.gent.stubjars.classfile.MethodModel;
+import davidsar.gent.stubjars.classfile.ParameterModel;
+import davidsar.gent.stubjars.components.JarClass;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Fingerprints the API of top-level classes, so that an incremental run only regenerates the stubs of classes
+ * whose API changed since the last run.
+ * <p>
+ * The fingerprint of a class covers its own declarations, the declarations of every class nested in it, and
+ * the declarations of every one of their supertypes, as all of those shape the stub that is generated for it.
+ * It also covers the declarations of every class those declarations name, along with their supertypes, since
+ * the stub depends on them too: the constants of an enum pick the default of an annotation element, and a
+ * type's nesting and type parameters decide how it is written out.
+ */
+class ApiFingerprints {
+    /**
+     * Bump this whenever the generated sources change for the same input, so every stub is regenerated.
+     */
+    private static final int FORMAT_VERSION = 3;
+
+    private final Map<String, byte[]> declarationHashes = new HashMap<>();
+    private final Map<String, byte[]> supertypeHashes = new HashMap<>();
+    private final MessageDigest digest = newDigest();
+
+    /**
+     * Fingerprints the API of a class.
+     *
+     * @param clazz a top-level class
+     * @return the fingerprint, as hexadecimal digits
+     */
+    @NotNull
+    String fingerprint(@NotNull JarClass clazz) {
+        MessageDigest classDigest = newDigest();
+        update(classDigest, FORMAT_VERSION);
+        Set<String> referencedClasses = new TreeSet<>();
+        updateWithNestedClasses(classDigest, clazz.fullName().replace('.', '/'), clazz.classPath(), referencedClasses);
+        update(classDigest, referencedClasses.size());
+        for (String referencedClass : referencedClasses) {
+            classDigest.update(supertypeHash(referencedClass, clazz.classPath()));
+        }
+
+        StringBuilder hex = new StringBuilder(64);
+        for (byte b : classDigest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private void updateWithNestedClasses(@NotNull MessageDigest classDigest, @NotNull String internalName,
+                                         @NotNull ClassPath classPath, @NotNull Set<String> referencedClasses) {
+        classDigest.update(supertypeHash(internalName, classPath));
+        ClassModel classModel = classModel(internalName, classPath);
+        if (classModel == null) {
+            return;
+        }
+
+        PackageGraph.referencedClasses(classModel, referencedClasses::add);
+        for (InnerClassModel innerClass : classModel.innerClasses()) {
+            if (internalName.equals(innerClass.outerName())) {
+                updateWithNestedClasses(classDigest, innerClass.innerName(), classPath, referencedClasses);
+            }
+        }
+    }
+
+    /**
+     * Hashes the declarations of a class along with those of all of its supertypes.
+     */
+    @NotNull
+    private byte[] supertypeHash(@NotNull String internalName, @NotNull ClassPath classPath) {
+        byte[] hash = supertypeHashes.get(internalName);
+        if (hash != null) {
+            return hash;
+        }
+
+        MessageDigest supertypeDigest = newDigest();
+        supertypeDigest.update(declarationHash(internalName, classPath));
+        ClassModel classModel = classModel(internalName, classPath);
+        if (classModel != null) {
+            if (classModel.superName() != null) {
+                supertypeDigest.update(supertypeHash(classModel.superName(), classPath));
+            }
+            for (String interfaceName : classModel.interfaces()) {
+                supertypeDigest.update(supertypeHash(interfaceName, classPath));
+            }
+        }
+
+        hash = supertypeDigest.digest();
+        supertypeHashes.put(internalName, hash);
+        return hash;
+    }
+
+    /**
+     * Hashes the declarations of a single class, or just its name if its class file cannot be found.
+     */
+    @NotNull
+    private byte[] declarationHash(@NotNull String internalName, @NotNull ClassPath classPath) {
+        byte[] hash = declarationHashes.get(internalName);
+        if (hash != null) {
+            return hash;
+        }
+
+        digest.reset();
+        update(digest, internalName);
+        ClassModel classModel = classModel(internalName, classPath);
+        if (classModel != null) {
+            update(digest, classModel.accessFlags());
+            update(digest, classModel.isDeprecated() ? 1 : 0);
+            update(digest, classModel.retention());
+            update(digest, classModel.signature());
+            update(digest, classModel.superName());
+            update(digest, classModel.interfaces().size());
+            for (String interfaceName : classModel.interfaces()) {
+                update(digest, interfaceName);
+            }
+            update(digest, classModel.fields().size());
+            for (FieldModel field : classModel.fields()) {
+                update(digest, field.accessFlags());
+                update(digest, field.name());
+                update(digest, field.descriptor());
+                update(digest, field.signature());
+                update(digest, field.constantValue() == null ? null : field.constantValue().toString());
+            }
+            update(digest, classModel.methods().size());
+            for (MethodModel method : classModel.methods()) {
+                update(digest, method.accessFlags());
+                update(digest, method.name());
+                update(digest, method.descriptor());
+                update(digest, method.signature());
+                update(digest, method.isDeprecated() ? 1 : 0);
+                update(digest, method.defaultValueDescriptor());
+                update(digest, method.exceptions().size());
+                for (String exception : method.exceptions()) {
+                    update(digest, exception);
+                }
+                update(digest, method.parameters().size());
+                for (ParameterModel parameter : method.parameters()) {
+                    update(digest, parameter.accessFlags());
+                    update(digest, parameter.name());
+                }
+            }
+            update(digest, classModel.innerClasses().size());
+            for (InnerClassModel innerClass : classModel.innerClasses()) {
+                update(digest, innerClass.innerName());
+                update(digest, innerClass.outerName());
+                update(digest, innerClass.simpleName());
+                update(digest, innerClass.accessFlags());
+            }
+            update(digest, classModel.enumConstantClasses().size());
+            for (Map.Entry<String, String> constant : new TreeMap<>(classModel.enumConstantClasses()).entrySet()) {
+                update(digest, constant.getKey());
+                update(digest, constant.getValue());
+            }
+        }
+
+        hash = digest.digest();
+        declarationHashes.put(internalName, hash);
+        return hash;
+    }
+
+    /**
+     * Looks up the declarations of a class, which may come from the classpath or the JDK rather than from one of
+     * the scanned JARs.
+     */
+    @Nullable
+    private static ClassModel classModel(@NotNull String internalName, @NotNull ClassPath classPath) {
+        return classPath.find(internalName.replace('/', '.'));
+    }
+
+    private static void update(@NotNull MessageDigest digest, int value) {
+        digest.update((byte) (value >>> 24));
+        digest.update((byte) (value >>> 16));
+        digest.update((byte) (value >>> 8));
+        digest.update((byte) value);
+    }
+
+    private static void update(@NotNull MessageDigest digest, @Nullable String value) {
+        if (value == null) {
+            update(digest, -1);
+            return;
+        }
+
+        byte[] bytes = value.getBytes(UTF_8);
+        update(digest, bytes.length);
+        digest.update(bytes);
+    }
+
+    @NotNull
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required of every Java platform", e);
+        }
+    }
+
+    /**
+     * Reads the fingerprints stored by an earlier run.
+     *
+     * @param file the file the fingerprints were stored in
+     * @return the fingerprint of each class by name, empty if there was no earlier run
+     * @throws IOException if the file cannot be read
+     */
+    @NotNull
+    static Map<String, String> load(@NotNull File file) throws IOException {
+        Map<String, String> fingerprints = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int separator = line.indexOf('\t');
+                if (separator > 0) {
+                    fingerprints.put(line.substring(0, separator), line.substring(separator + 1));
+                }
+            }
+        } catch (NoSuchFileException e) {
+            return fingerprints;
+        }
+
+        return fingerprints;
+    }
+
+    /**
+     * Stores fingerprints for the next run, one class per line.
+     *
+     * @param file         the file to store the fingerprints in
+     * @param fingerprints the fingerprint of each class by name
+     * @throws IOException if the file cannot be written
+     */
+    static void store(@NotNull File file, @NotNull Map<String, String> fingerprints) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), UTF_8)) {
+            for (Map.Entry<String, String> fingerprint : new TreeMap<>(fingerprints).entrySet()) {
+                writer.write(fingerprint.getKey());
+                writer.write('\t');
+                writer.write(fingerprint.getValue());
+                writer.newLine();
+            }
+        }
+    }
+}
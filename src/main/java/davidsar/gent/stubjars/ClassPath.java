@@ -0,0 +1,143 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars;
+
+import davidsar.gent.stubjars.classfile.ClassFileReader;
+import davidsar.gent.stubjars.classfile.ClassModel;
+import davidsar.gent.stubjars.zip.ZipIndex;
+import davidsar.gent.stubjars.zip.ZipIndexEntry;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Finds the {@link ClassModel} of any class a run refers to: the classes of the scanned JARs, those of the JARs on
+ * the classpath, and the classes of the JDK. Class files are only read, never defined, so no class is ever loaded,
+ * linked or initialized, and every model is read at most once per run.
+ */
+public final class ClassPath {
+    private static final Logger log = LoggerFactory.getLogger(ClassPath.class);
+    private static final String CLASS_FILE_EXTENSION = ".class";
+
+    private final List<JarFile> jars;
+    private final ClassLoader resources;
+    private final Map<String, Optional<ClassModel>> classModels = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a class path.
+     *
+     * @param jars      the JARs to look for classes in, in order
+     * @param resources a {@link ClassLoader} whose resources hold the class files of any class missing from the
+     *                  JARs, such as {@link ClassLoader#getPlatformClassLoader()} for the classes of the JDK
+     */
+    ClassPath(@NotNull List<JarFile> jars, @NotNull ClassLoader resources) {
+        this.jars = new ArrayList<>(jars);
+        this.resources = resources;
+    }
+
+    /**
+     * Creates a class path that reads class files from the resources of a {@link ClassLoader}.
+     *
+     * @param resources the {@code ClassLoader} to read class files from
+     * @return a class path without any JARs
+     */
+    @NotNull
+    public static ClassPath ofResources(@NotNull ClassLoader resources) {
+        return new ClassPath(Collections.emptyList(), resources);
+    }
+
+    /**
+     * Adds a model read ahead of time, so that it is not read again when it is first looked up.
+     *
+     * @param classModel the declarations of a class of one of the JARs
+     */
+    void register(@NotNull ClassModel classModel) {
+        classModels.putIfAbsent(classModel.name(), Optional.of(classModel));
+    }
+
+    /**
+     * Returns the declarations of a class.
+     *
+     * @param name the binary name of the class, such as {@code java.util.Map$Entry}
+     * @return the declarations of the class, or {@code null} if no class file of that name can be found or read
+     */
+    @Nullable
+    public ClassModel find(@NotNull String name) {
+        Optional<ClassModel> classModel = classModels.get(name);
+        if (classModel == null) {
+            // Read outside of the map, as reading a class file is too slow to hold the lock of a map bin for
+            classModel = Optional.ofNullable(read(name));
+            Optional<ClassModel> existing = classModels.putIfAbsent(name, classModel);
+            if (existing != null) {
+                classModel = existing;
+            }
+        }
+
+        return classModel.orElse(null);
+    }
+
+    /**
+     * Returns the declarations of a class that has to exist.
+     *
+     * @param name the binary name of the class
+     * @return the declarations of the class
+     * @throws MissingClassException if no class file of that name can be found or read
+     */
+    @NotNull
+    public ClassModel get(@NotNull String name) {
+        ClassModel classModel = find(name);
+        if (classModel == null) {
+            throw new MissingClassException(name);
+        }
+
+        return classModel;
+    }
+
+    @Nullable
+    private ClassModel read(@NotNull String name) {
+        String entryName = name.replace('.', '/') + CLASS_FILE_EXTENSION;
+        try {
+            for (JarFile jar : jars) {
+                ZipIndex index = jar.index();
+                ZipIndexEntry entry = index.entry(entryName);
+                if (entry != null) {
+                    return ClassFileReader.read(index.read(entry));
+                }
+            }
+
+            try (InputStream classFile = resources.getResourceAsStream(entryName)) {
+                return classFile == null ? null : ClassFileReader.read(classFile);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("unable to read class file: {}", entryName, e);
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ClassPath" + jars;
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars;
+
+import davidsar.gent.stubjars.classfile.ClassModel;
+import davidsar.gent.stubjars.components.JarClass;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Estimates how expensive generating the stub of a top-level class is, before generating it. The estimate is the
+ * size of the class file plus a fixed weight per declared member, summed over the class and every class nested
+ * in it, since those are all generated into the same source file.
+ * <p>
+ * The estimate is only used to order the classes; it is in no particular unit.
+ */
+final class GenerationCost {
+    /**
+     * The weight of one field or method, on top of the bytes it takes up in the class file.
+     */
+    static final int MEMBER_WEIGHT = 64;
+
+    private GenerationCost() {
+    }
+
+    /**
+     * Estimates the cost of generating the stub of a class.
+     *
+     * @param clazz a top-level class
+     * @return the estimated cost, at least one
+     */
+    static long estimate(@NotNull JarClass clazz) {
+        long cost = 1;
+        Deque<JarClass> pending = new ArrayDeque<>();
+        pending.push(clazz);
+        while (!pending.isEmpty()) {
+            JarClass next = pending.pop();
+            ClassModel classModel = next.classModel();
+            cost += classModel.classFileSize()
+                + (long) MEMBER_WEIGHT * (classModel.fields().size() + classModel.methods().size());
+            for (JarClass innerClass : next.innerClasses().values()) {
+                pending.push(innerClass);
+            }
+        }
+
+        return cost;
+    }
+}
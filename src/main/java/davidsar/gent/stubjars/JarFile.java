@@ -20,87 +20,266 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.net.URLClassLoader;
-import java.util.Arrays;
-import java.util.HashMap;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
+import davidsar.gent.stubjars.classfile.ClassFileReader;
+import davidsar.gent.stubjars.classfile.ClassModel;
+import davidsar.gent.stubjars.classfile.ClassModelCache;
 import davidsar.gent.stubjars.components.JarClass;
-import davidsar.gent.stubjars.utils.Streams;
+import davidsar.gent.stubjars.components.JarClassRegistry;
+import davidsar.gent.stubjars.zip.ZipIndex;
+import davidsar.gent.stubjars.zip.ZipIndexEntry;
 
 public class JarFile {
     private static final Logger log = LoggerFactory.getLogger(JarFile.class);
-    private static final Map<File, JarFile> jarFiles = new HashMap<>();
+    private static final String AAR_CLASSES_JAR = "classes.jar";
+    private static final Map<File, JarFile> jarFiles = new ConcurrentHashMap<>();
     private final File jar;
+    private final String nestedEntry;
+    private final File extractDirectory;
+    private volatile ZipIndex index;
+    private File extractedJar;
 
-    private JarFile(File jar) {
+    private JarFile(File jar, @Nullable String nestedEntry, @Nullable File extractDirectory) {
         this.jar = jar;
+        this.nestedEntry = nestedEntry;
+        this.extractDirectory = extractDirectory;
     }
 
     static JarFile forFile(@NotNull File jar) {
-        if (jarFiles.containsKey(jar)) {
-            return jarFiles.get(jar);
-        }
+        return jarFiles.computeIfAbsent(jar, file -> new JarFile(file, null, null));
+    }
 
-        JarFile jarFile = new JarFile(jar);
-        jarFiles.put(jar, jarFile);
+    /**
+     * Returns the {@code classes.jar} nested inside of an AAR. A stored {@code classes.jar} is read in place,
+     * straight out of the AAR; a deflated one is inflated to a file in the given directory and read from there,
+     * rather than being held in memory. That file also serves as the JAR handed to tools outside of this JVM.
+     *
+     * @param aar              a {@link File} representing an AAR file
+     * @param extractDirectory the directory to write the {@code classes.jar} to when it has to be on disk
+     * @return the {@code classes.jar} of the AAR
+     * @throws IOException if the AAR cannot be read or doesn't contain a {@code classes.jar}
+     */
+    static JarFile forAar(@NotNull File aar, @NotNull File extractDirectory) throws IOException {
+        JarFile jarFile = jarFiles.computeIfAbsent(aar, file -> new JarFile(file, AAR_CLASSES_JAR, extractDirectory));
+        try {
+            jarFile.index();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
         return jarFile;
     }
 
+    /**
+     * Returns the central directory index of this JAR, mapping and parsing it on first use.
+     *
+     * @return the index of this JAR
+     * @throws UncheckedIOException if the JAR cannot be read
+     */
     @NotNull
-    static ClassLoader createClassLoaderFromJars(@Nullable ClassLoader parentClassLoader, String... jarFiles) {
-        URL[] urls = Arrays.stream(jarFiles).map(File::new).map(JarFile::forFile).map(JarFile::getUrl).toArray(URL[]::new);
-        ClassLoader classLoader = parentClassLoader == null ? JarFile.class.getClassLoader() : parentClassLoader;
-        return new URLClassLoader(urls, classLoader);
+    ZipIndex index() {
+        ZipIndex result = index;
+        if (result == null) {
+            synchronized (this) {
+                result = index;
+                if (result == null) {
+                    try {
+                        result = openIndex();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    index = result;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    @NotNull
+    private ZipIndex openIndex() throws IOException {
+        ZipIndex archive = ZipIndex.open(jar.toPath());
+        if (nestedEntry == null) {
+            return archive;
+        }
+
+        ZipIndexEntry entry = archive.entry(nestedEntry);
+        if (entry == null) {
+            throw new IOException(String.format("\"%s\" doesn't contain a %s", jar.getAbsolutePath(), nestedEntry));
+        }
+
+        if (entry.isStored()) {
+            // A stored JAR stays a slice of the mapped AAR
+            return ZipIndex.of(getName(), archive.read(entry));
+        }
+
+        File extracted = extractedJarFile();
+        archive.extract(entry, extracted.toPath());
+        extractedJar = extracted;
+        return ZipIndex.open(extracted.toPath());
+    }
+
+    /**
+     * Returns a file holding this JAR that can be handed to other tools, such as {@code javac}. For a JAR
+     * nested in an AAR, this is the file it was inflated to, or, if it is read in place, a copy written out
+     * from the index the first time this is called.
+     *
+     * @return a JAR file on disk
+     * @throws IOException if the nested JAR cannot be written out
+     */
+    @NotNull
+    synchronized File classpathFile() throws IOException {
+        if (nestedEntry == null) {
+            return jar;
+        }
+
+        ZipIndex iJar;
+        try {
+            iJar = index();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        if (extractedJar == null) {
+            File extracted = extractedJarFile();
+            iJar.writeTo(extracted.toPath());
+            extractedJar = extracted;
+        }
+
+        return extractedJar;
     }
 
+    /**
+     * Names the file a nested JAR is written to after its AAR, along with a hash of the AAR's path so that
+     * AARs of the same name in different directories don't overwrite each other.
+     */
     @NotNull
-    private URL getUrl() {
+    private File extractedJarFile() throws IOException {
+        String root = jar.getName();
+        root = root.substring(0, root.lastIndexOf("."));
+        Files.createDirectories(Objects.requireNonNull(extractDirectory).toPath());
+        return new File(extractDirectory,
+            String.format("%s-%08x-%s", root, jar.getAbsolutePath().hashCode(), nestedEntry));
+    }
+
+    Set<JarClass> getClasses(@NotNull ClassPath classPath, @Nullable ClassModelCache cache) throws IOException {
+        final ZipIndex iJar;
         try {
-            return jar.toURI().toURL();
-        } catch (MalformedURLException e) {
-            throw new RuntimeException(String.format("Could not create classloader for \"%s\"", jar.getAbsolutePath()), e);
+            iJar = index();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
+
+        List<ClassModel> classModels = cache == null ? readClassModels(iJar) : readClassModels(iJar, cache);
+        // Every model is on the class path before any class is built, so classes of this JAR are never read twice
+        classModels.forEach(classPath::register);
+        return classModels.parallelStream()
+                // Nested classes are found through their enclosing class, and synthetic, local and
+                // anonymous classes are never stubbed, so none of them are interned here
+                .filter(classModel -> !classModel.isNested() && !classModel.isSynthetic() && !classModel.isModuleInfo())
+                .map(classModel -> JarClassRegistry.instance().intern(classModel, classPath))
+                .flatMap(clazz -> withNestedClasses(clazz).stream())
+                .collect(Collectors.toSet());
     }
 
-    Set<JarClass<?>> getClasses(ClassLoader loader) throws IOException {
-        try (java.util.jar.JarFile iJar = new java.util.jar.JarFile(jar)) {
-            return Streams.makeFor(iJar.entries())
-                    .filter(jarEntry -> jarEntry.getName().endsWith(".class"))
-                    .map(entry -> {
-                        try {
-                            return new JarClass<>(loader, entry.getName());
-                        } catch (ClassNotFoundException e) {
-                            log.error("unable to load class: not found: ignored: " + entry.getName());
-                            return null;
-                        } catch (LinkageError e) {
-                            log.error("unable to load class: linkage error: ignored: " + entry.getName());
-                            return null;
-                        }
-                    })
-                    .filter(Objects::nonNull)
-                    .flatMap(clazz -> Stream.concat(Stream.of(clazz), findInnerClasses(clazz)))
-                    .collect(Collectors.toSet());
+    @NotNull
+    private List<ClassModel> readClassModels(@NotNull ZipIndex iJar, @NotNull ClassModelCache cache) {
+        String key = cacheKey(iJar);
+        List<ClassModel> classModels = cache.load(key);
+        if (classModels != null) {
+            log.info("using cached class models for jar: {}", getName());
+            return classModels;
         }
+
+        classModels = readClassModels(iJar);
+        cache.store(key, classModels);
+        return classModels;
     }
 
+    /**
+     * Identifies the contents of this JAR across runs by the size and modification time of the file it is read
+     * from, along with the name and CRC of every entry in its central directory, so no entry is read to build it.
+     */
     @NotNull
-    private Stream<JarClass<?>> findInnerClasses(@NotNull JarClass<?> jarClass) {
-        return jarClass.innerClasses().values().stream()
-            .flatMap(clazz -> {
-                Stream<JarClass<?>> stream = clazz.innerClasses().values().stream();
-                Stream<JarClass<?>> innerClasses = findInnerClasses(clazz);
-                return Stream.concat(Stream.concat(Stream.of(clazz), stream), innerClasses);
-                });
+    private String cacheKey(@NotNull ZipIndex iJar) {
+        return String.format("%x-%x-%s", jar.length(), jar.lastModified(), iJar.centralDirectoryHash());
     }
 
+    @NotNull
+    private static List<ClassModel> readClassModels(@NotNull ZipIndex iJar) {
+        return iJar.entries().parallelStream()
+                .filter(entry -> entry.name().endsWith(".class"))
+                .map(entry -> readClassModel(iJar, entry))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    @Nullable
+    private static ClassModel readClassModel(@NotNull ZipIndex iJar, @NotNull ZipIndexEntry entry) {
+        try {
+            return ClassFileReader.read(iJar.read(entry));
+        } catch (IOException e) {
+            log.error("unable to read class file: ignored: " + entry.name(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Collects a top-level class along with every class nested in it, at any depth. Each nested class
+     * belongs to exactly one top-level class, so every class is visited exactly once.
+     */
+    @NotNull
+    private static List<JarClass> withNestedClasses(@NotNull JarClass topLevelClass) {
+        List<JarClass> classes = new ArrayList<>();
+        Deque<JarClass> pending = new ArrayDeque<>();
+        pending.push(topLevelClass);
+        while (!pending.isEmpty()) {
+            JarClass clazz = pending.pop();
+            classes.add(clazz);
+            for (JarClass innerClass : clazz.innerClasses().values()) {
+                pending.push(innerClass);
+            }
+        }
+
+        return classes;
+    }
+
+    /**
+     * Returns the file this JAR is read from, which is the AAR itself for a JAR nested in an AAR.
+     *
+     * @return the JAR or AAR file
+     */
     public File getJar() {
         return jar;
     }
+
+    @NotNull
+    public String getName() {
+        return nestedEntry == null ? jar.getPath() : jar.getPath() + "!/" + nestedEntry;
+    }
+
+    /**
+     * Returns a URI naming this JAR, in the {@code file:/library.aar!/classes.jar} form for a JAR nested in an AAR.
+     *
+     * @return the URI of this JAR, as a string
+     */
+    @NotNull
+    String getUri() {
+        return nestedEntry == null ? jar.toURI().toString() : jar.toURI() + "!/" + nestedEntry;
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
 }
@@ -0,0 +1,276 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars;
+
+import davidsar.gent.stubjars.components.JarClass;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Compiles the generated sources while the rest are still being generated. Classes are grouped by the
+ * {@link PackageGraph} components of their packages; a group is handed to {@code javac} once every one of its
+ * source files is written and every group it refers to has been compiled. Groups that become ready while
+ * {@code javac} is running are compiled together in the next run.
+ */
+final class JavacPipeline {
+    private static final Logger log = LoggerFactory.getLogger(JavacPipeline.class);
+
+    private final List<String> javacCommand;
+    private final Map<String, Integer> groupOfClass = new HashMap<>();
+    private final List<List<String>> sourceFiles = new ArrayList<>();
+    private final List<int[]> dependencies = new ArrayList<>();
+    private final int[] pendingClasses;
+    private final boolean[] compiled;
+    private final boolean[] started;
+    private final Thread thread;
+    private boolean generationFinished = false;
+    private boolean cancelled = false;
+    private int javacRuns = 0;
+
+    /**
+     * Groups the classes to compile.
+     *
+     * @param classes      the classes that get a source file
+     * @param sourceFileOf the source file of a class, by name
+     * @param javacCommand the {@code javac} command line, to which the sources to compile are added
+     */
+    JavacPipeline(@NotNull List<JarClass> classes, @NotNull Function<String, File> sourceFileOf,
+                  @NotNull List<String> javacCommand) {
+        this.javacCommand = new ArrayList<>(javacCommand);
+
+        PackageGraph graph = new PackageGraph();
+        for (JarClass clazz : classes) {
+            graph.addPackage(clazz.packageName());
+        }
+        for (JarClass clazz : classes) {
+            String packageName = clazz.packageName();
+            forEachReferencedClass(clazz, internalName ->
+                graph.addDependency(packageName, PackageGraph.packageOf(internalName)));
+        }
+
+        List<List<String>> components = graph.components();
+        Map<String, Integer> groupOfPackage = new HashMap<>();
+        for (int group = 0; group < components.size(); group++) {
+            for (String packageName : components.get(group)) {
+                groupOfPackage.put(packageName, group);
+            }
+            sourceFiles.add(new ArrayList<>());
+        }
+
+        pendingClasses = new int[components.size()];
+        for (JarClass clazz : classes) {
+            int group = groupOfPackage.get(clazz.packageName());
+            groupOfClass.put(clazz.fullName(), group);
+            sourceFiles.get(group).add(sourceFileOf.apply(clazz.fullName()).getPath());
+            pendingClasses[group]++;
+        }
+
+        for (int group = 0; group < components.size(); group++) {
+            TreeSet<Integer> groupDependencies = new TreeSet<>();
+            for (String packageName : components.get(group)) {
+                for (String dependency : graph.dependenciesOf(packageName)) {
+                    groupDependencies.add(groupOfPackage.get(dependency));
+                }
+            }
+            groupDependencies.remove(group);
+            dependencies.add(groupDependencies.stream().mapToInt(Integer::intValue).toArray());
+        }
+
+        compiled = new boolean[components.size()];
+        started = new boolean[components.size()];
+        thread = new Thread(this::run, "stubjars-javac");
+        log.info("compiling {} packages in {} groups while generating", groupOfPackage.size(), components.size());
+    }
+
+    private static void forEachReferencedClass(@NotNull JarClass clazz, @NotNull Consumer<String> classes) {
+        Deque<JarClass> pending = new ArrayDeque<>();
+        pending.push(clazz);
+        while (!pending.isEmpty()) {
+            JarClass next = pending.pop();
+            PackageGraph.referencedClasses(next.classModel(), classes);
+            for (JarClass innerClass : next.innerClasses().values()) {
+                pending.push(innerClass);
+            }
+        }
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Records that the source file of a class is complete. Safe to call from any thread.
+     *
+     * @param className the name of the class
+     */
+    synchronized void classWritten(@NotNull String className) {
+        Integer group = groupOfClass.get(className);
+        if (group != null && --pendingClasses[group] == 0) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Records that every source file has been generated, and waits for the remaining groups to be compiled.
+     *
+     * @return {@code true} if every group was compiled
+     * @throws InterruptedException if the current {@link Thread} is interrupted while waiting
+     */
+    boolean finish() throws InterruptedException {
+        synchronized (this) {
+            generationFinished = true;
+            notifyAll();
+        }
+        thread.join();
+
+        synchronized (this) {
+            for (boolean groupCompiled : compiled) {
+                if (!groupCompiled) {
+                    return false;
+                }
+            }
+            log.info("compiled every package in {} javac runs", javacRuns);
+            return true;
+        }
+    }
+
+    /**
+     * Stops compiling groups, without waiting for a {@code javac} run that has already started. Used when generation
+     * fails, so that {@link #finish()} is never called.
+     */
+    void cancel() {
+        synchronized (this) {
+            cancelled = true;
+            notifyAll();
+        }
+        thread.interrupt();
+    }
+
+    private void run() {
+        try {
+            List<Integer> groups;
+            while (!(groups = awaitReadyGroups()).isEmpty()) {
+                if (!compile(groups)) {
+                    // Leaves the remaining groups uncompiled, for a full compile once generation finishes
+                    return;
+                }
+                markCompiled(groups);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.warn("Failed to run javac", e);
+        }
+    }
+
+    /**
+     * Waits until at least one group is ready, and takes every group that is.
+     *
+     * @return the ready groups, or none once nothing else can become ready or the pipeline is cancelled
+     */
+    @NotNull
+    private synchronized List<Integer> awaitReadyGroups() throws InterruptedException {
+        while (true) {
+            if (cancelled) {
+                return Collections.emptyList();
+            }
+
+            List<Integer> ready = new ArrayList<>();
+            for (int group = 0; group < compiled.length; group++) {
+                if (!started[group] && pendingClasses[group] == 0 && dependenciesCompiled(group)) {
+                    started[group] = true;
+                    ready.add(group);
+                }
+            }
+
+            if (!ready.isEmpty() || generationFinished) {
+                return ready;
+            }
+            wait();
+        }
+    }
+
+    private boolean dependenciesCompiled(int group) {
+        for (int dependency : dependencies.get(group)) {
+            if (!compiled[dependency]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private synchronized void markCompiled(@NotNull List<Integer> groups) {
+        for (int group : groups) {
+            compiled[group] = true;
+        }
+        javacRuns++;
+    }
+
+    private boolean compile(@NotNull List<Integer> groups) throws IOException, InterruptedException {
+        Path sourcesList = Files.createTempFile("stubjars-sources", ".list");
+        try {
+            List<String> sources = new ArrayList<>();
+            for (int group : groups) {
+                sources.addAll(sourceFiles.get(group));
+            }
+            Files.write(sourcesList, sources, UTF_8);
+
+            List<String> command = new ArrayList<>(javacCommand);
+            command.add("@" + sourcesList);
+            Process javac = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .start();
+            List<String> output = new ArrayList<>();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(javac.getInputStream(), UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    output.add(line);
+                }
+            }
+
+            if (javac.waitFor() == 0) {
+                return true;
+            }
+
+            log.warn("javac failed with error code {} on {} source files; compiling every file once generation "
+                + "finishes", javac.exitValue(), sources.size());
+            for (String line : output) {
+                log.debug(line);
+            }
+            return false;
+        } finally {
+            Files.deleteIfExists(sourcesList);
+        }
+    }
+}
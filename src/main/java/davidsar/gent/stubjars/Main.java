@@ -14,6 +14,7 @@
 package davidsar.gent.stubjars;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -26,6 +27,17 @@ class Main {
     private static final Logger log = LoggerFactory.getLogger(Main.class);
     private static boolean shouldBuild = false;
     private static boolean shouldJar = false;
+    private static boolean incremental = false;
+    private static boolean tokenStream = false;
+    private static boolean virtualThreads = false;
+    private static boolean pipeline = false;
+    private static File cacheDirectory = null;
+    private static long cacheSizeInMb = 256;
+    private static Integer threads = null;
+    private static Integer batchSize = null;
+    private static Integer writerThreads = null;
+    private static Long writeBufferMb = null;
+    private static StubJars.Pool pool = null;
 
     public static void main(String... args) throws IOException {
         StubJars.Builder builder = StubJars.builder();
@@ -39,7 +51,11 @@ class Main {
         }
 
         if (shouldBuild) {
-            compileGeneratedCode(stubJars);
+            if (stubJars.compiledWhileGenerating()) {
+                log.info("stub_src files were compiled while they were generated");
+            } else {
+                compileGeneratedCode(stubJars);
+            }
         }
         if (shouldJar) {
             generateStubsJarForGeneratedCode(stubJars);
@@ -73,6 +89,31 @@ class Main {
         }
 
         builder.addJarsAndAars(files.toArray(new File[] {}));
+        builder.setIncremental(incremental);
+        builder.setTokenStream(tokenStream);
+        builder.setVirtualThreads(virtualThreads);
+        if (pipeline && !shouldBuild) {
+            log.warn("--pipeline only applies with --build; ignored");
+        }
+        builder.setPipeline(pipeline && shouldBuild);
+        if (cacheDirectory != null) {
+            builder.setClassModelCache(cacheDirectory, cacheSizeInMb);
+        }
+        if (threads != null) {
+            builder.setThreads(threads);
+        }
+        if (batchSize != null) {
+            builder.setBatchSize(batchSize);
+        }
+        if (writerThreads != null) {
+            builder.setWriterThreads(writerThreads);
+        }
+        if (writeBufferMb != null) {
+            builder.setWriteBufferMb(writeBufferMb);
+        }
+        if (pool != null) {
+            builder.setPool(pool);
+        }
     }
 
     @NotNull
@@ -151,6 +192,71 @@ class Main {
             shouldBuild = true;
         } else if (arg.equals("--jar")) {
             shouldJar = true;
+        } else if (arg.equals("--incremental")) {
+            incremental = true;
+        } else if (arg.equals("--token-stream")) {
+            tokenStream = true;
+        } else if (arg.equals("--pipeline")) {
+            pipeline = true;
+        } else if (arg.equals("--virtual-threads")) {
+            virtualThreads = true;
+        } else if (arg.startsWith("--cache-dir=")) {
+            cacheDirectory = new File(arg.split("=", 2)[1]);
+        } else if (arg.startsWith("--cache-size-mb=")) {
+            cacheSizeInMb = parsePositive(arg, Long.MAX_VALUE >> 20);
+        } else if (arg.startsWith("--threads=")) {
+            threads = (int) parsePositive(arg, Integer.MAX_VALUE);
+        } else if (arg.startsWith("--writer-threads=")) {
+            writerThreads = (int) parsePositive(arg, Integer.MAX_VALUE);
+        } else if (arg.startsWith("--write-buffer-mb=")) {
+            writeBufferMb = parsePositive(arg, Long.MAX_VALUE >> 20);
+        } else if (arg.startsWith("--batch-size=")) {
+            batchSize = (int) parsePositive(arg, Integer.MAX_VALUE);
+        } else if (arg.startsWith("--pool=")) {
+            pool = parsePool(arg.split("=", 2)[1]);
+        }
+    }
+
+    private static long parsePositive(String arg, long max) {
+        String[] option = arg.split("=", 2);
+        Long value = positiveValue(option[1], max);
+        if (value != null) {
+            return value;
+        }
+
+        log.error("Invalid value \"{}\" for {}, expected a whole number from 1 to {}", option[1], option[0], max);
+        System.exit(1);
+        throw new AssertionError();
+    }
+
+    /**
+     * Parses the value of a numeric option.
+     *
+     * @param value the text after the {@code =} of the option
+     * @param max   the largest value the option accepts
+     * @return the value, or {@code null} if it is not a whole number from 1 to {@code max}
+     */
+    @Nullable
+    static Long positiveValue(@NotNull String value, long max) {
+        try {
+            long parsed = Long.parseLong(value);
+            return parsed >= 1 && parsed <= max ? parsed : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @NotNull
+    private static StubJars.Pool parsePool(String name) {
+        switch (name) {
+            case "work-stealing":
+                return StubJars.Pool.WORK_STEALING;
+            case "fixed":
+                return StubJars.Pool.FIXED;
+            default:
+                log.error("Unknown pool \"{}\", expected \"work-stealing\" or \"fixed\"", name);
+                System.exit(1);
+                throw new AssertionError();
         }
     }
 }
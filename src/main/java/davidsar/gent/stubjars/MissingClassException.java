@@ -0,0 +1,40 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Thrown when a class refers to a class that is neither in the scanned JARs, on the classpath, nor in the JDK.
+ */
+public class MissingClassException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final String className;
+
+    MissingClassException(@NotNull String className) {
+        super(className);
+        this.className = className;
+    }
+
+    /**
+     * Returns the class that could not be found.
+     *
+     * @return the binary name of the missing class
+     */
+    @NotNull
+    public String className() {
+        return className;
+    }
+}
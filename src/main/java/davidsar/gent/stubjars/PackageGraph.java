@@ -0,0 +1,256 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars;
+
+import davidsar.gent.stubjars.classfile.ClassModel;
+import davidsar.gent.stubjars.classfile.FieldModel;
+import davidsar.gent.stubjars.classfile.MethodModel;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+/**
+ * The packages of a run and which of them refer to which, used to compile the generated sources package by package.
+ * Packages that refer to each other, directly or not, have to be compiled together, so the graph is split into its
+ * strongly connected components, which are then ordered so that every component comes after those it refers to.
+ */
+final class PackageGraph {
+    private final Map<String, Set<String>> dependencies = new TreeMap<>();
+
+    void addPackage(@NotNull String packageName) {
+        dependencies.computeIfAbsent(packageName, key -> new TreeSet<>());
+    }
+
+    /**
+     * Records that {@code from} refers to {@code to}. References to packages that aren't part of the graph, and
+     * from a package to itself, are ignored.
+     *
+     * @param from the referring package
+     * @param to   the referred to package
+     */
+    void addDependency(@NotNull String from, @NotNull String to) {
+        if (!from.equals(to) && dependencies.containsKey(from) && dependencies.containsKey(to)) {
+            dependencies.get(from).add(to);
+        }
+    }
+
+    /**
+     * Returns the packages that a package refers to.
+     *
+     * @param packageName a package of the graph
+     * @return the packages it refers to, sorted
+     */
+    @NotNull
+    Set<String> dependenciesOf(@NotNull String packageName) {
+        return Collections.unmodifiableSet(dependencies.get(packageName));
+    }
+
+    /**
+     * Splits the packages into groups that must be compiled together, ordered so that every group comes after the
+     * groups it refers to. The order is deterministic.
+     *
+     * @return the groups, each a sorted list of package names
+     */
+    @NotNull
+    List<List<String>> components() {
+        // Tarjan's algorithm finishes a component only after every component it can reach, which is exactly
+        // dependencies first
+        Map<String, Integer> index = new HashMap<>();
+        Map<String, Integer> lowLink = new HashMap<>();
+        Deque<String> stack = new ArrayDeque<>();
+        Set<String> onStack = new TreeSet<>();
+        List<List<String>> components = new ArrayList<>();
+        for (String packageName : dependencies.keySet()) {
+            if (!index.containsKey(packageName)) {
+                connect(packageName, index, lowLink, stack, onStack, components);
+            }
+        }
+
+        return components;
+    }
+
+    private void connect(@NotNull String packageName, @NotNull Map<String, Integer> index,
+                         @NotNull Map<String, Integer> lowLink, @NotNull Deque<String> stack,
+                         @NotNull Set<String> onStack, @NotNull List<List<String>> components) {
+        index.put(packageName, index.size());
+        lowLink.put(packageName, index.get(packageName));
+        stack.push(packageName);
+        onStack.add(packageName);
+        for (String dependency : dependencies.get(packageName)) {
+            if (!index.containsKey(dependency)) {
+                connect(dependency, index, lowLink, stack, onStack, components);
+                lowLink.put(packageName, Math.min(lowLink.get(packageName), lowLink.get(dependency)));
+            } else if (onStack.contains(dependency)) {
+                lowLink.put(packageName, Math.min(lowLink.get(packageName), index.get(dependency)));
+            }
+        }
+
+        if (lowLink.get(packageName).equals(index.get(packageName))) {
+            List<String> component = new ArrayList<>();
+            String member;
+            do {
+                member = stack.pop();
+                onStack.remove(member);
+                component.add(member);
+            } while (!member.equals(packageName));
+            Collections.sort(component);
+            components.add(Collections.unmodifiableList(component));
+        }
+    }
+
+    /**
+     * Returns the package of a class.
+     *
+     * @param internalName the internal name of a class, such as {@code java/util/Map$Entry}
+     * @return the package, with dots, or an empty string for the default package
+     */
+    @NotNull
+    static String packageOf(@NotNull String internalName) {
+        int lastSlash = internalName.lastIndexOf('/');
+        return lastSlash < 0 ? "" : internalName.substring(0, lastSlash).replace('/', '.');
+    }
+
+    /**
+     * Finds the classes named in the declarations of a class: its supertypes, and the types of its fields,
+     * methods, thrown exceptions and annotation element defaults. Nested classes are not visited.
+     *
+     * @param classModel the class
+     * @param classes    receives the internal name of each class named, once per time it is named
+     */
+    static void referencedClasses(@NotNull ClassModel classModel, @NotNull Consumer<String> classes) {
+        if (classModel.superName() != null) {
+            classes.accept(classModel.superName());
+        }
+        classModel.interfaces().forEach(classes);
+        referencedClassesIfPresent(classModel.signature(), classes);
+        for (FieldModel field : classModel.fields()) {
+            referencedClasses(field.descriptor(), classes);
+            referencedClassesIfPresent(field.signature(), classes);
+        }
+        for (MethodModel method : classModel.methods()) {
+            referencedClasses(method.descriptor(), classes);
+            referencedClassesIfPresent(method.signature(), classes);
+            referencedClassesIfPresent(method.defaultValueDescriptor(), classes);
+            method.exceptions().forEach(classes);
+        }
+    }
+
+    private static void referencedClassesIfPresent(@Nullable String signature, @NotNull Consumer<String> classes) {
+        if (signature != null) {
+            referencedClasses(signature, classes);
+        }
+    }
+
+    /**
+     * Finds the classes named in a field or method descriptor, or in a class, field or method signature.
+     *
+     * @param signature the descriptor or signature
+     * @param classes   receives the internal name of each class named
+     */
+    static void referencedClasses(@NotNull String signature, @NotNull Consumer<String> classes) {
+        int i = 0;
+        if (signature.startsWith("<")) {
+            i = formalTypeParameters(signature, 1, classes);
+        }
+
+        while (i < signature.length()) {
+            char c = signature.charAt(i);
+            if (c == '(' || c == ')' || c == '^') {
+                i++;
+            } else {
+                i = type(signature, i, classes);
+            }
+        }
+    }
+
+    private static int formalTypeParameters(@NotNull String signature, int i, @NotNull Consumer<String> classes) {
+        while (signature.charAt(i) != '>') {
+            i = signature.indexOf(':', i);
+            // An empty class bound leaves two colons in a row, before the interface bounds
+            while (i < signature.length() && signature.charAt(i) == ':') {
+                i++;
+                if (signature.charAt(i) != ':') {
+                    i = type(signature, i, classes);
+                }
+            }
+        }
+
+        return i + 1;
+    }
+
+    private static int type(@NotNull String signature, int i, @NotNull Consumer<String> classes) {
+        switch (signature.charAt(i)) {
+            case 'L':
+                return classType(signature, i + 1, classes);
+            case 'T':
+                return signature.indexOf(';', i) + 1;
+            case '[':
+                return type(signature, i + 1, classes);
+            default:
+                return i + 1;
+        }
+    }
+
+    private static int classType(@NotNull String signature, int i, @NotNull Consumer<String> classes) {
+        int start = i;
+        while (true) {
+            char c = signature.charAt(i);
+            if (c == ';') {
+                if (start >= 0) {
+                    classes.accept(signature.substring(start, i));
+                }
+                return i + 1;
+            } else if (c == '<') {
+                if (start >= 0) {
+                    classes.accept(signature.substring(start, i));
+                    start = -1;
+                }
+                i = typeArguments(signature, i + 1, classes);
+            } else if (c == '.') {
+                // The rest names a class nested in the one already found
+                if (start >= 0) {
+                    classes.accept(signature.substring(start, i));
+                    start = -1;
+                }
+                i++;
+            } else {
+                i++;
+            }
+        }
+    }
+
+    private static int typeArguments(@NotNull String signature, int i, @NotNull Consumer<String> classes) {
+        while (signature.charAt(i) != '>') {
+            char c = signature.charAt(i);
+            if (c == '*') {
+                i++;
+            } else {
+                i = type(signature, c == '+' || c == '-' ? i + 1 : i, classes);
+            }
+        }
+
+        return i + 1;
+    }
+}
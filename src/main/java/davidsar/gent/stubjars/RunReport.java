@@ -0,0 +1,154 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Records, for every class generated in a run, the {@link GenerationCost} estimated for it and how long generating
+ * and writing its source file actually took, so that the estimate can be checked against reality. Time a file
+ * spends queued for a writer thread is not counted, as it depends on the other files rather than on the class.
+ */
+final class RunReport {
+    private static final String HEADER = "class\testimated_cost\tgenerate_and_write_us";
+
+    private final Queue<Entry> entries = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Records a generated class. Safe to call from any thread.
+     *
+     * @param className       the name of the class
+     * @param estimatedCost   the cost estimated before generating it
+     * @param generationNanos how long generating and writing it took, in nanoseconds
+     */
+    void record(@NotNull String className, long estimatedCost, long generationNanos) {
+        entries.add(new Entry(className, estimatedCost, generationNanos));
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the Spearman rank correlation between the estimated costs and the generation times, which is
+     * {@code 1} when the estimate orders the classes exactly as their generation times do.
+     *
+     * @return the rank correlation, or {@link Double#NaN} if fewer than two classes were recorded
+     */
+    double rankCorrelation() {
+        List<Entry> recorded = new ArrayList<>(entries);
+        if (recorded.size() < 2) {
+            return Double.NaN;
+        }
+
+        double[] costRanks = ranks(recorded, entry -> entry.estimatedCost);
+        double[] timeRanks = ranks(recorded, entry -> entry.generationNanos);
+        double meanRank = (recorded.size() + 1) / 2.0;
+        double covariance = 0;
+        double costVariance = 0;
+        double timeVariance = 0;
+        for (int i = 0; i < recorded.size(); i++) {
+            double cost = costRanks[i] - meanRank;
+            double time = timeRanks[i] - meanRank;
+            covariance += cost * time;
+            costVariance += cost * cost;
+            timeVariance += time * time;
+        }
+
+        if (costVariance == 0 || timeVariance == 0) {
+            return Double.NaN;
+        }
+        return covariance / Math.sqrt(costVariance * timeVariance);
+    }
+
+    /**
+     * Ranks the entries by a key, starting at one. Tied entries all get the mean of the ranks they span.
+     */
+    @NotNull
+    private static double[] ranks(@NotNull List<Entry> entries, @NotNull ToLongFunction<Entry> key) {
+        Integer[] order = new Integer[entries.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> key.applyAsLong(entries.get(i))));
+
+        double[] ranks = new double[order.length];
+        int start = 0;
+        while (start < order.length) {
+            long value = key.applyAsLong(entries.get(order[start]));
+            int end = start + 1;
+            while (end < order.length && key.applyAsLong(entries.get(order[end])) == value) {
+                end++;
+            }
+            double rank = (start + end + 1) / 2.0;
+            for (int i = start; i < end; i++) {
+                ranks[order[i]] = rank;
+            }
+            start = end;
+        }
+
+        return ranks;
+    }
+
+    /**
+     * Writes the report as tab-separated values, with a header line, from the highest estimated cost down.
+     *
+     * @param file where to write the report
+     * @throws IOException if the report cannot be written
+     */
+    void store(@NotNull File file) throws IOException {
+        List<Entry> recorded = new ArrayList<>(entries);
+        recorded.sort(Comparator.comparingLong((Entry entry) -> entry.estimatedCost).reversed()
+            .thenComparing(entry -> entry.className));
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), UTF_8)) {
+            writer.write(HEADER);
+            writer.newLine();
+            for (Entry entry : recorded) {
+                writer.write(entry.className);
+                writer.write('\t');
+                writer.write(Long.toString(entry.estimatedCost));
+                writer.write('\t');
+                writer.write(Long.toString(TimeUnit.NANOSECONDS.toMicros(entry.generationNanos)));
+                writer.newLine();
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final String className;
+        private final long estimatedCost;
+        private final long generationNanos;
+
+        private Entry(@NotNull String className, long estimatedCost, long generationNanos) {
+            this.className = className;
+            this.estimatedCost = estimatedCost;
+            this.generationNanos = generationNanos;
+        }
+    }
+}
@@ -14,6 +14,7 @@
 package davidsar.gent.stubjars;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -21,31 +22,37 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.file.Files;
 import java.nio.file.attribute.FileTime;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
 
+import davidsar.gent.stubjars.classfile.ClassModelCache;
 import davidsar.gent.stubjars.components.JarClass;
 import davidsar.gent.stubjars.components.SecurityModifier;
+import davidsar.gent.stubjars.components.TypeExpressionCache;
 import davidsar.gent.stubjars.components.writer.JavaClassWriter;
 import davidsar.gent.stubjars.components.writer.Writer;
-import davidsar.gent.stubjars.components.writer.WriterThread;
+import davidsar.gent.stubjars.components.writer.ByteBudget;
+import davidsar.gent.stubjars.components.writer.WriterPool;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
@@ -56,19 +63,54 @@ import static java.nio.charset.StandardCharsets.UTF_8;
  */
 public class StubJars {
     private static final Logger log = LoggerFactory.getLogger(StubJars.class);
-    private final List<JarClass<?>> clazzes;
+    private final List<JarClass> clazzes;
     private final List<JarFile> classpathJars;
-    private List<Package> packages;
+    private final boolean incremental;
+    private final boolean tokenStream;
+    private final boolean virtualThreads;
+    private final int numberOfCompilerThreads;
+    private final int numberOfWriterThreads;
+    private final long writeBufferBytes;
+    private final boolean pipeline;
+    private boolean compiledWhileGenerating = false;
+    private final int batchSize;
+    private final Pool pool;
+    private List<String> packages;
     private static final File SOURCE_DIR = new File("stub_src");
     private static final File BUILD_DIR = new File(SOURCE_DIR, "build");
     private static final File CLASSES_DIR = new File(BUILD_DIR, "classes");
     private static final File SOURCES_LIST_FILE = new File(SOURCE_DIR, "sources.list");
-    private final int numberOfCompilerThreads = Math.max(Runtime.getRuntime().availableProcessors() - 1, 1);
+    private static final File REPORT_FILE = new File(SOURCE_DIR, "report.tsv");
+    private static final File FINGERPRINTS_FILE = new File(SOURCE_DIR, ".stubjars-fingerprints");
+    private static final File EXTRACTED_JARS_DIR = new File(SOURCE_DIR, "extracted-jars");
+    private static final int MAX_IN_FLIGHT_SOURCES = Runtime.getRuntime().availableProcessors() * 4;
 
+    /**
+     * The kinds of thread pools that classes can be generated on.
+     */
+    enum Pool {
+        /**
+         * A {@link ForkJoinPool}, where idle threads steal batches queued for busy ones.
+         */
+        WORK_STEALING,
+        /**
+         * A fixed number of threads taking batches from one shared queue.
+         */
+        FIXED
+    }
 
-    private StubJars(@NotNull List<JarClass<?>> clazzes, List<JarFile> classpathJars) {
+    private StubJars(@NotNull List<JarClass> clazzes, @NotNull Builder builder) {
         this.clazzes = clazzes;
-        this.classpathJars = classpathJars;
+        this.classpathJars = new ArrayList<>(builder.classpathJars);
+        this.incremental = builder.incremental;
+        this.tokenStream = builder.tokenStream;
+        this.virtualThreads = builder.virtualThreads;
+        this.numberOfCompilerThreads = builder.threads;
+        this.numberOfWriterThreads = builder.writerThreads;
+        this.writeBufferBytes = builder.writeBufferBytes;
+        this.pipeline = builder.pipeline;
+        this.batchSize = builder.batchSize;
+        this.pool = builder.pool;
     }
 
     /**
@@ -87,8 +129,8 @@ public class StubJars {
         }
         SOURCE_DIR.mkdirs();
         createBuildDir();
-        for (Package e : packages) {
-            File eFile = new File(SOURCE_DIR, e.getName().replace('.', File.separatorChar));
+        for (String e : packages) {
+            File eFile = new File(SOURCE_DIR, e.replace('.', File.separatorChar));
             eFile.mkdirs();
         }
     }
@@ -96,66 +138,238 @@ public class StubJars {
     private void buildPackagesList() {
         packages = new ArrayList<>();
         for (JarClass clazz : clazzes) {
-            if (!packages.contains(clazz.getClazz().getPackage())) {
-                packages.add(clazz.getClazz().getPackage());
+            if (!packages.contains(clazz.packageName())) {
+                packages.add(clazz.packageName());
             }
         }
     }
 
-    @SuppressWarnings("removal")
     boolean createSourceFiles() {
-        // We need this step to override the System::exit calls when loading classes fails
-        System.setSecurityManager(new StubJarsSecurityManager());
-        WriterThread writerThread = startWriterThread();
-        StringBuilder sourceFiles = new StringBuilder();
+        Map<String, String> fingerprints = null;
+        Set<String> unchangedClasses = Collections.emptySet();
+        if (incremental) {
+            fingerprints = fingerprintClasses();
+            unchangedClasses = findUnchangedClasses(fingerprints);
+        }
+
+        ExecutorService threads = virtualThreads ? createVirtualThreadExecutor() : null;
+        // Virtual threads write their own files, so only platform threads hand them to writer threads
+        WriterPool writers = threads == null ? startWriterPool() : null;
+        if (threads == null) {
+            threads = createCompilerPool();
+        }
+
+        JavacPipeline javacPipeline = pipeline ? startJavacPipeline() : null;
+        Consumer<String> classWritten = javacPipeline == null ? className -> { } : javacPipeline::classWritten;
+        RunReport report = new RunReport();
+        List<CompileBatch> batches;
+        try {
+            batches = submitCompilerJobs(writers, unchangedClasses, report, classWritten, threads);
+            if (!waitForFinish(writers, threads)) {
+                return false;
+            }
 
-        ExecutorService threads = Executors.newFixedThreadPool(numberOfCompilerThreads);
-        List<CompilerThread> compilerThreads = submitCompilerJobs(writerThread, sourceFiles, threads);
+            if (javacPipeline != null) {
+                compiledWhileGenerating = javacPipeline.finish();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            if (javacPipeline != null) {
+                // Does nothing once the pipeline has finished; otherwise its thread would keep the JVM alive
+                javacPipeline.cancel();
+            }
+        }
 
-        if (!waitForFinish(writerThread, threads)) {
+        if (writers != null && writers.hasFailed()) {
+            log.error("Failed to write all classes; look at the logs for more information");
             return false;
         }
 
-        if (compilerThreads.stream().anyMatch((x) -> x.failed)) {
+        if (batches.stream().anyMatch((x) -> x.failed)) {
             log.error("Failed to compile all classes; look at the logs for more information");
             return false;
         }
 
-        writeSourceFileList(sourceFiles);
-        waitForWriterThreadToFinish(writerThread);
+        log.debug("type expressions: {}", TypeExpressionCache.instance());
+        writeSourceFileList(batches);
+        writeRunReport(report);
+        if (fingerprints != null) {
+            storeFingerprints(fingerprints);
+        }
         return true;
     }
 
+    @Nullable
+    private JavacPipeline startJavacPipeline() {
+        List<JarClass> sourceClasses = new ArrayList<>();
+        for (JarClass clazz : clazzes) {
+            if (hasSourceFile(clazz)) {
+                sourceClasses.add(clazz);
+            }
+        }
+
+        JavacPipeline javacPipeline;
+        try {
+            javacPipeline = new JavacPipeline(sourceClasses, StubJars::sourceFileOf, javacCommand(true));
+        } catch (IOException e) {
+            log.warn("Failed to set up compiling while generating; compiling once generation finishes", e);
+            return null;
+        }
+        javacPipeline.start();
+        return javacPipeline;
+    }
+
+    /**
+     * Checks if {@link #createSourceFiles()} already compiled every source file, so that
+     * {@link #compileGeneratedCode()} doesn't need to be called.
+     *
+     * @return {@code true} if the generated sources are already compiled
+     */
+    boolean compiledWhileGenerating() {
+        return compiledWhileGenerating;
+    }
+
     @NotNull
-    private WriterThread startWriterThread() {
-        WriterThread writerThread = new WriterThread();
-        writerThread.start();
-        return writerThread;
+    private Map<String, String> fingerprintClasses() {
+        ApiFingerprints apiFingerprints = new ApiFingerprints();
+        Map<String, String> fingerprints = new HashMap<>();
+        for (JarClass clazz : clazzes) {
+            if (hasSourceFile(clazz)) {
+                fingerprints.put(clazz.fullName(), apiFingerprints.fingerprint(clazz));
+            }
+        }
+
+        return fingerprints;
+    }
+
+    /**
+     * Compares the fingerprints of this run with those of the last run. Source files of classes that are gone
+     * are deleted, and the stored fingerprints are removed until this run finishes, so that an interrupted run
+     * is never mistaken for a complete one.
+     *
+     * @param fingerprints the fingerprint of every class that gets a source file
+     * @return the names of the classes whose source file is up to date
+     */
+    @NotNull
+    private Set<String> findUnchangedClasses(@NotNull Map<String, String> fingerprints) {
+        Map<String, String> previousFingerprints;
+        try {
+            previousFingerprints = ApiFingerprints.load(FINGERPRINTS_FILE);
+            Files.deleteIfExists(FINGERPRINTS_FILE.toPath());
+        } catch (IOException e) {
+            log.warn("Failed to read the fingerprints of the last run; regenerating every class", e);
+            previousFingerprints = Collections.emptyMap();
+        }
+
+        Set<String> unchangedClasses = new HashSet<>();
+        for (Map.Entry<String, String> fingerprint : fingerprints.entrySet()) {
+            String className = fingerprint.getKey();
+            if (fingerprint.getValue().equals(previousFingerprints.get(className)) && sourceFileOf(className).exists()) {
+                unchangedClasses.add(className);
+            }
+        }
+
+        int removedClasses = 0;
+        for (String className : previousFingerprints.keySet()) {
+            if (!fingerprints.containsKey(className) && sourceFileOf(className).delete()) {
+                removedClasses++;
+            }
+        }
+
+        log.info("{} classes are unchanged, {} are regenerated and {} were removed",
+            unchangedClasses.size(), fingerprints.size() - unchangedClasses.size(), removedClasses);
+        return unchangedClasses;
     }
 
-    private void waitForWriterThreadToFinish(WriterThread writerThread) {
+    private void storeFingerprints(@NotNull Map<String, String> fingerprints) {
         try {
-            writerThread.join();
-        } catch (Exception e) {
-            log.error("Failed to write files", e);
+            ApiFingerprints.store(FINGERPRINTS_FILE, fingerprints);
+        } catch (IOException e) {
+            log.error("Failed to write the fingerprints of this run", e);
         }
     }
 
-    private void writeSourceFileList(StringBuilder sourceFiles) {
+    private static boolean hasSourceFile(@NotNull JarClass clazz) {
+        return !clazz.isInnerClass()
+            && !clazz.name().isEmpty()
+            && clazz.security() != SecurityModifier.PRIVATE
+            && !clazz.fullName().equals(Enum.class.getName());
+    }
+
+    @NotNull
+    private static File sourceFileOf(@NotNull String className) {
+        return new File(SOURCE_DIR, className.replace('.', File.separatorChar) + ".java");
+    }
+
+    @NotNull
+    private WriterPool startWriterPool() {
+        log.info("writing files on {} threads, with up to {} MB pending", numberOfWriterThreads,
+            writeBufferBytes / (1024 * 1024));
+        WriterPool writers = new WriterPool(numberOfWriterThreads, new ByteBudget(writeBufferBytes));
+        writers.start();
+        return writers;
+    }
+
+    private void writeSourceFileList(List<CompileBatch> batches) {
+        List<List<String>> sourceFilesOfBatches = new ArrayList<>(batches.size());
+        for (CompileBatch batch : batches) {
+            sourceFilesOfBatches.add(batch.sourceFiles);
+        }
+
         Writer sourcesList = new Writer(SOURCES_LIST_FILE);
         try {
-            sourcesList.write(sourceFiles.toString());
+            sourcesList.write(sourcesListContents(sourceFilesOfBatches));
         } catch (IOException e) {
             log.error("Failed to write source file list", e);
         }
     }
 
-    private boolean waitForFinish(WriterThread writerThread, ExecutorService threads) {
+    /**
+     * Merges the source files of every batch into the contents of {@code sources.list}, sorted so that the list
+     * doesn't depend on the order the batches ran in.
+     *
+     * @param sourceFilesOfBatches the source files written by each batch
+     * @return one source file per line
+     */
+    @NotNull
+    static StringBuilder sourcesListContents(@NotNull List<List<String>> sourceFilesOfBatches) {
+        List<String> sourceFiles = new ArrayList<>();
+        for (List<String> batchSourceFiles : sourceFilesOfBatches) {
+            sourceFiles.addAll(batchSourceFiles);
+        }
+        Collections.sort(sourceFiles);
+
+        StringBuilder contents = new StringBuilder();
+        for (String sourceFile : sourceFiles) {
+            contents.append(sourceFile).append(System.lineSeparator());
+        }
+        return contents;
+    }
+
+    private void writeRunReport(RunReport report) {
+        log.info("generated {} classes; estimated cost to generation time rank correlation: {}",
+            report.size(), String.format("%.2f", report.rankCorrelation()));
+        try {
+            report.store(REPORT_FILE);
+        } catch (IOException e) {
+            log.error("Failed to write the run report", e);
+        }
+    }
+
+    /**
+     * Waits for every class to be generated and for every file to be written and closed.
+     */
+    private boolean waitForFinish(@Nullable WriterPool writers, ExecutorService threads) {
         threads.shutdown();
         try {
             threads.awaitTermination(Integer.MAX_VALUE, TimeUnit.DAYS);
-            writerThread.done();
-            writerThread.waitForCompletion();
+            if (writers != null) {
+                writers.done();
+                writers.waitForCompletion();
+                log.info("pending writes: {}", writers.budget());
+            }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             return false;
@@ -163,23 +377,84 @@ public class StubJars {
         return true;
     }
 
-    private List<CompilerThread> submitCompilerJobs(WriterThread writerThread, StringBuilder sourceFiles, ExecutorService threads) {
-        Semaphore lock = new Semaphore(1, true);
-        List<CompilerThread> compilerThreads = new ArrayList<>();
-        for (int iThread = 0; iThread < numberOfCompilerThreads; ++iThread) {
-            final int segmentSize = clazzes.size() / numberOfCompilerThreads;
-            List<JarClass<?>> list = Collections.unmodifiableList(
-                clazzes.subList(
-                    iThread * segmentSize,
-                    iThread == numberOfCompilerThreads - 1
-                        ? clazzes.size() : segmentSize * (iThread + 1))
-            );
-            CompilerThread compilerThread = new CompilerThread(list, writerThread, lock, sourceFiles);
-            compilerThreads.add(compilerThread);
-            threads.execute(compilerThread);
-        }
-
-        return Collections.unmodifiableList(compilerThreads);
+    /**
+     * Creates an executor that starts a virtual thread per task, on runtimes that have virtual threads. The
+     * executor is looked up reflectively, so that StubJars still runs on runtimes without them.
+     *
+     * @return the executor, or {@code null} if this runtime has no virtual threads
+     */
+    @Nullable
+    private ExecutorService createVirtualThreadExecutor() {
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class
+                .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            log.info("generating classes on virtual threads, at most {} in flight", MAX_IN_FLIGHT_SOURCES);
+            return executor;
+        } catch (ReflectiveOperationException e) {
+            log.warn("Virtual threads are not available on Java {}; falling back to platform threads",
+                System.getProperty("java.specification.version"));
+            return null;
+        }
+    }
+
+    @NotNull
+    private ExecutorService createCompilerPool() {
+        log.info("generating classes on {} threads ({} pool, {} classes per batch)",
+            numberOfCompilerThreads, pool.name().toLowerCase().replace('_', '-'), batchSize);
+        if (pool == Pool.FIXED) {
+            return Executors.newFixedThreadPool(numberOfCompilerThreads);
+        }
+        return new ForkJoinPool(numberOfCompilerThreads);
+    }
+
+    /**
+     * Queues the classes in small batches rather than one long run per thread, so that a run of large classes
+     * only holds up the thread that happens to take it, while the other threads keep taking batches.
+     * <p>
+     * The most expensive classes, by their {@link GenerationCost}, are queued first, so the run doesn't end
+     * waiting on a large class that started last. A batch is cut early once it costs as much as {@code batchSize}
+     * average classes, which leaves the largest classes in batches of their own.
+     */
+    private List<CompileBatch> submitCompilerJobs(@Nullable WriterPool writers, Set<String> unchangedClasses,
+                                                  RunReport report, Consumer<String> classWritten,
+                                                  ExecutorService threads) {
+        Map<String, Long> estimatedCosts = new HashMap<>();
+        List<JarClass> ordered = new ArrayList<>();
+        long totalCost = 0;
+        for (JarClass clazz : clazzes) {
+            if (!hasSourceFile(clazz)) {
+                continue;
+            }
+            long cost = unchangedClasses.contains(clazz.fullName()) ? 0 : GenerationCost.estimate(clazz);
+            estimatedCosts.put(clazz.fullName(), cost);
+            ordered.add(clazz);
+            totalCost += cost;
+        }
+        ordered.sort(Comparator.comparingLong((JarClass clazz) -> estimatedCosts.get(clazz.fullName())).reversed()
+            .thenComparing(JarClass::fullName));
+        // Each virtual thread generates and writes a single class
+        int classesPerBatch = writers == null ? 1 : batchSize;
+        long maxBatchCost = Math.max(totalCost / Math.max(ordered.size(), 1), 1) * classesPerBatch;
+
+        Semaphore inFlight = writers == null ? new Semaphore(MAX_IN_FLIGHT_SOURCES) : null;
+        List<CompileBatch> batches = new ArrayList<>(ordered.size() / classesPerBatch + 1);
+        int start = 0;
+        while (start < ordered.size()) {
+            int end = start;
+            long batchCost = 0;
+            while (end < ordered.size() && end - start < classesPerBatch && batchCost < maxBatchCost) {
+                batchCost += estimatedCosts.get(ordered.get(end).fullName());
+                end++;
+            }
+            List<JarClass> list = Collections.unmodifiableList(ordered.subList(start, end));
+            CompileBatch batch = new CompileBatch(list, writers, inFlight, unchangedClasses,
+                estimatedCosts, report, classWritten, tokenStream);
+            batches.add(batch);
+            threads.execute(batch);
+            start = end;
+        }
+
+        return Collections.unmodifiableList(batches);
     }
 
     private void createBuildDir() {
@@ -192,24 +467,7 @@ public class StubJars {
     }
 
     public void compileGeneratedCode() throws IOException, InterruptedException {
-        File javaHomeBin = Utils.getJavaHomeBinFromEnvironment();
-
-        List<String> javacProcessArgs = new ArrayList<>();
-        javacProcessArgs.add(new File(javaHomeBin, "javac").getPath());
-        if (!classpathJars.isEmpty()) {
-            javacProcessArgs.add("-cp");
-            javacProcessArgs.add(
-                classpathJars.stream()
-                    .map(jar -> jar.getJar().getPath())
-                    .collect(Collectors.joining(File.pathSeparator))
-            );
-        }
-        javacProcessArgs.add("-source");
-        javacProcessArgs.add("8");
-        javacProcessArgs.add("-source");
-        javacProcessArgs.add("8");
-        javacProcessArgs.add("-d");
-        javacProcessArgs.add(BUILD_DIR.getPath());
+        List<String> javacProcessArgs = javacCommand(false);
         javacProcessArgs.add(String.format("@%s", SOURCES_LIST_FILE.getPath()));
 
         Process javac = new ProcessBuilder(javacProcessArgs)
@@ -230,6 +488,39 @@ public class StubJars {
         }
     }
 
+    /**
+     * Builds the {@code javac} command line for compiling generated sources, without the sources themselves.
+     *
+     * @param withBuildDir {@code true} to put the classes already compiled to the build directory on the classpath
+     * @return the command line
+     * @throws IOException if a classpath JAR cannot be extracted
+     */
+    @NotNull
+    private List<String> javacCommand(boolean withBuildDir) throws IOException {
+        File javaHomeBin = Utils.getJavaHomeBinFromEnvironment();
+
+        List<String> javacProcessArgs = new ArrayList<>();
+        javacProcessArgs.add(new File(javaHomeBin, "javac").getPath());
+        List<String> classpath = new ArrayList<>();
+        if (withBuildDir) {
+            classpath.add(BUILD_DIR.getPath());
+        }
+        for (JarFile jar : classpathJars) {
+            classpath.add(jar.classpathFile().getPath());
+        }
+        if (!classpath.isEmpty()) {
+            javacProcessArgs.add("-cp");
+            javacProcessArgs.add(String.join(File.pathSeparator, classpath));
+        }
+        javacProcessArgs.add("-source");
+        javacProcessArgs.add("8");
+        javacProcessArgs.add("-source");
+        javacProcessArgs.add("8");
+        javacProcessArgs.add("-d");
+        javacProcessArgs.add(BUILD_DIR.getPath());
+        return javacProcessArgs;
+    }
+
     public void generateJarForGeneratedCode() throws IOException, InterruptedException {
         File javaHomeBin = Utils.getJavaHomeBinFromEnvironment();
 
@@ -289,8 +580,18 @@ public class StubJars {
      * Creates new {@link StubJars} instances.
      */
     static class Builder {
-        private final Set<String> jars;
-        private final Set<String> classpathJars;
+        private final Set<JarFile> jars;
+        private final Set<JarFile> classpathJars;
+        private ClassModelCache classModelCache;
+        private boolean incremental;
+        private boolean tokenStream;
+        private boolean virtualThreads;
+        private boolean pipeline;
+        private int threads = Math.max(Runtime.getRuntime().availableProcessors() - 1, 1);
+        private int writerThreads = Math.max(Math.min(Runtime.getRuntime().availableProcessors() / 2, 4), 1);
+        private long writeBufferBytes = Math.min(Runtime.getRuntime().maxMemory() / 4, 256L * 1024 * 1024);
+        private int batchSize = 4;
+        private Pool pool = Pool.WORK_STEALING;
 
         private Builder() {
             jars = new LinkedHashSet<>();
@@ -303,8 +604,12 @@ public class StubJars {
          * @param jar a {@link File} representing a JAR file
          */
         void addJar(@NotNull File jar) {
-            if (jars.add(jar.getPath())) {
-                log.info("adding jar: {}", jar.getAbsolutePath());
+            addJar(JarFile.forFile(jar));
+        }
+
+        private void addJar(@NotNull JarFile jar) {
+            if (jars.add(jar)) {
+                log.info("adding jar: {}", jar.getName());
             }
         }
 
@@ -317,8 +622,12 @@ public class StubJars {
             if (!jar.exists()) {
                 throw new IOException("A provided classpath JAR doesn't exist. File: " + jar.getAbsolutePath());
             }
-            if (classpathJars.add(jar.getPath())) {
-                log.info("adding classPathJar: {}", jar.getAbsolutePath());
+            addClasspathJar(JarFile.forFile(jar));
+        }
+
+        private void addClasspathJar(@NotNull JarFile jar) {
+            if (classpathJars.add(jar)) {
+                log.info("adding classPathJar: {}", jar.getName());
             }
         }
 
@@ -326,33 +635,12 @@ public class StubJars {
          * Add a .AAR file that contains a "classes.jar" that provides classpath info.
          */
         public void addClasspathAar(@NotNull File aar) throws IOException {
-            addClasspathJar(extractClassesJar(aar));
-        }
-
-        private File extractClassesJar(@NotNull File aar) throws IOException {
-            ZipFile zipFile = new ZipFile(aar);
-            ZipEntry classesJar = zipFile.getEntry("classes.jar");
-            String root = aar.getName();
-            root = root.substring(0, root.lastIndexOf("."));
-            File outputFile = File.createTempFile(root + "-classes-", ".jar");
-            outputFile.deleteOnExit();
-            try (InputStream inStream = zipFile.getInputStream(classesJar)) {
-                try (FileOutputStream outStream = new FileOutputStream(outputFile)) {
-                    byte[] buffer = new byte[1024];
-                    for (;;) {
-                        int cbRead = inStream.read(buffer);
-                        if (cbRead <= 0) {
-                            break;
-                        }
-                        outStream.write(buffer, 0, cbRead);
-                    }
-                }
+            if (!aar.exists()) {
+                throw new IOException("A provided classpath AAR doesn't exist. File: " + aar.getAbsolutePath());
             }
-            zipFile.close();
-            return outputFile;
+            addClasspathJar(JarFile.forAar(aar, EXTRACTED_JARS_DIR));
         }
 
-
         /**
          * Adds JAR files for {@link StubJars} to manage.
          *
@@ -364,28 +652,139 @@ public class StubJars {
                     throw new IOException("A provided JAR doesn't exist. File: " + file.getName());
                 }
                 if (file.getName().toLowerCase().endsWith(".aar")) {
-                    addJar(extractClassesJar(file));
+                    addJar(JarFile.forAar(file, EXTRACTED_JARS_DIR));
                 } else {
                     addJar(file);
                 }
             }
         }
 
+        /**
+         * Caches the class models read from each JAR on disk, so that JARs which are unchanged since an earlier
+         * run don't have to be scanned again.
+         *
+         * @param directory   the directory to keep the cache in
+         * @param maxSizeInMb the most space the cache may take up, in megabytes
+         */
+        void setClassModelCache(@NotNull File directory, long maxSizeInMb) throws IOException {
+            classModelCache = new ClassModelCache(directory.toPath(), maxSizeInMb * 1024 * 1024);
+            log.info("caching class models in: {}", directory.getAbsolutePath());
+        }
+
+        /**
+         * Only regenerates the sources of classes whose API changed since the last run, and deletes the
+         * sources of classes that are gone.
+         *
+         * @param incremental {@code true} to regenerate incrementally
+         */
+        void setIncremental(boolean incremental) {
+            this.incremental = incremental;
+        }
+
+        /**
+         * Compiles each class to a compact {@link davidsar.gent.stubjars.components.TokenStream} instead of
+         * keeping its formatted source until it is written.
+         *
+         * @param tokenStream {@code true} to use token streams
+         */
+        void setTokenStream(boolean tokenStream) {
+            this.tokenStream = tokenStream;
+        }
+
+        /**
+         * Sets whether each class is generated and written on a virtual thread of its own, where the runtime
+         * supports them, rather than generated on a pool of threads and written by a single writer thread.
+         *
+         * @param virtualThreads {@code true} to use virtual threads
+         */
+        void setVirtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+        }
+
+        /**
+         * Sets whether the generated sources are compiled package by package while the rest are still being
+         * generated, rather than all at once afterwards.
+         *
+         * @param pipeline {@code true} to compile while generating
+         */
+        void setPipeline(boolean pipeline) {
+            this.pipeline = pipeline;
+        }
+
+        /**
+         * Sets the number of threads that generate classes.
+         *
+         * @param threads the number of threads, at least one
+         */
+        void setThreads(int threads) {
+            if (threads < 1) {
+                throw new IllegalArgumentException("There must be at least one thread");
+            }
+            this.threads = threads;
+        }
+
+        /**
+         * Sets the number of threads that write the generated files.
+         *
+         * @param writerThreads the number of threads, at least one
+         */
+        void setWriterThreads(int writerThreads) {
+            if (writerThreads < 1) {
+                throw new IllegalArgumentException("There must be at least one writer thread");
+            }
+            this.writerThreads = writerThreads;
+        }
+
+        /**
+         * Sets how much memory the generated sources waiting to be written may hold. Generation blocks while
+         * this is used up.
+         *
+         * @param writeBufferMb the limit, in megabytes, at least one
+         */
+        void setWriteBufferMb(long writeBufferMb) {
+            if (writeBufferMb < 1) {
+                throw new IllegalArgumentException("The write buffer must be at least one megabyte");
+            }
+            this.writeBufferBytes = writeBufferMb * 1024 * 1024;
+        }
+
+        /**
+         * Sets the number of classes that a thread generates in one go, before it takes more work.
+         *
+         * @param batchSize the number of classes per batch, at least one
+         */
+        void setBatchSize(int batchSize) {
+            if (batchSize < 1) {
+                throw new IllegalArgumentException("A batch must hold at least one class");
+            }
+            this.batchSize = batchSize;
+        }
+
+        /**
+         * Sets the kind of thread pool that classes are generated on.
+         *
+         * @param pool the kind of pool
+         */
+        void setPool(@NotNull Pool pool) {
+            this.pool = pool;
+        }
+
         /**
          * Creates the actual {@link StubJars} instance. This method may take some time to execute.
          *
          * @return a new {@link StubJars} instance
          */
         @NotNull StubJars build() {
-            ClassLoader cpClassLoader = JarFile.createClassLoaderFromJars(null, classpathJars.toArray(new String[0]));
-            ClassLoader classLoader = JarFile.createClassLoaderFromJars(cpClassLoader, jars.toArray(new String[0]));
-            List<JarClass<?>> clazzes = Collections.synchronizedList(new ArrayList<>());
-            for (String jarPath : jars) {
-                JarFile jar = JarFile.forFile(new File(jarPath));
-                log.info("loading jar: {}", jar.getJar().getAbsolutePath());
-                final Set<JarClass<?>> classes;
+            // The scanned JARs come first, then the classpath, then the JDK; no class is ever loaded from any of them
+            List<JarFile> searchedJars = new ArrayList<>(jars);
+            searchedJars.addAll(classpathJars);
+            ClassPath classPath = new ClassPath(searchedJars, ClassLoader.getPlatformClassLoader());
+            List<JarClass> clazzes = Collections.synchronizedList(new ArrayList<>());
+            for (JarFile jar : jars) {
+                log.info("loading jar: {}", jar.getName());
+                final Set<JarClass> classes;
                 try {
-                    classes = jar.getClasses(classLoader);
+                    classes = jar.getClasses(classPath, classModelCache);
                 } catch (IOException e) {
                     throw new RuntimeException("Cannot load jar!", e);
                 }
@@ -394,50 +793,91 @@ public class StubJars {
             }
 
             JarClass.loadJarClassList(clazzes);
-            return new StubJars(clazzes, classpathJars.stream().map(File::new).map(JarFile::forFile).collect(Collectors.toList()));
+            return new StubJars(clazzes, this);
         }
     }
 
-    private static class CompilerThread implements Runnable {
-        private final List<JarClass<?>> list;
-        private final WriterThread writerThread;
-        private final Semaphore lock;
-        private final StringBuilder sourceFiles;
-        private boolean failed;
+    private static class CompileBatch implements Runnable {
+        private final List<JarClass> list;
+        private final WriterPool writers;
+        private final Semaphore inFlight;
+        private final Set<String> unchangedClasses;
+        private final Map<String, Long> estimatedCosts;
+        private final RunReport report;
+        private final Consumer<String> classWritten;
+        private final boolean tokenStream;
+        /**
+         * The source files of this batch, only read once every batch has finished.
+         */
+        private final List<String> sourceFiles;
+        private volatile boolean failed;
 
-        public CompilerThread(List<JarClass<?>> list, WriterThread writerThread, Semaphore lock, StringBuilder sourceFiles) {
+        /**
+         * Creates a batch that either hands its classes to {@code writers}, or, without them, writes them itself
+         * while holding a permit of {@code inFlight}.
+         */
+        public CompileBatch(List<JarClass> list, @Nullable WriterPool writers, @Nullable Semaphore inFlight,
+                            Set<String> unchangedClasses, Map<String, Long> estimatedCosts, RunReport report,
+                            Consumer<String> classWritten, boolean tokenStream) {
             this.list = list;
-            this.writerThread = writerThread;
-            this.lock = lock;
-            this.sourceFiles = sourceFiles;
+            this.writers = writers;
+            this.inFlight = inFlight;
+            this.unchangedClasses = unchangedClasses;
+            this.estimatedCosts = estimatedCosts;
+            this.report = report;
+            this.classWritten = classWritten;
+            this.tokenStream = tokenStream;
+            this.sourceFiles = new ArrayList<>(list.size());
             this.failed = false;
         }
 
         @Override
         public void run() {
             for (JarClass e : list) {
-                if (e.isInnerClass()
-                    || e.name().isEmpty()
-                    || e.security() == SecurityModifier.PRIVATE
-                    || e.fullName().equals(Enum.class.getName())) {
+                if (!hasSourceFile(e)) {
                     continue;
                 }
                 try {
-                    File file = new File(SOURCE_DIR, e.fullName().replace('.', File.separatorChar) + ".java");
-                    JavaClassWriter writer = new JavaClassWriter(file, e, writerThread);
-                    writer.write();
-                    try {
-                        lock.acquire();
-                    } catch (InterruptedException e1) {
-                        return;
+                    File file = sourceFileOf(e.fullName());
+                    if (!unchangedClasses.contains(e.fullName())) {
+                        long startTime = System.nanoTime();
+                        if (writers != null) {
+                            JavaClassWriter writer = new JavaClassWriter(file, e, writers.next(), tokenStream);
+                            writer.whenWritten(() -> {
+                                // Time spent waiting for the writer thread is left out, as it doesn't depend on the class
+                                long nanos = writer.queuedAtNanos() - startTime + writer.writeNanos();
+                                report.record(e.fullName(), estimatedCosts.get(e.fullName()), nanos);
+                                classWritten.accept(e.fullName());
+                            });
+                            writer.write();
+                        } else {
+                            writeInCurrentThread(file, e);
+                            report.record(e.fullName(), estimatedCosts.get(e.fullName()), System.nanoTime() - startTime);
+                            classWritten.accept(e.fullName());
+                        }
+                    } else {
+                        classWritten.accept(e.fullName());
                     }
-                    sourceFiles.append(file.getAbsolutePath()).append(System.lineSeparator());
-                    lock.release();
+                    sourceFiles.add(file.getAbsolutePath());
+                } catch (InterruptedException ex) {
+                    failed = true;
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while writing class " + e.fullName(), ex);
                 } catch (Exception ex) {
                     failed = true;
                     throw new RuntimeException("Cannot write class " + e.fullName(), ex);
                 }
             }
         }
+
+        private void writeInCurrentThread(File file, JarClass clazz) throws IOException, InterruptedException {
+            // Bounds how many classes are formatted into their files at once
+            inFlight.acquire();
+            try {
+                new JavaClassWriter(file, clazz).writeInCurrentThread();
+            } finally {
+                inFlight.release();
+            }
+        }
     }
 }
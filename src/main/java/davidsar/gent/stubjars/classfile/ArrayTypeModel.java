@@ -0,0 +1,52 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars.classfile;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * An array type, such as {@code int[]} or {@code List<T>[]}.
+ */
+public final class ArrayTypeModel extends TypeModel {
+    private final TypeModel componentType;
+
+    public ArrayTypeModel(@NotNull TypeModel componentType) {
+        this.componentType = componentType;
+    }
+
+    @NotNull
+    public TypeModel componentType() {
+        return componentType;
+    }
+
+    @Override
+    public boolean isClass() {
+        return componentType.isClass();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof ArrayTypeModel && componentType.equals(((ArrayTypeModel) o).componentType);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * componentType.hashCode() + 1;
+    }
+
+    @Override
+    public String toString() {
+        return componentType + "[]";
+    }
+}
@@ -0,0 +1,620 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars.classfile;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads the declarations of a class straight from the bytes of its class file, as described in chapter 4 of
+ * the JVM specification. Only the parts StubJars needs are kept: the constant pool, access flags, supertypes,
+ * fields, methods, the {@code Signature}, {@code Exceptions}, {@code InnerClasses}, {@code ConstantValue},
+ * {@code MethodParameters} and {@code AnnotationDefault} attributes, and whether {@code @Deprecated} and
+ * {@code @Retention} are present. Method bodies are skipped, except for the static initializer of an enum, which is
+ * scanned for the classes of the enum constants.
+ */
+public final class ClassFileReader {
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_FLOAT = 4;
+    private static final int CONSTANT_LONG = 5;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_STRING = 8;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_INTERFACE_METHODREF = 11;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+    private static final int CONSTANT_METHOD_HANDLE = 15;
+    private static final int CONSTANT_METHOD_TYPE = 16;
+    private static final int CONSTANT_DYNAMIC = 17;
+    private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+    private static final int CONSTANT_MODULE = 19;
+    private static final int CONSTANT_PACKAGE = 20;
+
+    private static final String ATTRIBUTE_SIGNATURE = "Signature";
+    private static final String ATTRIBUTE_EXCEPTIONS = "Exceptions";
+    private static final String ATTRIBUTE_INNER_CLASSES = "InnerClasses";
+    private static final String ATTRIBUTE_CONSTANT_VALUE = "ConstantValue";
+    private static final String ATTRIBUTE_SYNTHETIC = "Synthetic";
+    private static final String ATTRIBUTE_METHOD_PARAMETERS = "MethodParameters";
+    private static final String ATTRIBUTE_ANNOTATION_DEFAULT = "AnnotationDefault";
+    private static final String ATTRIBUTE_RUNTIME_VISIBLE_ANNOTATIONS = "RuntimeVisibleAnnotations";
+    private static final String ATTRIBUTE_CODE = "Code";
+
+    private static final String DEPRECATED_DESCRIPTOR = "Ljava/lang/Deprecated;";
+    private static final String RETENTION_DESCRIPTOR = "Ljava/lang/annotation/Retention;";
+    private static final String ENUM_NAME = "java/lang/Enum";
+    private static final String STATIC_INITIALIZER_NAME = "<clinit>";
+
+    private static final int OPCODE_TABLESWITCH = 0xAA;
+    private static final int OPCODE_LOOKUPSWITCH = 0xAB;
+    private static final int OPCODE_PUTSTATIC = 0xB3;
+    private static final int OPCODE_NEW = 0xBB;
+    private static final int OPCODE_WIDE = 0xC4;
+    private static final int OPCODE_IINC = 0x84;
+    private static final byte[] INSTRUCTION_LENGTHS = new byte[256];
+
+    static {
+        Arrays.fill(INSTRUCTION_LENGTHS, (byte) 1);
+        setInstructionLength(2, 0x10, 0x12, 0x15, 0x16, 0x17, 0x18, 0x19, 0x36, 0x37, 0x38, 0x39, 0x3A, 0xA9, 0xBC);
+        setInstructionLength(3, 0x11, 0x13, 0x14, OPCODE_IINC, 0xBB, 0xBD, 0xC0, 0xC1, 0xC6, 0xC7);
+        for (int opcode = 0x99; opcode <= 0xA8; opcode++) {
+            // conditional branches, goto and jsr
+            setInstructionLength(3, opcode);
+        }
+        for (int opcode = 0xB2; opcode <= 0xB8; opcode++) {
+            // field accesses and the invoke instructions without extra operands
+            setInstructionLength(3, opcode);
+        }
+        setInstructionLength(4, 0xC5);
+        setInstructionLength(5, 0xB9, 0xBA, 0xC8, 0xC9);
+    }
+
+    private final ByteBuffer buffer;
+    private int[] constantOffsets;
+    private byte[] constantTags;
+    private String[] utf8Cache;
+    private boolean annotatedDeprecated;
+    private String annotatedRetention;
+
+    private ClassFileReader(@NotNull ByteBuffer buffer) {
+        this.buffer = buffer.slice().order(ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Reads a class file. The position of the given buffer is left untouched.
+     *
+     * @param classFile the bytes of a class file
+     * @return the declarations of the class
+     * @throws ClassFormatException if the bytes are not a valid class file
+     */
+    @NotNull
+    public static ClassModel read(@NotNull ByteBuffer classFile) throws ClassFormatException {
+        try {
+            return new ClassFileReader(classFile).readClass();
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new ClassFormatException("Truncated or corrupt class file", e);
+        }
+    }
+
+    @NotNull
+    public static ClassModel read(@NotNull byte[] classFile) throws ClassFormatException {
+        return read(ByteBuffer.wrap(classFile));
+    }
+
+    @NotNull
+    public static ClassModel read(@NotNull InputStream classFile) throws IOException {
+        return read(classFile.readAllBytes());
+    }
+
+    @NotNull
+    private ClassModel readClass() throws ClassFormatException {
+        if (buffer.getInt() != MAGIC) {
+            throw new ClassFormatException("Not a class file");
+        }
+
+        // minor and major version; every version we can parse shares the same layout
+        buffer.getShort();
+        buffer.getShort();
+        readConstantPool();
+
+        int accessFlags = u2();
+        String internalName = classAt(u2());
+        String superName = classAt(u2());
+        int interfaceCount = u2();
+        List<String> interfaces = new ArrayList<>(interfaceCount);
+        for (int i = 0; i < interfaceCount; i++) {
+            interfaces.add(classAt(u2()));
+        }
+
+        int fieldCount = u2();
+        List<FieldModel> fields = new ArrayList<>(fieldCount);
+        Set<String> enumConstants = new HashSet<>();
+        for (int i = 0; i < fieldCount; i++) {
+            FieldModel field = readField();
+            fields.add(field);
+            if (field.isEnumConstant()) {
+                enumConstants.add(field.name());
+            }
+        }
+
+        boolean isEnum = (accessFlags & AccessFlags.ACC_ENUM) != 0 && ENUM_NAME.equals(superName);
+        Map<String, String> enumConstantClasses = new HashMap<>();
+        int methodCount = u2();
+        List<MethodModel> methods = new ArrayList<>(methodCount);
+        for (int i = 0; i < methodCount; i++) {
+            methods.add(readMethod(isEnum ? internalName : null, enumConstants, enumConstantClasses));
+        }
+
+        String signature = null;
+        List<InnerClassModel> innerClasses = Collections.emptyList();
+        boolean deprecated = false;
+        String retention = null;
+        int attributeCount = u2();
+        for (int i = 0; i < attributeCount; i++) {
+            String attributeName = utf8At(u2());
+            int length = buffer.getInt();
+            int end = buffer.position() + length;
+            if (ATTRIBUTE_SIGNATURE.equals(attributeName)) {
+                signature = utf8At(u2());
+            } else if (ATTRIBUTE_INNER_CLASSES.equals(attributeName)) {
+                innerClasses = readInnerClasses();
+            } else if (ATTRIBUTE_SYNTHETIC.equals(attributeName)) {
+                accessFlags |= AccessFlags.ACC_SYNTHETIC;
+            } else if (ATTRIBUTE_RUNTIME_VISIBLE_ANNOTATIONS.equals(attributeName)) {
+                readAnnotations();
+                deprecated = annotatedDeprecated;
+                retention = annotatedRetention;
+            }
+            buffer.position(end);
+        }
+
+        return new ClassModel(accessFlags, requireName(internalName), superName,
+            Collections.unmodifiableList(interfaces), signature, Collections.unmodifiableList(fields),
+            Collections.unmodifiableList(methods), innerClasses, deprecated, retention,
+            enumConstantClasses.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(enumConstantClasses),
+            buffer.limit());
+    }
+
+    @NotNull
+    private FieldModel readField() throws ClassFormatException {
+        int accessFlags = u2();
+        String name = requireName(utf8At(u2()));
+        String descriptor = requireName(utf8At(u2()));
+        String signature = null;
+        Object constantValue = null;
+        int attributeCount = u2();
+        for (int i = 0; i < attributeCount; i++) {
+            String attributeName = utf8At(u2());
+            int length = buffer.getInt();
+            int end = buffer.position() + length;
+            if (ATTRIBUTE_SIGNATURE.equals(attributeName)) {
+                signature = utf8At(u2());
+            } else if (ATTRIBUTE_CONSTANT_VALUE.equals(attributeName)) {
+                constantValue = constantValueFor(descriptor, u2());
+            } else if (ATTRIBUTE_SYNTHETIC.equals(attributeName)) {
+                accessFlags |= AccessFlags.ACC_SYNTHETIC;
+            }
+            buffer.position(end);
+        }
+
+        return new FieldModel(accessFlags, name, descriptor, signature, constantValue);
+    }
+
+    /**
+     * Reads a method.
+     *
+     * @param enumName            the internal name of the class if it is an enum, otherwise {@code null}
+     * @param enumConstants       the names of the enum constants of the class
+     * @param enumConstantClasses receives the classes of the enum constants, if this is the static initializer
+     */
+    @NotNull
+    private MethodModel readMethod(@Nullable String enumName, @NotNull Set<String> enumConstants,
+                                   @NotNull Map<String, String> enumConstantClasses) throws ClassFormatException {
+        int accessFlags = u2();
+        String name = requireName(utf8At(u2()));
+        String descriptor = requireName(utf8At(u2()));
+        String signature = null;
+        List<String> exceptions = Collections.emptyList();
+        List<ParameterModel> parameters = Collections.emptyList();
+        boolean deprecated = false;
+        String defaultValueDescriptor = null;
+        int attributeCount = u2();
+        for (int i = 0; i < attributeCount; i++) {
+            String attributeName = utf8At(u2());
+            int length = buffer.getInt();
+            int end = buffer.position() + length;
+            if (ATTRIBUTE_SIGNATURE.equals(attributeName)) {
+                signature = utf8At(u2());
+            } else if (ATTRIBUTE_EXCEPTIONS.equals(attributeName)) {
+                int exceptionCount = u2();
+                List<String> exceptionNames = new ArrayList<>(exceptionCount);
+                for (int j = 0; j < exceptionCount; j++) {
+                    exceptionNames.add(classAt(u2()));
+                }
+                exceptions = Collections.unmodifiableList(exceptionNames);
+            } else if (ATTRIBUTE_SYNTHETIC.equals(attributeName)) {
+                accessFlags |= AccessFlags.ACC_SYNTHETIC;
+            } else if (ATTRIBUTE_METHOD_PARAMETERS.equals(attributeName)) {
+                parameters = readMethodParameters();
+            } else if (ATTRIBUTE_RUNTIME_VISIBLE_ANNOTATIONS.equals(attributeName)) {
+                readAnnotations();
+                deprecated = annotatedDeprecated;
+            } else if (ATTRIBUTE_ANNOTATION_DEFAULT.equals(attributeName)) {
+                defaultValueDescriptor = defaultValueDescriptor(descriptor);
+            } else if (ATTRIBUTE_CODE.equals(attributeName) && enumName != null
+                && STATIC_INITIALIZER_NAME.equals(name)) {
+                scanEnumConstantClasses(enumName, enumConstants, enumConstantClasses);
+            }
+            buffer.position(end);
+        }
+
+        return new MethodModel(accessFlags, name, descriptor, signature, exceptions, parameters, deprecated,
+            defaultValueDescriptor);
+    }
+
+    @NotNull
+    private List<ParameterModel> readMethodParameters() throws ClassFormatException {
+        int count = buffer.get() & 0xFF;
+        List<ParameterModel> parameters = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String name = utf8At(u2());
+            parameters.add(new ParameterModel(name, u2()));
+        }
+
+        return Collections.unmodifiableList(parameters);
+    }
+
+    /**
+     * Reads a {@code RuntimeVisibleAnnotations} attribute into {@link #annotatedDeprecated} and
+     * {@link #annotatedRetention}; every other annotation is skipped.
+     */
+    private void readAnnotations() throws ClassFormatException {
+        annotatedDeprecated = false;
+        annotatedRetention = null;
+        int count = u2();
+        for (int i = 0; i < count; i++) {
+            String type = utf8At(u2());
+            annotatedDeprecated |= DEPRECATED_DESCRIPTOR.equals(type);
+            int pairCount = u2();
+            for (int j = 0; j < pairCount; j++) {
+                String elementName = utf8At(u2());
+                if (RETENTION_DESCRIPTOR.equals(type) && "value".equals(elementName)
+                    && buffer.get(buffer.position()) == 'e') {
+                    buffer.get();
+                    u2();
+                    annotatedRetention = utf8At(u2());
+                } else {
+                    skipElementValue();
+                }
+            }
+        }
+    }
+
+    private void skipElementValue() {
+        int tag = buffer.get() & 0xFF;
+        switch (tag) {
+            case 'e':
+                buffer.position(buffer.position() + 4);
+                break;
+            case '@':
+                u2();
+                int pairCount = u2();
+                for (int i = 0; i < pairCount; i++) {
+                    u2();
+                    skipElementValue();
+                }
+                break;
+            case '[':
+                int valueCount = u2();
+                for (int i = 0; i < valueCount; i++) {
+                    skipElementValue();
+                }
+                break;
+            default:
+                // the constant pool index of a constant or a class
+                buffer.position(buffer.position() + 2);
+                break;
+        }
+    }
+
+    /**
+     * Returns the descriptor of the class reflection would return for the value of an {@code AnnotationDefault}
+     * attribute: boxed primitives, and the element's own type for arrays.
+     */
+    @NotNull
+    private String defaultValueDescriptor(@NotNull String methodDescriptor) throws ClassFormatException {
+        int tag = buffer.get() & 0xFF;
+        switch (tag) {
+            case 'B':
+                return "Ljava/lang/Byte;";
+            case 'C':
+                return "Ljava/lang/Character;";
+            case 'D':
+                return "Ljava/lang/Double;";
+            case 'F':
+                return "Ljava/lang/Float;";
+            case 'I':
+                return "Ljava/lang/Integer;";
+            case 'J':
+                return "Ljava/lang/Long;";
+            case 'S':
+                return "Ljava/lang/Short;";
+            case 'Z':
+                return "Ljava/lang/Boolean;";
+            case 's':
+                return "Ljava/lang/String;";
+            case 'c':
+                return "Ljava/lang/Class;";
+            case 'e':
+            case '@':
+                // the descriptor of the enum or annotation type
+                return requireName(utf8At(u2()));
+            case '[':
+                return methodDescriptor.substring(methodDescriptor.indexOf(')') + 1);
+            default:
+                throw new ClassFormatException("Unknown element value tag " + tag);
+        }
+    }
+
+    /**
+     * Scans the code of the static initializer of an enum for the class every constant is created with. javac
+     * creates each constant with a {@code new} of its class, whose arguments come after it, and stores it with a
+     * {@code putstatic}, so the first {@code new} since the previous {@code putstatic} is the class of the
+     * constant.
+     */
+    private void scanEnumConstantClasses(@NotNull String enumName, @NotNull Set<String> enumConstants,
+                                         @NotNull Map<String, String> enumConstantClasses)
+        throws ClassFormatException {
+        // max_stack and max_locals
+        buffer.getInt();
+        int codeLength = buffer.getInt();
+        int start = buffer.position();
+        int end = start + codeLength;
+        String created = null;
+        int pc = start;
+        while (pc < end) {
+            int opcode = buffer.get(pc) & 0xFF;
+            if (opcode == OPCODE_NEW) {
+                if (created == null) {
+                    created = classAt(buffer.getShort(pc + 1) & 0xFFFF);
+                }
+            } else if (opcode == OPCODE_PUTSTATIC) {
+                int fieldRef = buffer.getShort(pc + 1) & 0xFFFF;
+                requireTag(fieldRef, CONSTANT_FIELDREF);
+                String owner = classAt(buffer.getShort(constantOffsets[fieldRef]) & 0xFFFF);
+                int nameAndType = buffer.getShort(constantOffsets[fieldRef] + 2) & 0xFFFF;
+                requireTag(nameAndType, CONSTANT_NAME_AND_TYPE);
+                String fieldName = utf8At(buffer.getShort(constantOffsets[nameAndType]) & 0xFFFF);
+                if (enumName.equals(owner) && enumConstants.contains(fieldName) && created != null
+                    && !enumName.equals(created)) {
+                    enumConstantClasses.put(fieldName, created);
+                }
+                created = null;
+            }
+            int length = instructionLength(opcode, pc - start, pc);
+            if (length <= 0) {
+                throw new ClassFormatException("Malformed switch in the static initializer");
+            }
+            pc += length;
+        }
+    }
+
+    private int instructionLength(int opcode, int offset, int pc) {
+        switch (opcode) {
+            case OPCODE_TABLESWITCH: {
+                // the operands are aligned to a multiple of four bytes from the start of the code
+                int operands = (offset + 4) & ~3;
+                int low = buffer.getInt(pc - offset + operands + 4);
+                int high = buffer.getInt(pc - offset + operands + 8);
+                return operands - offset + 12 + (high - low + 1) * 4;
+            }
+            case OPCODE_LOOKUPSWITCH: {
+                int operands = (offset + 4) & ~3;
+                int pairCount = buffer.getInt(pc - offset + operands + 4);
+                return operands - offset + 8 + pairCount * 8;
+            }
+            case OPCODE_WIDE:
+                return (buffer.get(pc + 1) & 0xFF) == OPCODE_IINC ? 6 : 4;
+            default:
+                return INSTRUCTION_LENGTHS[opcode];
+        }
+    }
+
+    @NotNull
+    private List<InnerClassModel> readInnerClasses() throws ClassFormatException {
+        int count = u2();
+        List<InnerClassModel> innerClasses = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String innerName = requireName(classAt(u2()));
+            String outerName = classAt(u2());
+            String simpleName = utf8At(u2());
+            innerClasses.add(new InnerClassModel(innerName, outerName, simpleName, u2()));
+        }
+
+        return Collections.unmodifiableList(innerClasses);
+    }
+
+    private void readConstantPool() throws ClassFormatException {
+        int count = u2();
+        constantOffsets = new int[count];
+        constantTags = new byte[count];
+        utf8Cache = new String[count];
+        for (int index = 1; index < count; index++) {
+            int tag = buffer.get() & 0xFF;
+            constantTags[index] = (byte) tag;
+            constantOffsets[index] = buffer.position();
+            switch (tag) {
+                case CONSTANT_UTF8:
+                    buffer.position(buffer.position() + 2 + u2());
+                    break;
+                case CONSTANT_CLASS:
+                case CONSTANT_STRING:
+                case CONSTANT_METHOD_TYPE:
+                case CONSTANT_MODULE:
+                case CONSTANT_PACKAGE:
+                    buffer.position(buffer.position() + 2);
+                    break;
+                case CONSTANT_METHOD_HANDLE:
+                    buffer.position(buffer.position() + 3);
+                    break;
+                case CONSTANT_INTEGER:
+                case CONSTANT_FLOAT:
+                case CONSTANT_FIELDREF:
+                case CONSTANT_METHODREF:
+                case CONSTANT_INTERFACE_METHODREF:
+                case CONSTANT_NAME_AND_TYPE:
+                case CONSTANT_DYNAMIC:
+                case CONSTANT_INVOKE_DYNAMIC:
+                    buffer.position(buffer.position() + 4);
+                    break;
+                case CONSTANT_LONG:
+                case CONSTANT_DOUBLE:
+                    buffer.position(buffer.position() + 8);
+                    // 8-byte constants take up two entries in the pool
+                    index++;
+                    break;
+                default:
+                    throw new ClassFormatException("Unknown constant pool tag " + tag + " at index " + index);
+            }
+        }
+    }
+
+    @Nullable
+    private Object constantValueFor(@NotNull String descriptor, int index) throws ClassFormatException {
+        int offset = constantOffsets[index];
+        switch (descriptor) {
+            case "I":
+                return buffer.getInt(offset);
+            case "J":
+                return buffer.getLong(offset);
+            case "F":
+                return buffer.getFloat(offset);
+            case "D":
+                return buffer.getDouble(offset);
+            case "Z":
+                return buffer.getInt(offset) != 0;
+            case "B":
+                return (byte) buffer.getInt(offset);
+            case "S":
+                return (short) buffer.getInt(offset);
+            case "C":
+                return (char) buffer.getInt(offset);
+            case "Ljava/lang/String;":
+                requireTag(index, CONSTANT_STRING);
+                return utf8At(buffer.getShort(offset) & 0xFFFF);
+            default:
+                return null;
+        }
+    }
+
+    @Nullable
+    private String classAt(int index) throws ClassFormatException {
+        if (index == 0) {
+            return null;
+        }
+
+        requireTag(index, CONSTANT_CLASS);
+        return utf8At(buffer.getShort(constantOffsets[index]) & 0xFFFF);
+    }
+
+    @Nullable
+    private String utf8At(int index) throws ClassFormatException {
+        if (index == 0) {
+            return null;
+        }
+
+        String cached = utf8Cache[index];
+        if (cached != null) {
+            return cached;
+        }
+
+        requireTag(index, CONSTANT_UTF8);
+        int offset = constantOffsets[index];
+        String decoded = decodeModifiedUtf8(buffer, offset + 2, buffer.getShort(offset) & 0xFFFF);
+        utf8Cache[index] = decoded;
+        return decoded;
+    }
+
+    /**
+     * Decodes the "modified UTF-8" used by class files; it only differs from UTF-8 in how {@code '\0'} and
+     * supplementary characters are encoded, and both of those come out right when decoding one UTF-16 unit
+     * at a time. The {@link ClassModelCache} stores its strings in the same encoding.
+     */
+    @NotNull
+    static String decodeModifiedUtf8(@NotNull ByteBuffer buffer, int offset, int length) throws ClassFormatException {
+        char[] chars = new char[length];
+        int charCount = 0;
+        int end = offset + length;
+        while (offset < end) {
+            int b = buffer.get(offset++) & 0xFF;
+            if (b < 0x80) {
+                chars[charCount++] = (char) b;
+            } else if ((b & 0xE0) == 0xC0) {
+                int b2 = buffer.get(offset++) & 0x3F;
+                chars[charCount++] = (char) (((b & 0x1F) << 6) | b2);
+            } else if ((b & 0xF0) == 0xE0) {
+                int b2 = buffer.get(offset++) & 0x3F;
+                int b3 = buffer.get(offset++) & 0x3F;
+                chars[charCount++] = (char) (((b & 0x0F) << 12) | (b2 << 6) | b3);
+            } else {
+                throw new ClassFormatException("Malformed modified UTF-8 string");
+            }
+        }
+
+        return new String(chars, 0, charCount);
+    }
+
+    private void requireTag(int index, int tag) throws ClassFormatException {
+        if (index >= constantTags.length || constantTags[index] != tag) {
+            throw new ClassFormatException("Expected constant pool entry " + index + " to have tag " + tag);
+        }
+    }
+
+    @NotNull
+    private static String requireName(@Nullable String name) throws ClassFormatException {
+        if (name == null) {
+            throw new ClassFormatException("Missing required name");
+        }
+
+        return name;
+    }
+
+    private int u2() {
+        return buffer.getShort() & 0xFFFF;
+    }
+
+    private static void setInstructionLength(int length, int... opcodes) {
+        for (int opcode : opcodes) {
+            INSTRUCTION_LENGTHS[opcode] = (byte) length;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars.classfile;
+
+import java.io.IOException;
+
+/**
+ * Thrown when the bytes handed to the {@link ClassFileReader} do not describe a valid class file.
+ */
+public class ClassFormatException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    ClassFormatException(String message) {
+        super(message);
+    }
+
+    ClassFormatException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,315 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars.classfile;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The declarations of a single class, read straight from its class file by the {@link ClassFileReader}.
+ * Unlike {@link Class}, building one of these never loads, links or initializes the class.
+ */
+public final class ClassModel {
+    private static final String MODULE_INFO = "module-info";
+    private static final String ENUM_NAME = "java/lang/Enum";
+
+    private final int accessFlags;
+    private final String internalName;
+    private final String superName;
+    private final List<String> interfaces;
+    private final String signature;
+    private final List<FieldModel> fields;
+    private final List<MethodModel> methods;
+    private final List<InnerClassModel> innerClasses;
+    private final boolean deprecated;
+    private final String retention;
+    private final Map<String, String> enumConstantClasses;
+    private final int classFileSize;
+    // Parsed on first use; the result is immutable, so racing threads at worst parse it twice
+    private SignatureParser.ClassSignature genericTypes;
+
+    ClassModel(int accessFlags, @NotNull String internalName, @Nullable String superName,
+               @NotNull List<String> interfaces, @Nullable String signature, @NotNull List<FieldModel> fields,
+               @NotNull List<MethodModel> methods, @NotNull List<InnerClassModel> innerClasses, boolean deprecated,
+               @Nullable String retention, @NotNull Map<String, String> enumConstantClasses, int classFileSize) {
+        this.accessFlags = accessFlags;
+        this.internalName = internalName;
+        this.superName = superName;
+        this.interfaces = interfaces;
+        this.signature = signature;
+        this.fields = fields;
+        this.methods = methods;
+        this.innerClasses = innerClasses;
+        this.deprecated = deprecated;
+        this.retention = retention;
+        this.enumConstantClasses = enumConstantClasses;
+        this.classFileSize = classFileSize;
+    }
+
+    public int accessFlags() {
+        return accessFlags;
+    }
+
+    /**
+     * Returns the internal name of this class, such as {@code java/util/Map$Entry}.
+     *
+     * @return the internal name of this class
+     */
+    @NotNull
+    public String internalName() {
+        return internalName;
+    }
+
+    /**
+     * Returns the binary name of this class, as accepted by {@link Class#forName(String)}.
+     *
+     * @return the binary name of this class
+     */
+    @NotNull
+    public String name() {
+        return internalName.replace('/', '.');
+    }
+
+    /**
+     * Returns the name of the package of this class, such as {@code java.util}.
+     *
+     * @return the package name, or an empty string for the unnamed package
+     */
+    @NotNull
+    public String packageName() {
+        int lastSlash = internalName.lastIndexOf('/');
+        return lastSlash < 0 ? "" : internalName.substring(0, lastSlash).replace('/', '.');
+    }
+
+    /**
+     * Returns the internal name of the superclass.
+     *
+     * @return the superclass, or {@code null} for {@code java.lang.Object} and {@code module-info}
+     */
+    @Nullable
+    public String superName() {
+        return superName;
+    }
+
+    @NotNull
+    public List<String> interfaces() {
+        return interfaces;
+    }
+
+    /**
+     * Returns the generic signature of this class, if the class declares or extends generic types.
+     *
+     * @return the {@code Signature} attribute, or {@code null} if not present
+     */
+    @Nullable
+    public String signature() {
+        return signature;
+    }
+
+    @NotNull
+    public List<FieldModel> fields() {
+        return fields;
+    }
+
+    @NotNull
+    public List<MethodModel> methods() {
+        return methods;
+    }
+
+    /**
+     * Returns every entry of the {@code InnerClasses} attribute. Besides the classes nested in this one, this
+     * includes an entry for this class when it is nested itself, and entries for any nested class it references.
+     *
+     * @return the {@code InnerClasses} attribute
+     */
+    @NotNull
+    public List<InnerClassModel> innerClasses() {
+        return innerClasses;
+    }
+
+    /**
+     * Checks if the class is annotated with {@link Deprecated}.
+     *
+     * @return {@code true} if {@code RuntimeVisibleAnnotations} holds {@code @Deprecated}
+     */
+    public boolean isDeprecated() {
+        return deprecated;
+    }
+
+    /**
+     * Returns the retention policy of an annotation type.
+     *
+     * @return the name of the {@link java.lang.annotation.RetentionPolicy} constant of a runtime visible
+     *     {@code @Retention}, or {@code null} if not present
+     */
+    @Nullable
+    public String retention() {
+        return retention;
+    }
+
+    /**
+     * Returns the class an enum constant is an instance of when the constant declares a body, found by scanning
+     * the static initializer for the {@code new} that creates the constant.
+     *
+     * @param name the name of the enum constant
+     * @return the internal name of the class of the constant, or {@code null} if the constant has no body
+     */
+    @Nullable
+    public String enumConstantClass(@NotNull String name) {
+        return enumConstantClasses.get(name);
+    }
+
+    /**
+     * Returns the classes of the enum constants that declare a body.
+     *
+     * @return the internal names of the classes by the names of their constants
+     * @see #enumConstantClass(String)
+     */
+    @NotNull
+    public Map<String, String> enumConstantClasses() {
+        return enumConstantClasses;
+    }
+
+    /**
+     * Returns the type parameters of this class.
+     *
+     * @return the type parameters from the generic signature, or an empty list if there is none
+     */
+    @NotNull
+    public List<TypeParameterModel> typeParameters() {
+        SignatureParser.ClassSignature types = genericTypes();
+        return types == null ? Collections.emptyList() : types.typeParameters;
+    }
+
+    /**
+     * Returns the superclass as {@link Class#getGenericSuperclass()} does.
+     *
+     * @return the superclass from the generic signature if there is one, or {@code null} for
+     *     {@code java.lang.Object}
+     */
+    @Nullable
+    public TypeModel genericSuperclass() {
+        if (superName == null) {
+            return null;
+        }
+
+        SignatureParser.ClassSignature types = genericTypes();
+        return types == null ? ClassTypeModel.of(superName.replace('/', '.')) : types.superclass;
+    }
+
+    /**
+     * Returns the interfaces as {@link Class#getGenericInterfaces()} does.
+     *
+     * @return the interfaces from the generic signature if there is one
+     */
+    @NotNull
+    public List<TypeModel> genericInterfaces() {
+        SignatureParser.ClassSignature types = genericTypes();
+        if (types != null) {
+            return types.interfaces;
+        }
+
+        List<TypeModel> genericInterfaces = new ArrayList<>(interfaces.size());
+        for (String implemented : interfaces) {
+            genericInterfaces.add(ClassTypeModel.of(implemented.replace('/', '.')));
+        }
+        return genericInterfaces;
+    }
+
+    /**
+     * Returns the size of the class file this was read from.
+     *
+     * @return the size of the class file, in bytes
+     */
+    public int classFileSize() {
+        return classFileSize;
+    }
+
+    @Nullable
+    public FieldModel field(@NotNull String name) {
+        for (FieldModel field : fields) {
+            if (field.name().equals(name)) {
+                return field;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the {@code InnerClasses} entry describing this class.
+     *
+     * @return the entry for this class, or {@code null} if this is a top-level class
+     */
+    @Nullable
+    public InnerClassModel nestingInfo() {
+        for (InnerClassModel innerClass : innerClasses) {
+            if (innerClass.innerName().equals(internalName)) {
+                return innerClass;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Checks if this class is declared inside of another class, including local and anonymous classes.
+     *
+     * @return {@code true} if this is not a top-level class
+     */
+    public boolean isNested() {
+        return nestingInfo() != null;
+    }
+
+    public boolean isSynthetic() {
+        return (accessFlags & AccessFlags.ACC_SYNTHETIC) != 0;
+    }
+
+    /**
+     * Checks if this is an enum, as {@link Class#isEnum()} does: the bodies of enum constants extend the enum,
+     * not {@link Enum}, so they are not enums themselves.
+     *
+     * @return {@code true} if this class is an enum
+     */
+    public boolean isEnum() {
+        return (accessFlags & AccessFlags.ACC_ENUM) != 0 && ENUM_NAME.equals(superName);
+    }
+
+    public boolean isAnnotation() {
+        return (accessFlags & AccessFlags.ACC_ANNOTATION) != 0;
+    }
+
+    public boolean isModuleInfo() {
+        return (accessFlags & AccessFlags.ACC_MODULE) != 0 || internalName.equals(MODULE_INFO);
+    }
+
+    @Nullable
+    private SignatureParser.ClassSignature genericTypes() {
+        if (signature == null) {
+            return null;
+        }
+
+        SignatureParser.ClassSignature types = genericTypes;
+        if (types == null) {
+            types = SignatureParser.parseClass(signature);
+            genericTypes = types;
+        }
+        return types;
+    }
+}
@@ -0,0 +1,402 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars.classfile;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * An on-disk cache of the {@link ClassModel}s read from an archive, keyed by a string identifying its contents.
+ * <p>
+ * Each archive is stored in its own file, in a compact binary format: a table of every distinct string,
+ * followed by the classes, which refer to strings by their index in the table. Entries are read back through
+ * a memory map. The total size of the cache is bounded; when it grows past that bound, the least recently
+ * used entries are deleted, using the modification time of each file, which is refreshed on every hit.
+ */
+public final class ClassModelCache {
+    private static final Logger log = LoggerFactory.getLogger(ClassModelCache.class);
+    private static final int MAGIC = 0x534A434D;
+    private static final int VERSION = 4;
+    private static final String EXTENSION = ".models";
+    private static final int NULL_STRING = -1;
+
+    private final Path directory;
+    private final long maxSize;
+
+    /**
+     * Creates a cache stored in the given directory, creating the directory if needed.
+     *
+     * @param directory the directory to store entries in
+     * @param maxSize   the most bytes the entries of this cache may take up on disk
+     * @throws IOException if the directory cannot be created
+     */
+    public ClassModelCache(@NotNull Path directory, long maxSize) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Loads the class models stored for a key.
+     *
+     * @param key identifies the contents of an archive
+     * @return the class models of the archive, or {@code null} if they are not cached or the entry is unreadable
+     */
+    @Nullable
+    public List<ClassModel> load(@NotNull String key) {
+        Path file = fileFor(key);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<ClassModel> classModels = decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return classModels;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | BufferUnderflowException | IndexOutOfBoundsException e) {
+            log.warn("ignoring unreadable class model cache entry: {}", file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Stores the class models of an archive, then evicts the least recently used entries if the cache has
+     * grown too large. Failures are logged and otherwise ignored, as the cache is only an optimization.
+     *
+     * @param key         identifies the contents of an archive
+     * @param classModels the class models of the archive
+     */
+    public void store(@NotNull String key, @NotNull List<ClassModel> classModels) {
+        Path file = fileFor(key);
+        try {
+            Path temporaryFile = Files.createTempFile(directory, key, ".tmp");
+            try {
+                Files.write(temporaryFile, encode(classModels));
+                Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporaryFile);
+            }
+            evict();
+        } catch (IOException e) {
+            log.warn("failed to write class model cache entry: {}", file, e);
+        }
+    }
+
+    @NotNull
+    private Path fileFor(@NotNull String key) {
+        return directory.resolve(key + EXTENSION);
+    }
+
+    private void evict() throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(directory)) {
+            files = stream.filter(path -> path.getFileName().toString().endsWith(EXTENSION)).collect(Collectors.toList());
+        }
+
+        Map<Path, FileTime> lastUsed = new HashMap<>();
+        long size = 0;
+        for (Path file : files) {
+            try {
+                lastUsed.put(file, Files.getLastModifiedTime(file));
+                size += Files.size(file);
+            } catch (NoSuchFileException e) {
+                // evicted by another run
+            }
+        }
+
+        files.removeIf(file -> !lastUsed.containsKey(file));
+        files.sort(Comparator.comparing(lastUsed::get));
+        for (Path file : files) {
+            if (size <= maxSize) {
+                break;
+            }
+
+            long fileSize = Files.size(file);
+            if (Files.deleteIfExists(file)) {
+                log.info("evicted class model cache entry: {}", file);
+                size -= fileSize;
+            }
+        }
+    }
+
+    @NotNull
+    static byte[] encode(@NotNull List<ClassModel> classModels) throws IOException {
+        StringTable strings = new StringTable();
+        ByteArrayOutputStream classBytes = new ByteArrayOutputStream();
+        DataOutputStream classes = new DataOutputStream(classBytes);
+        classes.writeInt(classModels.size());
+        for (ClassModel classModel : classModels) {
+            classes.writeInt(classModel.accessFlags());
+            classes.writeInt(classModel.classFileSize());
+            classes.writeInt(strings.indexOf(classModel.internalName()));
+            classes.writeInt(strings.indexOf(classModel.superName()));
+            classes.writeInt(strings.indexOf(classModel.signature()));
+            classes.writeInt(classModel.interfaces().size());
+            for (String interfaceName : classModel.interfaces()) {
+                classes.writeInt(strings.indexOf(interfaceName));
+            }
+            classes.writeBoolean(classModel.isDeprecated());
+            classes.writeInt(strings.indexOf(classModel.retention()));
+            classes.writeInt(classModel.enumConstantClasses().size());
+            for (Map.Entry<String, String> enumConstantClass : classModel.enumConstantClasses().entrySet()) {
+                classes.writeInt(strings.indexOf(enumConstantClass.getKey()));
+                classes.writeInt(strings.indexOf(enumConstantClass.getValue()));
+            }
+
+            classes.writeInt(classModel.fields().size());
+            for (FieldModel field : classModel.fields()) {
+                classes.writeInt(field.accessFlags());
+                classes.writeInt(strings.indexOf(field.name()));
+                classes.writeInt(strings.indexOf(field.descriptor()));
+                classes.writeInt(strings.indexOf(field.signature()));
+                encodeConstantValue(classes, strings, field);
+            }
+
+            classes.writeInt(classModel.methods().size());
+            for (MethodModel method : classModel.methods()) {
+                classes.writeInt(method.accessFlags());
+                classes.writeInt(strings.indexOf(method.name()));
+                classes.writeInt(strings.indexOf(method.descriptor()));
+                classes.writeInt(strings.indexOf(method.signature()));
+                classes.writeInt(method.exceptions().size());
+                for (String exception : method.exceptions()) {
+                    classes.writeInt(strings.indexOf(exception));
+                }
+                classes.writeInt(method.parameters().size());
+                for (ParameterModel parameter : method.parameters()) {
+                    classes.writeInt(strings.indexOf(parameter.name()));
+                    classes.writeInt(parameter.accessFlags());
+                }
+                classes.writeBoolean(method.isDeprecated());
+                classes.writeInt(strings.indexOf(method.defaultValueDescriptor()));
+            }
+
+            classes.writeInt(classModel.innerClasses().size());
+            for (InnerClassModel innerClass : classModel.innerClasses()) {
+                classes.writeInt(strings.indexOf(innerClass.innerName()));
+                classes.writeInt(strings.indexOf(innerClass.outerName()));
+                classes.writeInt(strings.indexOf(innerClass.simpleName()));
+                classes.writeInt(innerClass.accessFlags());
+            }
+        }
+        classes.flush();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(classBytes.size() + strings.size() * 16);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(strings.size());
+        for (String string : strings.strings) {
+            // Modified UTF-8 round-trips every string, unpaired surrogates included, and every string of a
+            // class file fits in its 64 KiB limit
+            out.writeUTF(string);
+        }
+        classBytes.writeTo(out);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void encodeConstantValue(@NotNull DataOutputStream out, @NotNull StringTable strings,
+                                            @NotNull FieldModel field) throws IOException {
+        Object value = field.constantValue();
+        if (value == null) {
+            out.writeBoolean(false);
+            return;
+        }
+
+        out.writeBoolean(true);
+        if (value instanceof String) {
+            out.writeInt(strings.indexOf((String) value));
+        } else if (value instanceof Long) {
+            out.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            out.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            out.writeFloat((Float) value);
+        } else if (value instanceof Boolean) {
+            out.writeInt((Boolean) value ? 1 : 0);
+        } else if (value instanceof Character) {
+            out.writeInt((Character) value);
+        } else {
+            out.writeInt(((Number) value).intValue());
+        }
+    }
+
+    @NotNull
+    static List<ClassModel> decode(@NotNull ByteBuffer buffer) throws IOException {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException("Not a class model cache entry, or one of another version");
+        }
+
+        String[] strings = new String[buffer.getInt()];
+        for (int i = 0; i < strings.length; i++) {
+            int length = buffer.getShort() & 0xFFFF;
+            strings[i] = ClassFileReader.decodeModifiedUtf8(buffer, buffer.position(), length);
+            buffer.position(buffer.position() + length);
+        }
+
+        int classCount = buffer.getInt();
+        List<ClassModel> classModels = new ArrayList<>(classCount);
+        for (int i = 0; i < classCount; i++) {
+            int accessFlags = buffer.getInt();
+            int classFileSize = buffer.getInt();
+            String internalName = stringAt(strings, buffer.getInt());
+            String superName = stringAt(strings, buffer.getInt());
+            String signature = stringAt(strings, buffer.getInt());
+            List<String> interfaces = readStrings(buffer, strings);
+            boolean deprecated = buffer.get() != 0;
+            String retention = stringAt(strings, buffer.getInt());
+            int enumConstantClassCount = buffer.getInt();
+            Map<String, String> enumConstantClasses = enumConstantClassCount == 0
+                ? Collections.emptyMap() : new HashMap<>();
+            for (int j = 0; j < enumConstantClassCount; j++) {
+                enumConstantClasses.put(stringAt(strings, buffer.getInt()), stringAt(strings, buffer.getInt()));
+            }
+
+            int fieldCount = buffer.getInt();
+            List<FieldModel> fields = new ArrayList<>(fieldCount);
+            for (int j = 0; j < fieldCount; j++) {
+                int fieldAccessFlags = buffer.getInt();
+                String name = stringAt(strings, buffer.getInt());
+                String descriptor = stringAt(strings, buffer.getInt());
+                String fieldSignature = stringAt(strings, buffer.getInt());
+                Object constantValue = buffer.get() != 0 ? decodeConstantValue(buffer, strings, descriptor) : null;
+                fields.add(new FieldModel(fieldAccessFlags, name, descriptor, fieldSignature, constantValue));
+            }
+
+            int methodCount = buffer.getInt();
+            List<MethodModel> methods = new ArrayList<>(methodCount);
+            for (int j = 0; j < methodCount; j++) {
+                int methodAccessFlags = buffer.getInt();
+                String name = stringAt(strings, buffer.getInt());
+                String descriptor = stringAt(strings, buffer.getInt());
+                String methodSignature = stringAt(strings, buffer.getInt());
+                List<String> exceptions = readStrings(buffer, strings);
+                int parameterCount = buffer.getInt();
+                List<ParameterModel> parameters = parameterCount == 0
+                    ? Collections.emptyList() : new ArrayList<>(parameterCount);
+                for (int k = 0; k < parameterCount; k++) {
+                    String parameterName = stringAt(strings, buffer.getInt());
+                    parameters.add(new ParameterModel(parameterName, buffer.getInt()));
+                }
+                boolean methodDeprecated = buffer.get() != 0;
+                String defaultValueDescriptor = stringAt(strings, buffer.getInt());
+                methods.add(new MethodModel(methodAccessFlags, name, descriptor, methodSignature, exceptions,
+                    Collections.unmodifiableList(parameters), methodDeprecated, defaultValueDescriptor));
+            }
+
+            int innerClassCount = buffer.getInt();
+            List<InnerClassModel> innerClasses = new ArrayList<>(innerClassCount);
+            for (int j = 0; j < innerClassCount; j++) {
+                String innerName = stringAt(strings, buffer.getInt());
+                String outerName = stringAt(strings, buffer.getInt());
+                String simpleName = stringAt(strings, buffer.getInt());
+                innerClasses.add(new InnerClassModel(innerName, outerName, simpleName, buffer.getInt()));
+            }
+
+            classModels.add(new ClassModel(accessFlags, internalName, superName, interfaces, signature,
+                Collections.unmodifiableList(fields), Collections.unmodifiableList(methods),
+                Collections.unmodifiableList(innerClasses), deprecated, retention,
+                Collections.unmodifiableMap(enumConstantClasses), classFileSize));
+        }
+
+        return classModels;
+    }
+
+    @Nullable
+    private static Object decodeConstantValue(@NotNull ByteBuffer buffer, @NotNull String[] strings,
+                                              @NotNull String descriptor) throws IOException {
+        switch (descriptor) {
+            case "I":
+                return buffer.getInt();
+            case "J":
+                return buffer.getLong();
+            case "F":
+                return buffer.getFloat();
+            case "D":
+                return buffer.getDouble();
+            case "Z":
+                return buffer.getInt() != 0;
+            case "B":
+                return (byte) buffer.getInt();
+            case "S":
+                return (short) buffer.getInt();
+            case "C":
+                return (char) buffer.getInt();
+            case "Ljava/lang/String;":
+                return stringAt(strings, buffer.getInt());
+            default:
+                throw new IOException("Unexpected constant value for a field of type " + descriptor);
+        }
+    }
+
+    @NotNull
+    private static List<String> readStrings(@NotNull ByteBuffer buffer, @NotNull String[] strings) {
+        int count = buffer.getInt();
+        if (count == 0) {
+            return Collections.emptyList();
+        }
+
+        List<String> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(stringAt(strings, buffer.getInt()));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    @Nullable
+    private static String stringAt(@NotNull String[] strings, int index) {
+        return index == NULL_STRING ? null : strings[index];
+    }
+
+    private static class StringTable {
+        private final List<String> strings = new ArrayList<>();
+        private final Map<String, Integer> indexes = new HashMap<>();
+
+        int indexOf(@Nullable String string) {
+            if (string == null) {
+                return NULL_STRING;
+            }
+
+            return indexes.computeIfAbsent(string, key -> {
+                strings.add(key);
+                return strings.size() - 1;
+            });
+        }
+
+        int size() {
+            return strings.size();
+        }
+    }
+}
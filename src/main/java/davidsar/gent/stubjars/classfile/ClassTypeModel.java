@@ -0,0 +1,154 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars.classfile;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A primitive type, a class, or a parameterized class such as {@code Map<K, List<V>>}.
+ */
+public final class ClassTypeModel extends TypeModel {
+    private static final List<String> PRIMITIVE_NAMES = List.of("void", "boolean", "byte", "char", "short", "int",
+        "long", "float", "double");
+
+    public static final ClassTypeModel VOID = new ClassTypeModel("void");
+    public static final ClassTypeModel BOOLEAN = new ClassTypeModel("boolean");
+    public static final ClassTypeModel BYTE = new ClassTypeModel("byte");
+    public static final ClassTypeModel CHAR = new ClassTypeModel("char");
+    public static final ClassTypeModel SHORT = new ClassTypeModel("short");
+    public static final ClassTypeModel INT = new ClassTypeModel("int");
+    public static final ClassTypeModel LONG = new ClassTypeModel("long");
+    public static final ClassTypeModel FLOAT = new ClassTypeModel("float");
+    public static final ClassTypeModel DOUBLE = new ClassTypeModel("double");
+    public static final ClassTypeModel OBJECT = new ClassTypeModel("java.lang.Object");
+
+    private final String name;
+    private final List<TypeModel> typeArguments;
+    private final ClassTypeModel ownerType;
+
+    private ClassTypeModel(@NotNull String name) {
+        this(name, Collections.emptyList(), null);
+    }
+
+    ClassTypeModel(@NotNull String name, @NotNull List<TypeModel> typeArguments, @Nullable ClassTypeModel ownerType) {
+        this.name = name;
+        this.typeArguments = typeArguments;
+        this.ownerType = ownerType;
+    }
+
+    /**
+     * Returns the type of a class without type arguments.
+     *
+     * @param name the binary name of the class, such as {@code java.util.Map$Entry}
+     * @return the class type
+     */
+    @NotNull
+    public static ClassTypeModel of(@NotNull String name) {
+        return name.equals(OBJECT.name) ? OBJECT : new ClassTypeModel(name);
+    }
+
+    /**
+     * Returns the binary name of the class, or the keyword of a primitive type.
+     *
+     * @return the name of the class, such as {@code java.util.Map$Entry} or {@code int}
+     */
+    @NotNull
+    public String name() {
+        return name;
+    }
+
+    @NotNull
+    public List<TypeModel> typeArguments() {
+        return typeArguments;
+    }
+
+    /**
+     * Returns the parameterized class this one is nested in, as in {@code Outer<T>.Inner}. Owners without type
+     * arguments are not kept, as the binary name already includes them.
+     *
+     * @return the parameterized owner, or {@code null} if there is none
+     */
+    @Nullable
+    public ClassTypeModel ownerType() {
+        return ownerType;
+    }
+
+    public boolean isPrimitive() {
+        return PRIMITIVE_NAMES.contains(name);
+    }
+
+    public boolean isParameterized() {
+        return !typeArguments.isEmpty() || ownerType != null;
+    }
+
+    /**
+     * Returns this type without its type arguments.
+     *
+     * @return the raw class type
+     */
+    @NotNull
+    public ClassTypeModel erasure() {
+        return isParameterized() ? of(name) : this;
+    }
+
+    @Override
+    public boolean isClass() {
+        return !isParameterized();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ClassTypeModel)) {
+            return false;
+        }
+
+        ClassTypeModel that = (ClassTypeModel) o;
+        return name.equals(that.name) && typeArguments.equals(that.typeArguments)
+            && Objects.equals(ownerType, that.ownerType);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * name.hashCode() + typeArguments.hashCode()) + Objects.hashCode(ownerType);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        if (ownerType != null) {
+            builder.append(ownerType).append('$').append(name, ownerType.name.length() + 1, name.length());
+        } else {
+            builder.append(name);
+        }
+        if (!typeArguments.isEmpty()) {
+            builder.append('<');
+            for (int i = 0; i < typeArguments.size(); i++) {
+                if (i > 0) {
+                    builder.append(", ");
+                }
+                builder.append(typeArguments.get(i));
+            }
+            builder.append('>');
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars.classfile;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A field as declared in a class file.
+ */
+public final class FieldModel {
+    private final int accessFlags;
+    private final String name;
+    private final String descriptor;
+    private final String signature;
+    private final Object constantValue;
+
+    FieldModel(int accessFlags, @NotNull String name, @NotNull String descriptor, @Nullable String signature,
+               @Nullable Object constantValue) {
+        this.accessFlags = accessFlags;
+        this.name = name;
+        this.descriptor = descriptor;
+        this.signature = signature;
+        this.constantValue = constantValue;
+    }
+
+    public int accessFlags() {
+        return accessFlags;
+    }
+
+    @NotNull
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Returns the erased type descriptor of this field, such as {@code I} or {@code Ljava/lang/String;}.
+     *
+     * @return the field descriptor
+     */
+    @NotNull
+    public String descriptor() {
+        return descriptor;
+    }
+
+    /**
+     * Returns the generic signature of this field, if the field has a generic type.
+     *
+     * @return the {@code Signature} attribute, or {@code null} if not present
+     */
+    @Nullable
+    public String signature() {
+        return signature;
+    }
+
+    /**
+     * Returns the compile-time constant of this field, converted to the boxed type matching the field
+     * descriptor (so a {@code boolean} constant is a {@link Boolean}, not the {@link Integer} stored in the
+     * constant pool).
+     *
+     * @return the {@code ConstantValue} attribute, or {@code null} if not present
+     */
+    @Nullable
+    public Object constantValue() {
+        return constantValue;
+    }
+
+    @NotNull
+    public TypeModel type() {
+        return SignatureParser.parseType(descriptor);
+    }
+
+    /**
+     * Returns the type of this field as {@link java.lang.reflect.Field#getGenericType()} does.
+     *
+     * @return the type from the generic signature, or the erased type if the field has no signature
+     */
+    @NotNull
+    public TypeModel genericType() {
+        return SignatureParser.parseType(signature != null ? signature : descriptor);
+    }
+
+    public boolean isSynthetic() {
+        return (accessFlags & AccessFlags.ACC_SYNTHETIC) != 0;
+    }
+
+    public boolean isEnumConstant() {
+        return (accessFlags & AccessFlags.ACC_ENUM) != 0;
+    }
+}
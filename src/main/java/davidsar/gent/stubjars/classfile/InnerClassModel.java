@@ -0,0 +1,84 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars.classfile;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * One entry of an {@code InnerClasses} attribute.
+ */
+public final class InnerClassModel {
+    private final String innerName;
+    private final String outerName;
+    private final String simpleName;
+    private final int accessFlags;
+
+    InnerClassModel(@NotNull String innerName, @Nullable String outerName, @Nullable String simpleName,
+                    int accessFlags) {
+        this.innerName = innerName;
+        this.outerName = outerName;
+        this.simpleName = simpleName;
+        this.accessFlags = accessFlags;
+    }
+
+    /**
+     * Returns the internal name of the nested class, such as {@code a/b/Outer$Inner}.
+     *
+     * @return the internal name of the nested class
+     */
+    @NotNull
+    public String innerName() {
+        return innerName;
+    }
+
+    /**
+     * Returns the internal name of the enclosing class.
+     *
+     * @return the enclosing class, or {@code null} for local and anonymous classes
+     */
+    @Nullable
+    public String outerName() {
+        return outerName;
+    }
+
+    /**
+     * Returns the simple name of the nested class as written in the source.
+     *
+     * @return the simple name, or {@code null} for anonymous classes
+     */
+    @Nullable
+    public String simpleName() {
+        return simpleName;
+    }
+
+    /**
+     * Returns the access flags as declared in the source, which include {@code static}, {@code private} and
+     * {@code protected} unlike the flags of the nested class file itself.
+     *
+     * @return the source level access flags
+     */
+    public int accessFlags() {
+        return accessFlags;
+    }
+
+    /**
+     * Checks if this entry describes a member class, as opposed to a local or anonymous class.
+     *
+     * @return {@code true} if the nested class is a member of its {@link #outerName()}
+     */
+    public boolean isMember() {
+        return outerName != null && simpleName != null;
+    }
+}
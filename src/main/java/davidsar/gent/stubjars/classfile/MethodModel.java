@@ -0,0 +1,279 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars.classfile;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A method or constructor as declared in a class file.
+ */
+public final class MethodModel {
+    private static final String CONSTRUCTOR_NAME = "<init>";
+    private static final String STATIC_INITIALIZER_NAME = "<clinit>";
+
+    private final int accessFlags;
+    private final String name;
+    private final String descriptor;
+    private final String signature;
+    private final List<String> exceptions;
+    private final List<ParameterModel> parameters;
+    private final boolean deprecated;
+    private final String defaultValueDescriptor;
+    // Parsed on first use; the results are immutable, so racing threads at worst parse them twice
+    private SignatureParser.MethodSignature erasedTypes;
+    private SignatureParser.MethodSignature genericTypes;
+
+    MethodModel(int accessFlags, @NotNull String name, @NotNull String descriptor, @Nullable String signature,
+                @NotNull List<String> exceptions, @NotNull List<ParameterModel> parameters, boolean deprecated,
+                @Nullable String defaultValueDescriptor) {
+        this.accessFlags = accessFlags;
+        this.name = name;
+        this.descriptor = descriptor;
+        this.signature = signature;
+        this.exceptions = exceptions;
+        this.parameters = parameters;
+        this.deprecated = deprecated;
+        this.defaultValueDescriptor = defaultValueDescriptor;
+    }
+
+    public int accessFlags() {
+        return accessFlags;
+    }
+
+    @NotNull
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Returns the erased method descriptor, such as {@code (ILjava/lang/String;)V}.
+     *
+     * @return the method descriptor
+     */
+    @NotNull
+    public String descriptor() {
+        return descriptor;
+    }
+
+    /**
+     * Returns the generic signature of this method, if the method uses generic types.
+     *
+     * @return the {@code Signature} attribute, or {@code null} if not present
+     */
+    @Nullable
+    public String signature() {
+        return signature;
+    }
+
+    /**
+     * Returns the internal names of the checked exceptions this method declares.
+     *
+     * @return the contents of the {@code Exceptions} attribute
+     */
+    @NotNull
+    public List<String> exceptions() {
+        return exceptions;
+    }
+
+    /**
+     * Returns the names and flags of the parameters, as kept by compilers run with {@code -parameters}.
+     *
+     * @return the contents of the {@code MethodParameters} attribute, or an empty list if not present
+     */
+    @NotNull
+    public List<ParameterModel> parameters() {
+        return parameters;
+    }
+
+    /**
+     * Checks if the method is annotated with {@link Deprecated}.
+     *
+     * @return {@code true} if {@code RuntimeVisibleAnnotations} holds {@code @Deprecated}
+     */
+    public boolean isDeprecated() {
+        return deprecated;
+    }
+
+    /**
+     * Returns the descriptor of the class of the default value of an annotation element, as
+     * {@code getDefaultValue().getClass()} would return it: boxed for primitive elements and the element's own
+     * array type for arrays.
+     *
+     * @return the descriptor of the {@code AnnotationDefault} value, or {@code null} if not present
+     */
+    @Nullable
+    public String defaultValueDescriptor() {
+        return defaultValueDescriptor;
+    }
+
+    /**
+     * Returns the type of the default value of an annotation element.
+     *
+     * @return the type of the {@code AnnotationDefault} value, or {@code null} if not present
+     * @see #defaultValueDescriptor()
+     */
+    @Nullable
+    public TypeModel defaultValueType() {
+        return defaultValueDescriptor == null ? null : SignatureParser.parseType(defaultValueDescriptor);
+    }
+
+    @NotNull
+    public List<TypeModel> parameterTypes() {
+        return erasedTypes().parameterTypes;
+    }
+
+    @NotNull
+    public TypeModel returnType() {
+        return erasedTypes().returnType;
+    }
+
+    @NotNull
+    public List<TypeParameterModel> typeParameters() {
+        return genericTypes().typeParameters;
+    }
+
+    /**
+     * Returns the parameter types from the generic signature, as {@link java.lang.reflect.Method#getGenericParameterTypes()}
+     * does. Signatures leave out implicit parameters, so this can hold fewer types than {@link #parameterTypes()}.
+     *
+     * @return the generic parameter types, or the erased ones if the method has no signature
+     */
+    @NotNull
+    public List<TypeModel> genericParameterTypes() {
+        return genericTypes().parameterTypes;
+    }
+
+    @NotNull
+    public TypeModel genericReturnType() {
+        return genericTypes().returnType;
+    }
+
+    /**
+     * Returns the exceptions of the generic signature, or those of the {@code Exceptions} attribute if the
+     * signature declares none.
+     *
+     * @return the types of the declared exceptions
+     */
+    @NotNull
+    public List<TypeModel> genericExceptionTypes() {
+        List<TypeModel> exceptionTypes = genericTypes().exceptionTypes;
+        if (!exceptionTypes.isEmpty()) {
+            return exceptionTypes;
+        }
+
+        List<TypeModel> types = new ArrayList<>(exceptions.size());
+        for (String exception : exceptions) {
+            types.add(ClassTypeModel.of(exception.replace('/', '.')));
+        }
+        return types;
+    }
+
+    /**
+     * Returns the type of every parameter, as {@link java.lang.reflect.Parameter#getParameterizedType()} reports
+     * it: generic where the signature covers the parameter, erased for implicit parameters.
+     *
+     * @return one type for every parameter of the descriptor
+     */
+    @NotNull
+    public List<TypeModel> parameterizedTypes() {
+        List<TypeModel> erased = parameterTypes();
+        if (signature == null) {
+            return erased;
+        }
+
+        List<TypeModel> generic = genericParameterTypes();
+        if (parameters.size() != erased.size()) {
+            return generic.size() == erased.size() ? generic : erased;
+        }
+
+        List<TypeModel> types = new ArrayList<>(erased.size());
+        int genericIndex = 0;
+        for (int i = 0; i < erased.size(); i++) {
+            if (parameters.get(i).isImplicit() || genericIndex >= generic.size()) {
+                types.add(erased.get(i));
+            } else {
+                types.add(generic.get(genericIndex++));
+            }
+        }
+        return Collections.unmodifiableList(types);
+    }
+
+    /**
+     * Returns the name of a parameter, falling back to {@code argN} like reflection does when the class file
+     * does not record it.
+     *
+     * @param index the index of the parameter in the descriptor
+     * @return the name of the parameter
+     */
+    @NotNull
+    public String parameterName(int index) {
+        if (parameters.size() == parameterTypes().size()) {
+            String parameterName = parameters.get(index).name();
+            if (parameterName != null && !parameterName.isEmpty()) {
+                return parameterName;
+            }
+        }
+
+        return "arg" + index;
+    }
+
+    public boolean isConstructor() {
+        return CONSTRUCTOR_NAME.equals(name);
+    }
+
+    public boolean isStaticInitializer() {
+        return STATIC_INITIALIZER_NAME.equals(name);
+    }
+
+    public boolean isSynthetic() {
+        return (accessFlags & AccessFlags.ACC_SYNTHETIC) != 0;
+    }
+
+    public boolean isBridge() {
+        return (accessFlags & AccessFlags.ACC_BRIDGE) != 0;
+    }
+
+    public boolean isVarArgs() {
+        return (accessFlags & AccessFlags.ACC_VARARGS) != 0;
+    }
+
+    @NotNull
+    private SignatureParser.MethodSignature erasedTypes() {
+        SignatureParser.MethodSignature types = erasedTypes;
+        if (types == null) {
+            types = SignatureParser.parseMethod(descriptor);
+            erasedTypes = types;
+        }
+        return types;
+    }
+
+    @NotNull
+    private SignatureParser.MethodSignature genericTypes() {
+        if (signature == null) {
+            return erasedTypes();
+        }
+
+        SignatureParser.MethodSignature types = genericTypes;
+        if (types == null) {
+            types = SignatureParser.parseMethod(signature);
+            genericTypes = types;
+        }
+        return types;
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars.classfile;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * One entry of a {@code MethodParameters} attribute.
+ */
+public final class ParameterModel {
+    private static final int ACC_MANDATED = 0x8000;
+
+    private final String name;
+    private final int accessFlags;
+
+    ParameterModel(@Nullable String name, int accessFlags) {
+        this.name = name;
+        this.accessFlags = accessFlags;
+    }
+
+    /**
+     * Returns the name of the parameter as written in the source.
+     *
+     * @return the name, or {@code null} if the compiler left it out
+     */
+    @Nullable
+    public String name() {
+        return name;
+    }
+
+    public int accessFlags() {
+        return accessFlags;
+    }
+
+    /**
+     * Checks if the parameter does not appear in the source, such as the outer instance passed to the
+     * constructor of an inner class.
+     *
+     * @return {@code true} if the parameter is synthetic or mandated
+     */
+    public boolean isImplicit() {
+        return (accessFlags & (AccessFlags.ACC_SYNTHETIC | ACC_MANDATED)) != 0;
+    }
+}
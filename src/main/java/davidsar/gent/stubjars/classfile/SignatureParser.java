@@ -0,0 +1,278 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars.classfile;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Parses descriptors and the generic signatures of {@code Signature} attributes, as described in section 4.7.9.1
+ * of the JVM specification, into {@link TypeModel}s. Descriptors share the syntax of signatures, so both go
+ * through the same parser.
+ */
+final class SignatureParser {
+    private final String signature;
+    private int position;
+
+    private SignatureParser(@NotNull String signature) {
+        this.signature = signature;
+    }
+
+    /**
+     * Parses a field descriptor or field signature.
+     *
+     * @param signature the descriptor or signature, such as {@code Ljava/util/List<TT;>;}
+     * @return the type
+     * @throws IllegalArgumentException if the signature is malformed
+     */
+    @NotNull
+    static TypeModel parseType(@NotNull String signature) {
+        SignatureParser parser = new SignatureParser(signature);
+        TypeModel type = parser.type();
+        parser.expectEnd();
+        return type;
+    }
+
+    @NotNull
+    static ClassSignature parseClass(@NotNull String signature) {
+        SignatureParser parser = new SignatureParser(signature);
+        List<TypeParameterModel> typeParameters = parser.typeParameters();
+        TypeModel superclass = parser.type();
+        List<TypeModel> interfaces = new ArrayList<>();
+        while (parser.position < signature.length()) {
+            interfaces.add(parser.type());
+        }
+        return new ClassSignature(typeParameters, superclass, Collections.unmodifiableList(interfaces));
+    }
+
+    /**
+     * Parses a method descriptor or method signature.
+     *
+     * @param signature the descriptor or signature, such as {@code <T:Ljava/lang/Object;>(TT;)V^TE;}
+     * @return the types of the method
+     * @throws IllegalArgumentException if the signature is malformed
+     */
+    @NotNull
+    static MethodSignature parseMethod(@NotNull String signature) {
+        SignatureParser parser = new SignatureParser(signature);
+        List<TypeParameterModel> typeParameters = parser.typeParameters();
+        parser.expect('(');
+        List<TypeModel> parameterTypes = new ArrayList<>();
+        while (parser.peek() != ')') {
+            parameterTypes.add(parser.type());
+        }
+        parser.expect(')');
+        TypeModel returnType = parser.type();
+        List<TypeModel> exceptionTypes = new ArrayList<>();
+        while (parser.position < signature.length()) {
+            parser.expect('^');
+            exceptionTypes.add(parser.type());
+        }
+        return new MethodSignature(typeParameters, Collections.unmodifiableList(parameterTypes), returnType,
+            Collections.unmodifiableList(exceptionTypes));
+    }
+
+    @NotNull
+    private List<TypeParameterModel> typeParameters() {
+        if (position >= signature.length() || peek() != '<') {
+            return Collections.emptyList();
+        }
+
+        expect('<');
+        List<TypeParameterModel> typeParameters = new ArrayList<>();
+        while (peek() != '>') {
+            String name = identifier(':');
+            expect(':');
+            List<TypeModel> bounds = new ArrayList<>();
+            if (peek() != ':') {
+                bounds.add(type());
+            }
+            while (peek() == ':') {
+                position++;
+                bounds.add(type());
+            }
+            if (bounds.isEmpty()) {
+                bounds.add(ClassTypeModel.OBJECT);
+            }
+            typeParameters.add(new TypeParameterModel(name, Collections.unmodifiableList(bounds)));
+        }
+        expect('>');
+        return Collections.unmodifiableList(typeParameters);
+    }
+
+    @NotNull
+    private TypeModel type() {
+        char c = next();
+        switch (c) {
+            case 'V':
+                return ClassTypeModel.VOID;
+            case 'Z':
+                return ClassTypeModel.BOOLEAN;
+            case 'B':
+                return ClassTypeModel.BYTE;
+            case 'C':
+                return ClassTypeModel.CHAR;
+            case 'S':
+                return ClassTypeModel.SHORT;
+            case 'I':
+                return ClassTypeModel.INT;
+            case 'J':
+                return ClassTypeModel.LONG;
+            case 'F':
+                return ClassTypeModel.FLOAT;
+            case 'D':
+                return ClassTypeModel.DOUBLE;
+            case '[':
+                return new ArrayTypeModel(type());
+            case 'T':
+                TypeVariableModel typeVariable = new TypeVariableModel(identifier(';'));
+                expect(';');
+                return typeVariable;
+            case 'L':
+                return classType();
+            default:
+                throw malformed();
+        }
+    }
+
+    @NotNull
+    private ClassTypeModel classType() {
+        StringBuilder name = new StringBuilder();
+        ClassTypeModel owner = null;
+        while (true) {
+            int start = position;
+            char c;
+            while ((c = next()) != '<' && c != '.' && c != ';') {
+                // keep scanning the name of the class
+            }
+            position--;
+            if (position == start) {
+                throw malformed();
+            }
+            name.append(signature, start, position);
+
+            List<TypeModel> typeArguments = peek() == '<' ? typeArguments() : Collections.emptyList();
+            String binaryName = name.toString().replace('/', '.');
+            if (next() == ';') {
+                return typeArguments.isEmpty() && owner == null
+                    ? ClassTypeModel.of(binaryName)
+                    : new ClassTypeModel(binaryName, typeArguments, owner);
+            }
+
+            if (!typeArguments.isEmpty() || owner != null) {
+                owner = new ClassTypeModel(binaryName, typeArguments, owner);
+            }
+            name.append('$');
+        }
+    }
+
+    @NotNull
+    private List<TypeModel> typeArguments() {
+        expect('<');
+        List<TypeModel> typeArguments = new ArrayList<>();
+        while (peek() != '>') {
+            char c = peek();
+            if (c == '*') {
+                position++;
+                typeArguments.add(new WildcardTypeModel(ClassTypeModel.OBJECT, null));
+            } else if (c == '+') {
+                position++;
+                typeArguments.add(new WildcardTypeModel(type(), null));
+            } else if (c == '-') {
+                position++;
+                typeArguments.add(new WildcardTypeModel(ClassTypeModel.OBJECT, type()));
+            } else {
+                typeArguments.add(type());
+            }
+        }
+        expect('>');
+        return Collections.unmodifiableList(typeArguments);
+    }
+
+    @NotNull
+    private String identifier(char terminator) {
+        int end = signature.indexOf(terminator, position);
+        if (end <= position) {
+            throw malformed();
+        }
+
+        String identifier = signature.substring(position, end);
+        position = end;
+        return identifier;
+    }
+
+    private char peek() {
+        if (position >= signature.length()) {
+            throw malformed();
+        }
+
+        return signature.charAt(position);
+    }
+
+    private char next() {
+        char c = peek();
+        position++;
+        return c;
+    }
+
+    private void expect(char c) {
+        if (next() != c) {
+            throw malformed();
+        }
+    }
+
+    private void expectEnd() {
+        if (position != signature.length()) {
+            throw malformed();
+        }
+    }
+
+    @NotNull
+    private IllegalArgumentException malformed() {
+        return new IllegalArgumentException("Malformed signature at index " + position + ": " + signature);
+    }
+
+    static final class ClassSignature {
+        final List<TypeParameterModel> typeParameters;
+        final TypeModel superclass;
+        final List<TypeModel> interfaces;
+
+        private ClassSignature(@NotNull List<TypeParameterModel> typeParameters, @Nullable TypeModel superclass,
+                               @NotNull List<TypeModel> interfaces) {
+            this.typeParameters = typeParameters;
+            this.superclass = superclass;
+            this.interfaces = interfaces;
+        }
+    }
+
+    static final class MethodSignature {
+        final List<TypeParameterModel> typeParameters;
+        final List<TypeModel> parameterTypes;
+        final TypeModel returnType;
+        final List<TypeModel> exceptionTypes;
+
+        private MethodSignature(@NotNull List<TypeParameterModel> typeParameters,
+                                @NotNull List<TypeModel> parameterTypes, @NotNull TypeModel returnType,
+                                @NotNull List<TypeModel> exceptionTypes) {
+            this.typeParameters = typeParameters;
+            this.parameterTypes = parameterTypes;
+            this.returnType = returnType;
+            this.exceptionTypes = exceptionTypes;
+        }
+    }
+}
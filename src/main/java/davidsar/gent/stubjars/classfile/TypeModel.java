@@ -0,0 +1,32 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars.classfile;
+
+/**
+ * A type as written in a descriptor or generic signature. These mirror {@link java.lang.reflect.Type} and its
+ * subtypes, but are parsed from the class file instead of resolved by a class loader, so they only name the
+ * classes they refer to. Types compare by structure.
+ */
+public abstract class TypeModel {
+    TypeModel() {
+    }
+
+    /**
+     * Checks if reflection would represent this type with a {@link Class}: a primitive, a class without type
+     * arguments, or an array of either.
+     *
+     * @return {@code true} if this type is not generic
+     */
+    public abstract boolean isClass();
+}
@@ -0,0 +1,51 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars.classfile;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * The declaration of a type variable by a generic class or method, such as {@code T extends Comparable<T>}.
+ */
+public final class TypeParameterModel {
+    private final String name;
+    private final List<TypeModel> bounds;
+
+    TypeParameterModel(@NotNull String name, @NotNull List<TypeModel> bounds) {
+        this.name = name;
+        this.bounds = bounds;
+    }
+
+    @NotNull
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Returns the bounds of the type variable, as {@link java.lang.reflect.TypeVariable#getBounds()} does.
+     *
+     * @return the bounds, which hold only {@code java.lang.Object} if none were declared
+     */
+    @NotNull
+    public List<TypeModel> bounds() {
+        return bounds;
+    }
+
+    @Override
+    public String toString() {
+        return bounds.get(0).equals(ClassTypeModel.OBJECT) ? name : name + " extends " + bounds.get(0);
+    }
+}
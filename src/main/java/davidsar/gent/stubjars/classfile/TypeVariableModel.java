@@ -0,0 +1,52 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars.classfile;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A use of a type variable, such as the {@code T} in {@code List<T>}.
+ */
+public final class TypeVariableModel extends TypeModel {
+    private final String name;
+
+    public TypeVariableModel(@NotNull String name) {
+        this.name = name;
+    }
+
+    @NotNull
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public boolean isClass() {
+        return false;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof TypeVariableModel && name.equals(((TypeVariableModel) o).name);
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
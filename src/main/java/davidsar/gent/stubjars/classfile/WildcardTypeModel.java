@@ -0,0 +1,84 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars.classfile;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Objects;
+
+/**
+ * A wildcard type argument: {@code ?}, {@code ? extends T} or {@code ? super T}.
+ */
+public final class WildcardTypeModel extends TypeModel {
+    private final TypeModel upperBound;
+    private final TypeModel lowerBound;
+
+    WildcardTypeModel(@NotNull TypeModel upperBound, @Nullable TypeModel lowerBound) {
+        this.upperBound = upperBound;
+        this.lowerBound = lowerBound;
+    }
+
+    /**
+     * Returns the bound after {@code extends}.
+     *
+     * @return the upper bound, which is {@code java.lang.Object} for {@code ?} and {@code ? super T}
+     */
+    @NotNull
+    public TypeModel upperBound() {
+        return upperBound;
+    }
+
+    /**
+     * Returns the bound after {@code super}.
+     *
+     * @return the lower bound, or {@code null} if there is none
+     */
+    @Nullable
+    public TypeModel lowerBound() {
+        return lowerBound;
+    }
+
+    @Override
+    public boolean isClass() {
+        return false;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof WildcardTypeModel)) {
+            return false;
+        }
+
+        WildcardTypeModel that = (WildcardTypeModel) o;
+        return upperBound.equals(that.upperBound) && Objects.equals(lowerBound, that.lowerBound);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * upperBound.hashCode() + Objects.hashCode(lowerBound);
+    }
+
+    @Override
+    public String toString() {
+        if (lowerBound != null) {
+            return "? super " + lowerBound;
+        }
+
+        return upperBound.equals(ClassTypeModel.OBJECT) ? "?" : "? extends " + upperBound;
+    }
+}
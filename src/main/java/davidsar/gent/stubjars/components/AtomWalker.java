@@ -0,0 +1,74 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars.components;
+
+import davidsar.gent.stubjars.components.expressions.Expression;
+import davidsar.gent.stubjars.components.expressions.FormattedExpression;
+import davidsar.gent.stubjars.components.expressions.StringExpression;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Walks an expression tree down to the atoms {@link TreeFormatter} and {@link TokenStream} lay out. Spacing atoms are
+ * skipped, as the layout puts its own spaces and line breaks in; every other atom is passed on with its {@link Kind}.
+ *
+ * @param <E> the exception handling an atom may throw
+ */
+abstract class AtomWalker<E extends Exception> {
+    enum Kind {
+        SEMICOLON, LEFT_CURLY, RIGHT_CURLY, TEXT
+    }
+
+    abstract void atom(@NotNull Kind kind, @NotNull Expression atom) throws E;
+
+    final void walk(@NotNull Expression expression) throws E {
+        if (expression instanceof FormattedExpression) {
+            Expression formattedString = ((FormattedExpression) expression).getFormattedString();
+            if (formattedString == null) {
+                throw new NullPointerException("Null formatted string; expression=" + expression
+                    + "; expression type=" + expression.getClass().getName());
+            }
+            classify(formattedString);
+            return;
+        }
+
+        if (!expression.hasChildren()) {
+            classify(expression);
+            return;
+        }
+
+        for (Expression child : expression.children()) {
+            if (child == null) {
+                throw new NullPointerException("Null child expression; expression=" + expression);
+            }
+            walk(child);
+        }
+    }
+
+    private void classify(@NotNull Expression atom) throws E {
+        if (atom.equals(StringExpression.SPACE) || atom.equals(StringExpression.NEW_LINE)
+            || atom.equals(StringExpression.EMPTY) || atom.equals(StringExpression.INDENT)) {
+            return;
+        }
+
+        if (atom.equals(StringExpression.SEMICOLON)) {
+            atom(Kind.SEMICOLON, atom);
+        } else if (atom.equals(StringExpression.LEFT_CURLY)) {
+            atom(Kind.LEFT_CURLY, atom);
+        } else if (atom.equals(StringExpression.RIGHT_CURLY)) {
+            atom(Kind.RIGHT_CURLY, atom);
+        } else {
+            atom(Kind.TEXT, atom);
+        }
+    }
+}
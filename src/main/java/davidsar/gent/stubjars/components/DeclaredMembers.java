@@ -0,0 +1,105 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars.components;
+
+import davidsar.gent.stubjars.classfile.ClassModel;
+import davidsar.gent.stubjars.classfile.FieldModel;
+import davidsar.gent.stubjars.classfile.MethodModel;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The members declared by a class, split and indexed once from its {@link ClassModel}, so that checking whether a
+ * class declares a member does not scan its members again. Like {@link Class#getDeclaredMethods()}, the methods
+ * leave out constructors and the static initializer. The lists handed out are unmodifiable.
+ */
+final class DeclaredMembers {
+    private final List<FieldModel> fields;
+    private final List<MethodModel> methods;
+    private final List<MethodModel> constructors;
+    private final Set<String> fieldNames;
+    private final Set<String> methodSignatures;
+    private final MethodModel noArgConstructor;
+
+    DeclaredMembers(@NotNull ClassModel classModel) {
+        fields = classModel.fields();
+
+        List<MethodModel> declaredMethods = new ArrayList<>(classModel.methods().size());
+        List<MethodModel> declaredConstructors = new ArrayList<>();
+        MethodModel found = null;
+        for (MethodModel method : classModel.methods()) {
+            if (method.isConstructor()) {
+                declaredConstructors.add(method);
+                if (found == null && method.descriptor().startsWith("()")) {
+                    found = method;
+                }
+            } else if (!method.isStaticInitializer()) {
+                declaredMethods.add(method);
+            }
+        }
+        methods = Collections.unmodifiableList(declaredMethods);
+        constructors = Collections.unmodifiableList(declaredConstructors);
+        noArgConstructor = found;
+
+        fieldNames = new HashSet<>(fields.size() * 4 / 3 + 1);
+        for (FieldModel field : fields) {
+            fieldNames.add(field.name());
+        }
+
+        methodSignatures = new HashSet<>(methods.size() * 4 / 3 + 1);
+        for (MethodModel method : methods) {
+            methodSignatures.add(MemberKey.parameterSignature(method));
+        }
+    }
+
+    @NotNull
+    List<FieldModel> fields() {
+        return fields;
+    }
+
+    @NotNull
+    List<MethodModel> methods() {
+        return methods;
+    }
+
+    @NotNull
+    List<MethodModel> constructors() {
+        return constructors;
+    }
+
+    boolean hasField(@NotNull String name) {
+        return fieldNames.contains(name);
+    }
+
+    /**
+     * Checks whether this class declares a method with the same name and parameter types as another method.
+     *
+     * @param method a method of any class
+     * @return {@code true} if this class declares a method with the same parameter signature
+     */
+    boolean hasMethod(@NotNull MethodModel method) {
+        return methodSignatures.contains(MemberKey.parameterSignature(method));
+    }
+
+    @Nullable
+    MethodModel noArgConstructor() {
+        return noArgConstructor;
+    }
+}
@@ -13,7 +13,17 @@
 
 package davidsar.gent.stubjars.components;
 
+import davidsar.gent.stubjars.ClassPath;
+import davidsar.gent.stubjars.MissingClassException;
 import davidsar.gent.stubjars.Utils;
+import davidsar.gent.stubjars.classfile.AccessFlags;
+import davidsar.gent.stubjars.classfile.ArrayTypeModel;
+import davidsar.gent.stubjars.classfile.ClassModel;
+import davidsar.gent.stubjars.classfile.ClassTypeModel;
+import davidsar.gent.stubjars.classfile.FieldModel;
+import davidsar.gent.stubjars.classfile.InnerClassModel;
+import davidsar.gent.stubjars.classfile.TypeModel;
+import davidsar.gent.stubjars.classfile.TypeParameterModel;
 import davidsar.gent.stubjars.components.expressions.AnnotationExpression;
 import davidsar.gent.stubjars.components.expressions.ClassHeaderExpression;
 import davidsar.gent.stubjars.components.expressions.CompileableExpression;
@@ -27,184 +37,245 @@ import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.lang.annotation.Annotation;
-import java.lang.annotation.Retention;
-import java.lang.annotation.RetentionPolicy;
-import java.lang.reflect.Method;
-import java.lang.reflect.Type;
-import java.net.URLClassLoader;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.function.Function;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-import static davidsar.gent.stubjars.components.writer.Constants.EMPTY_STRING;
-
-public class JarClass<T> extends JarModifiers implements CompileableExpression {
+public class JarClass extends JarModifiers implements CompileableExpression {
     private static final Logger log = LoggerFactory.getLogger(JarClass.class);
-    private static final Pattern classEntryPatternToBeStripped = Pattern.compile("\\.class$");
-    private static Map<String, JarClass<?>> classToJarClassMap;
+    private static final JarClassRegistry registry = JarClassRegistry.instance();
+    private static final int ACC_SUPER = 0x0020;
+    private static final String OBJECT_NAME = "java/lang/Object";
+    private static final String ENUM_NAME = "java/lang/Enum";
+    private static final ClassTypeModel ANNOTATION_TYPE = ClassTypeModel.of("java.lang.annotation.Annotation");
+    private static final ClassTypeModel RETENTION_TYPE = ClassTypeModel.of("java.lang.annotation.Retention");
+
+    private final ClassModel classModel;
+    private final ClassPath classPath;
+    private final int id;
+    private final int modifiers;
+    private volatile Map<MemberKey, JarConstructor> constructors;
+    private volatile Map<MemberKey, JarMethod> methods;
+    private volatile Map<String, JarClass> innerClasses;
+    private volatile DeclaredMembers declaredMembers;
+    private volatile Map<String, TypeModel> superclassTypeArguments;
+    private volatile SuperConstructorCall superConstructorCall;
+    private volatile TypeNameResolver.ClassNames names;
+
+    /**
+     * Represents a class for in StubJars, built from its class file without loading it. The instance is not
+     * shared through the {@link JarClassRegistry}; use {@link #forName(ClassPath, String)} for the canonical
+     * instance.
+     *
+     * @param classPath a {@link ClassPath} that has access to the given entry
+     * @param entryName a file path representative of request class with the full path
+     * @throws ClassNotFoundException if the given {@code classPath} doesn't have the class derived from the
+     *                                {@code entryName}
+     */
+    public JarClass(@NotNull ClassPath classPath, @NotNull String entryName) throws ClassNotFoundException {
+        this(findClassModel(classPath, TypeNameResolver.binaryNameOfEntry(entryName)), classPath, -1);
+    }
 
-    private Class<T> clazz;
+    JarClass(@NotNull ClassModel classModel, @NotNull ClassPath classPath, int id) {
+        this.classModel = classModel;
+        this.classPath = classPath;
+        this.id = id;
 
-    private final ClassLoader stubClassLoader;
-    private Map<String, JarConstructor> constructors;
-    private Map<String, JarMethod> methods;
-    private Map<String, JarClass<?>> innerClasses;
+        InnerClassModel nestingInfo = classModel.nestingInfo();
+        // Like Class#getModifiers(), member classes use the modifiers they are declared with in the source
+        int flags = nestingInfo != null ? nestingInfo.accessFlags() : classModel.accessFlags();
+        this.modifiers = flags & ~ACC_SUPER;
+    }
 
     /**
-     * Represents a {@link Class} for in StubJars.
+     * Returns the canonical {@link JarClass} of the class with the given name.
      *
-     * @param classLoader a {@link ClassLoader} that has access to the given entry
-     * @param entryName   a file path representative of request {@code Class} with the full path
-     * @throws ClassNotFoundException if the given {@code classLoader} doesn't have access to
-     *                                the {@code Class} derived from the {@code entryName}
+     * @param classPath a {@link ClassPath} that has access to the given entry
+     * @param entryName a file path representative of request class with the full path
+     * @return the {@code JarClass} shared through the {@link JarClassRegistry}
+     * @throws ClassNotFoundException if the given {@code classPath} doesn't have the class derived from the
+     *                                {@code entryName}
      */
-    public JarClass(@NotNull ClassLoader classLoader, @NotNull String entryName) throws ClassNotFoundException {
-        String convertedName = convertEntryNameToClassName(entryName);
-        //noinspection unchecked
-        clazz = (Class<T>) Class.forName(convertedName, false, classLoader);
-        log.debug("loading class: {}", clazz.getName());
-        stubClassLoader = Objects.requireNonNull(classLoader);
+    @NotNull
+    public static JarClass forName(@NotNull ClassPath classPath, @NotNull String entryName) throws ClassNotFoundException {
+        return registry.intern(findClassModel(classPath, TypeNameResolver.binaryNameOfEntry(entryName)), classPath);
     }
 
-    private JarClass(@NotNull Class<T> clazz, ClassLoader classLoader) {
-        this.clazz = clazz;
-        this.stubClassLoader = classLoader;
+    @NotNull
+    private static ClassModel findClassModel(@NotNull ClassPath classPath, @NotNull String name) throws ClassNotFoundException {
+        ClassModel classModel = classPath.find(name);
+        if (classModel == null) {
+            throw new ClassNotFoundException(name);
+        }
+
+        return classModel;
     }
 
-    public static void loadJarClassList(@NotNull List<JarClass<?>> list) {
-        TreeMap<String, JarClass<?>> map = new TreeMap<>();
-        for (JarClass<?> a : list) {
-            if (map.put(a.clazz.getName(), a) != null) {
+    /**
+     * Checks that the classes to be stubbed are distinct.
+     *
+     * @param list every class that StubJars will write
+     * @throws IllegalStateException if two of the classes have the same name
+     */
+    public static void loadJarClassList(@NotNull List<JarClass> list) {
+        Set<String> names = new HashSet<>(list.size() * 4 / 3 + 1);
+        for (JarClass a : list) {
+            if (!names.add(a.fullName())) {
                 throw new IllegalStateException("Duplicate key");
             }
         }
-
-        classToJarClassMap = Collections.synchronizedSortedMap(map);
     }
 
+    /**
+     * Returns the canonical {@link JarClass} of a class this one refers to, found on the same {@link ClassPath}.
+     *
+     * @param name the binary name of the class
+     * @return the {@code JarClass} shared through the {@link JarClassRegistry}
+     * @throws MissingClassException if the class is not on the class path
+     */
     @NotNull
-    static <T> JarClass<?> forClass(@NotNull Class<T> clazz, ClassLoader parentClassLoader) {
-        if (classToJarClassMap != null && classToJarClassMap.containsKey(clazz.getName())) {
-            return classToJarClassMap.get(clazz.getName());
-        }
-
-        return new JarClass<>(clazz, Objects.requireNonNull(parentClassLoader));
+    JarClass resolve(@NotNull String name) {
+        return registry.intern(name, classPath);
     }
 
+    /**
+     * Returns the declarations of this class as read from its class file.
+     *
+     * @return the class file declarations
+     */
     @NotNull
-    private static String convertEntryNameToClassName(@NotNull String entryName) {
-        Matcher matcher = classEntryPatternToBeStripped.matcher(entryName);
-        if (matcher.find()) {
-            entryName = matcher.replaceAll(EMPTY_STRING);
-        }
-        return entryName.replace('/', '.');
+    public ClassModel classModel() {
+        return classModel;
     }
 
-    public boolean isEnum() {
-        return clazz.isEnum();
+    @NotNull
+    public ClassPath classPath() {
+        return classPath;
     }
 
-    @NotNull
-    public Class<T> getClazz() {
-        return clazz;
+    public boolean isEnum() {
+        return classModel.isEnum();
     }
 
     public boolean isInnerClass() {
-        return clazz.getDeclaringClass() != null || clazz.isLocalClass() || clazz.isAnonymousClass();
+        return classModel.isNested();
     }
 
     @NotNull
     public String fullName() {
-        return clazz.getName();
+        return classModel.name();
     }
 
+    /**
+     * Returns the simple name of this class, as {@link Class#getSimpleName()} does.
+     *
+     * @return the simple name, or an empty string for an anonymous class
+     */
     @NotNull
     public String name() {
-        return clazz.getSimpleName();
-    }
+        InnerClassModel nestingInfo = classModel.nestingInfo();
+        if (nestingInfo != null) {
+            return nestingInfo.simpleName() == null ? "" : nestingInfo.simpleName();
+        }
 
-    static boolean hasSafeName(@NotNull Class<?> clazz) {
-        return !clazz.isSynthetic() && !clazz.isAnonymousClass();
+        String name = classModel.internalName();
+        return name.substring(name.lastIndexOf('/') + 1);
     }
 
-    static TypeExpression safeFullNameForClass(@NotNull Class<?> clazz, JarClass<?> against) {
-        if (!hasSafeName(clazz)) {
-            throw new IllegalArgumentException("Class does not have safe name.");
+    /**
+     * Checks whether a type can be referred to from Java source at all.
+     *
+     * @param type    an erased type
+     * @param against the class whose class path the type is resolved on
+     * @return {@code false} if the type is a synthetic or anonymous class
+     * @throws MissingClassException if the type is not on the class path
+     */
+    static boolean hasSafeName(@NotNull TypeModel type, @NotNull JarClass against) {
+        if (!(type instanceof ClassTypeModel)) {
+            return true;
         }
 
-        if (clazz.isArray()) {
-            return new JarType.ArrayType(clazz, against);
+        ClassTypeModel classType = (ClassTypeModel) type;
+        return classType.isPrimitive() || TypeNameResolver.hasSafeName(against.resolve(classType.name()));
+    }
+
+    static TypeExpression safeFullNameForClass(@NotNull TypeModel type, @NotNull JarClass against) {
+        if (type instanceof ArrayTypeModel) {
+            return new JarType.ArrayType((ArrayTypeModel) type, against);
         }
 
-        String rawName;
-        final Package againstPackage = against != null ? against.getClazz().getPackage() : null;
-        if (againstPackage != null && clazz.getPackage() != null && clazz.getDeclaringClass() == null
-            && clazz.getPackage().getName().equals(againstPackage.getName())) {
-            rawName = clazz.getSimpleName();
-        } else if (clazz.getPackage() != null && clazz.getPackage().getName().equals("java.lang")) {
-            rawName = clazz.getSimpleName();
-        } else {
-            rawName = clazz.getName();
+        ClassTypeModel classType = (ClassTypeModel) type;
+        if (classType.isPrimitive()) {
+            return Expressions.forType(classType, Expressions.fromString(classType.name()));
         }
 
-        String s = rawName.replaceAll("\\$\\d*", ".");
-        if (s.endsWith(".")) {
+        JarClass clazz = against.resolve(classType.name());
+        if (!TypeNameResolver.hasSafeName(clazz)) {
             throw new IllegalArgumentException("Class does not have safe name.");
         }
 
-        return Expressions.forType(clazz, Expressions.fromString(s));
+        String name = TypeNameResolver.sourceName(clazz, against);
+        return Expressions.forType(classType, Expressions.fromString(name));
     }
 
+    /**
+     * Returns the names this class is referred to by in source, working them out on first use.
+     *
+     * @return the names of this class
+     */
     @NotNull
-    public String packageName() {
-        return clazz.getPackage().getName();
-    }
-
-    @Nullable
-    Class<?> extendsClass() {
-        Class<?> superclass = clazz.getSuperclass();
-        return superclass == Object.class ? null : superclass;
+    TypeNameResolver.ClassNames names() {
+        TypeNameResolver.ClassNames classNames = names;
+        if (classNames == null) {
+            classNames = new TypeNameResolver.ClassNames(this);
+            names = classNames;
+        }
+        return classNames;
     }
 
     @NotNull
-    private Class<?>[] implementsInterfaces() {
-        return clazz.getInterfaces();
+    public String packageName() {
+        return classModel.packageName();
     }
 
-    @NotNull
-    private Type[] implementsGenericInterfaces() {
-        return clazz.getGenericInterfaces();
+    @Nullable
+    JarClass extendsClass() {
+        String superName = classModel.superName();
+        return superName == null || superName.equals(OBJECT_NAME) ? null : resolve(superName.replace('/', '.'));
     }
 
     public boolean isInterface() {
-        return clazz.isInterface();
+        return Modifier.isInterface(modifiers);
     }
 
     public boolean isAnnotation() {
-        return clazz.isAnnotation();
+        return classModel.isAnnotation();
+    }
+
+    boolean isSynthetic() {
+        return (modifiers & AccessFlags.ACC_SYNTHETIC) != 0;
     }
 
     @Override
     protected int getModifiers() {
-        return clazz.getModifiers();
+        return modifiers;
     }
 
-    private Map<String, JarField> fields() {
-        return Arrays.stream(clazz.getDeclaredFields())
+    private Map<MemberKey, JarField> fields() {
+        return declaredMembers().fields().stream()
             .map(field -> new JarField(this, field))
             .filter(field -> field.security() != SecurityModifier.PRIVATE)
-            .collect(Collectors.toMap(x -> x.compileToExpression().toString(), Function.identity(), (x, y) -> y, TreeMap::new));
+            .collect(Collectors.toMap(JarField::key, Function.identity(), (x, y) -> y, TreeMap::new));
     }
 
     /**
@@ -213,99 +284,141 @@ public class JarClass<T> extends JarModifiers implements CompileableExpression {
      *
      * @return the {@code Set} of inner classes
      */
-    public Map<String, JarClass<?>> innerClasses() {
+    public Map<String, JarClass> innerClasses() {
         if (innerClasses == null) {
-            innerClasses = Arrays.stream(clazz.getDeclaredClasses())
-                .filter(clazz -> !clazz.isLocalClass())
-                .filter(clazz -> !clazz.isAnonymousClass())
-                .map((Class<?> clazz1) -> forClass(clazz1, stubClassLoader)).collect(Collectors.toMap(x -> x.clazz.getName(), Function.identity(), (x, y) -> y, TreeMap::new));
+            Map<String, JarClass> memberClasses = new TreeMap<>();
+            for (InnerClassModel innerClass : classModel.innerClasses()) {
+                // Like Class#getDeclaredClasses(), only member classes; local and anonymous ones have no outer class
+                if (!classModel.internalName().equals(innerClass.outerName())) {
+                    continue;
+                }
+
+                String name = innerClass.innerName().replace('/', '.');
+                try {
+                    memberClasses.put(name, resolve(name));
+                } catch (MissingClassException e) {
+                    log.warn("Missing class definition for {}, nested in {}", name, fullName());
+                }
+            }
+            innerClasses = memberClasses;
         }
 
         return innerClasses;
     }
 
     @NotNull
-    private Map<String, JarMethod> methods() {
+    private Map<MemberKey, JarMethod> methods() {
         if (methods == null) {
-            methods = Arrays.stream(clazz.getDeclaredMethods())
+            methods = declaredMembers().methods().stream()
                 .map(method -> new JarMethod(this, method))
                 .filter(method -> method.security() != SecurityModifier.PRIVATE)
                 .filter(method -> !method.isSynthetic())
                 .filter(JarMethod::shouldIncludeStaticMethod)
-                .collect(Collectors.toMap(x -> x.compileToExpression().toString(), x -> x, (x, y) -> y,  TreeMap::new));
+                .collect(Collectors.toMap(JarMethod::key, Function.identity(), (x, y) -> y, TreeMap::new));
         }
         return methods;
     }
 
     @Override
     public boolean equals(Object o) {
-        return o instanceof JarClass && clazz.equals(((JarClass) o).clazz);
+        return o instanceof JarClass && fullName().equals(((JarClass) o).fullName());
     }
 
     @Override
     public int hashCode() {
-        return clazz.hashCode();
-    }
-
-    @NotNull Map<String, JarClass> allSuperClassesAndInterfaces() {
-        return allSuperClassesAndInterfaces(clazz).stream().map((Class<?> clazz1) -> forClass(clazz1, stubClassLoader)).collect(Collectors.toMap(x -> x.clazz.getName(), Function.identity(), (x, y) -> y, TreeMap::new));
+        return fullName().hashCode();
     }
 
+    /**
+     * Returns the index of the members this class declares, building it on first use.
+     *
+     * @return the declared members of this class
+     */
     @NotNull
-    private static Set<Class<?>> allSuperClassesAndInterfaces(@NotNull Class<?> clazz) {
-        Set<Class<?>> superClasses = allSuperClasses(clazz, new HashSet<>());
-        Set<Class<?>> interfaces = new HashSet<>();
-        Collections.addAll(interfaces, clazz.getInterfaces());
-        for (Class<?> superClazz : superClasses) {
-            Collections.addAll(interfaces, superClazz.getInterfaces());
+    DeclaredMembers declaredMembers() {
+        DeclaredMembers members = declaredMembers;
+        if (members == null) {
+            members = new DeclaredMembers(classModel);
+            declaredMembers = members;
         }
+        return members;
+    }
 
-        superClasses.addAll(interfaces);
-        return superClasses;
+    /**
+     * Returns the type argument the generic superclass of this class is given for one of its type parameters.
+     * The arguments are mapped on first use, and the superclass is only resolved if it is given any.
+     *
+     * @param typeParameter the name of a type parameter of the superclass
+     * @return the type argument, or {@code null} if the superclass is not generic or has no such parameter
+     */
+    @Nullable
+    TypeModel superclassTypeArgument(@NotNull String typeParameter) {
+        Map<String, TypeModel> byName = superclassTypeArguments;
+        if (byName == null) {
+            byName = mapSuperclassTypeArguments();
+            superclassTypeArguments = byName;
+        }
+        return byName.get(typeParameter);
     }
 
     @NotNull
-    private static Set<Class<?>> allSuperClasses(@NotNull Class<?> klazz, @NotNull Set<Class<?>> superClasses) {
-        Class<?> superClass = klazz.getSuperclass();
-        if (superClass == null) {
-            return superClasses;
+    private Map<String, TypeModel> mapSuperclassTypeArguments() {
+        TypeModel genericSuperclass = classModel.genericSuperclass();
+        if (isInterface() || !(genericSuperclass instanceof ClassTypeModel)
+            || !((ClassTypeModel) genericSuperclass).isParameterized()) {
+            return Collections.emptyMap();
         }
-        superClasses.add(superClass);
-        return allSuperClasses(superClass, superClasses);
-    }
 
-    boolean hasMethod(@NotNull Method method) {
-        try {
-            var ignored = clazz.getDeclaredMethod(method.getName(), method.getParameterTypes());
-            return true;
-        } catch (NoSuchMethodException e) {
-            return false;
+        JarClass superclass = extendsClass();
+        if (superclass == null) {
+            return Collections.emptyMap();
         }
+
+        List<TypeParameterModel> typeParameters = superclass.classModel().typeParameters();
+        List<TypeModel> typeArguments = ((ClassTypeModel) genericSuperclass).typeArguments();
+        int count = Math.min(typeParameters.size(), typeArguments.size());
+        Map<String, TypeModel> byName = new HashMap<>(count * 4 / 3 + 1);
+        for (int i = 0; i < count; i++) {
+            byName.putIfAbsent(typeParameters.get(i).name(), typeArguments.get(i));
+        }
+        return byName;
     }
 
+    /**
+     * Returns how the constructors of a subclass of this class call into it, choosing on first use.
+     *
+     * @return the super constructor call shared by every subclass of this class
+     */
     @NotNull
-    private Type extendsGenericClass() {
-        return clazz.getGenericSuperclass();
+    SuperConstructorCall superConstructorCall() {
+        SuperConstructorCall call = superConstructorCall;
+        if (call == null) {
+            call = SuperConstructorCall.of(this);
+            superConstructorCall = call;
+        }
+        return call;
     }
 
-    @NotNull Map<String, JarConstructor> constructors() {
-        //noinspection unchecked
+    @NotNull Map<MemberKey, JarConstructor> constructors() {
+        Map<MemberKey, JarConstructor> constructors = this.constructors;
         if (constructors == null) {
-            //noinspection unchecked
-            constructors = Arrays.stream(clazz.getDeclaredConstructors())
+            constructors = declaredMembers().constructors().stream()
                     .map(x -> new JarConstructor(this, x))
                     .filter(JarConstructor::shouldIncludeCotr)
-                    .collect(Collectors.toMap(x -> x.compileToExpression().toString(), Function.identity(), (x, y) -> y, TreeMap::new));
+                    .collect(Collectors.toMap(JarConstructor::key, Function.identity(), (x, y) -> y, TreeMap::new));
 
-            constructors.values().stream()
+            Map<MemberKey, JarConstructor> declaredConstructors = constructors;
+            constructors = constructors.values().stream()
                     .filter(JarConstructor::canRewriteConstructorParams).findAny()
-                    .ifPresent(jarConstructor -> constructors = Stream.concat(
-                        constructors.values().stream()
+                    .map(jarConstructor -> (Map<MemberKey, JarConstructor>) Stream.concat(
+                        declaredConstructors.values().stream()
                             .filter(constructor -> !(constructor.canRewriteConstructorParams()
                                 || constructor.parameters().length == 0)
                             ),
                             Stream.of(jarConstructor)
-                    ).collect(Collectors.toMap(x -> x.compileToExpression().toString(), Function.identity(), (x, y) -> y, TreeMap::new)));
+                    ).collect(Collectors.toMap(JarConstructor::key, Function.identity(), (x, y) -> y, TreeMap::new)))
+                    .orElse(declaredConstructors);
+            this.constructors = constructors;
         }
 
         return constructors;
@@ -315,9 +428,9 @@ public class JarClass<T> extends JarModifiers implements CompileableExpression {
     public Expression compileToExpression() {
         try {
             return compileClass(false, null);
-        } catch (NoClassDefFoundError ex) {
-            log.warn("Missing class definition for {}. ClassLoader was: {}", fullName(), ((URLClassLoader) stubClassLoader).getURLs());
-            log.warn("Error was: ", ex);
+        } catch (MissingClassException ex) {
+            log.warn("Missing class definition for {}: {} is not on the class path {}", fullName(), ex.className(),
+                classPath);
             return StringExpression.EMPTY;
         }
     }
@@ -339,45 +452,35 @@ public class JarClass<T> extends JarModifiers implements CompileableExpression {
         return new ClassExpression(methods, fields, constructors, innerClasses, clazzHeader);
     }
 
-    @SuppressWarnings("GetClassOnEnum")
     @NotNull
     private Expression handleEnumClass(Expression methods, Expression fields, Expression clazzHeader, Expression innerClasses) {
-        Expression enumMembers = StringExpression.EMPTY.asStatement();
-        Enum<?>[] invokedExpression = getEnumConstants();
-
-        if (invokedExpression != null) {
-            enumMembers = new EnumMembers(Arrays.stream(invokedExpression)
-                    .map(member -> JarClass.forClass(member.getClass(), getClassLoader()).compileClass(true, member.name()))
-                .toArray(Expression[]::new)).asStatement();
-        }
+        Expression enumMembers = new EnumMembers(enumConstants().stream()
+            .map(name -> {
+                // Constants with a body are instances of an anonymous subclass of the enum
+                String constantClass = classModel.enumConstantClass(name);
+                JarClass clazz = constantClass == null ? this : resolve(constantClass.replace('/', '.'));
+                return clazz.compileClass(true, name);
+            })
+            .toArray(Expression[]::new)).asStatement();
 
         return new ClassExpression(methods, enumMembers, fields, innerClasses, Expressions.of(clazzHeader));
     }
 
     private Expression compileFields(boolean isEnumConstant) {
-        return Expressions.indent(fields().values().stream()
+        List<JarField> fields = fields().values().stream()
             .filter(field -> !((isEnumConstant || isEnum()) && field.isStatic()) && !field.isSynthetic())
                 .filter(field -> {
-                    Class<?> superClazz = field.getClazz().extendsClass();
-                    if (superClazz != null) {
-                        try {
-                            var ignored = superClazz.getDeclaredField(field.name());
-                            return false;
-                        } catch (NoSuchFieldException ignored) {
-                            // If the field does not exist in the super class, we can safely include it
-                        }
-                    }
-
-                    return true;
+                    JarClass superClazz = field.getClazz().extendsClass();
+                    // If the field does not exist in the super class, we can safely include it
+                    return superClazz == null || !superClazz.declaredMembers().hasField(field.name());
                 })
-            .map(JarField::compileToExpression)
-            .toArray(Expression[]::new));
+            .collect(Collectors.toList());
+        return Expressions.indent(MemberCompiler.compile(fields, JarField::compileToExpression));
     }
 
     private Expression compileMethods(boolean isEnumConstant) {
-        return Expressions.indent(methods().values().stream()
-            .map(method -> method.compileToExpression(isEnumConstant))
-            .toArray(Expression[]::new));
+        return Expressions.indent(MemberCompiler.compile(new ArrayList<>(methods().values()),
+            method -> method.compileToExpression(isEnumConstant)));
     }
 
     @NotNull
@@ -387,9 +490,8 @@ public class JarClass<T> extends JarModifiers implements CompileableExpression {
             return StringExpression.EMPTY;
         }
 
-        return Expressions.indent(innerClasses.values().stream()
-            .map(JarClass::compileToExpression)
-            .toArray(Expression[]::new));
+        return Expressions.indent(MemberCompiler.compile(new ArrayList<>(innerClasses.values()),
+            JarClass::compileToExpression));
     }
 
     @NotNull
@@ -399,9 +501,8 @@ public class JarClass<T> extends JarModifiers implements CompileableExpression {
             return StringExpression.EMPTY;
         }
 
-        return Expressions.indent(constructors().values().stream()
-            .map(JarConstructor::compileToExpression)
-            .toArray(Expression[]::new));
+        return Expressions.indent(MemberCompiler.compile(new ArrayList<>(constructors().values()),
+            JarConstructor::compileToExpression));
     }
 
     @NotNull
@@ -416,14 +517,15 @@ public class JarClass<T> extends JarModifiers implements CompileableExpression {
     @NotNull
     public Expression compileHeaderImplements() {
         Expression implementsS = StringExpression.EMPTY;
-        if (implementsInterfaces().length > 0
+        int interfaceCount = classModel.interfaces().size();
+        if (interfaceCount > 0
             && !(isAnnotation()
-            && implementsInterfaces().length == 1)) {
-            implementsS = clazz.isInterface()
+            && interfaceCount == 1)) {
+            implementsS = isInterface()
                 ? Expressions.fromString("extends") : Expressions.fromString("implements");
             implementsS = Expressions.of(implementsS, StringExpression.SPACE,
-                Utils.arrayToListExpression(implementsGenericInterfaces(), x -> {
-                    if (x.equals(Annotation.class)) {
+                Utils.arrayToListExpression(classModel.genericInterfaces().toArray(new TypeModel[0]), x -> {
+                    if (x.equals(ANNOTATION_TYPE)) {
                         return null;
                     }
 
@@ -437,12 +539,12 @@ public class JarClass<T> extends JarModifiers implements CompileableExpression {
 
     @NotNull
     public Expression compileHeaderExtends() {
-        Class<?> extendsClazz = extendsClass();
-        if (extendsClazz != null && !extendsClazz.equals(Enum.class)) {
+        String superName = classModel.superName();
+        if (superName != null && !superName.equals(OBJECT_NAME) && !superName.equals(ENUM_NAME)) {
             return Expressions.of(
                 StringExpression.EXTENDS,
                 StringExpression.SPACE,
-                JarType.toExpression(extendsGenericClass(), this)
+                JarType.toExpression(classModel.genericSuperclass(), this)
             );
         } else {
             return StringExpression.EMPTY;
@@ -450,20 +552,20 @@ public class JarClass<T> extends JarModifiers implements CompileableExpression {
     }
 
     public Expression compileTypeParameters() {
-        return JarType.convertTypeParametersToExpression(getClazz().getTypeParameters(), this);
+        return JarType.convertTypeParametersToExpression(classModel.typeParameters(), this);
     }
 
     @NotNull
     public Expression compileHeaderAnnotation() {
         Expression annotationS;
-        if (isAnnotation() && getClazz().isAnnotationPresent(Retention.class)) {
-            RetentionPolicy retentionPolicy = getClazz().getAnnotation(Retention.class).value();
-            annotationS = new AnnotationExpression(this, Retention.class, retentionPolicy.name());
-            if (getClazz().isAnnotationPresent(Deprecated.class)) {
+        String retentionPolicy = classModel.retention();
+        if (isAnnotation() && retentionPolicy != null) {
+            annotationS = new AnnotationExpression(this, RETENTION_TYPE, retentionPolicy);
+            if (classModel.isDeprecated()) {
                 annotationS = Expressions.of(StringExpression.ANNOTATION_DEPRECATED, StringExpression.SPACE, annotationS);
             }
         } else {
-            if (getClazz().isAnnotationPresent(Deprecated.class)) {
+            if (classModel.isDeprecated()) {
                 annotationS = StringExpression.ANNOTATION_DEPRECATED;
             } else {
                 annotationS = StringExpression.EMPTY;
@@ -473,7 +575,7 @@ public class JarClass<T> extends JarModifiers implements CompileableExpression {
     }
 
     @NotNull
-    public static Expression typeString(@NotNull JarClass<?> clazz) {
+    public static Expression typeString(@NotNull JarClass clazz) {
         if (clazz.isAnnotation()) {
             return StringExpression.ANNOTATION_TYPE;
         } else if (clazz.isInterface()) {
@@ -485,30 +587,29 @@ public class JarClass<T> extends JarModifiers implements CompileableExpression {
         return StringExpression.CLASS;
     }
 
-    private <E extends Enum<?>> E[] getEnumConstants() {
-        if (!isEnum()) {
-            throw new IllegalArgumentException("Not an enum");
-        }
-
-        //noinspection unchecked
-        return JarClass.getEnumConstantsFor((Class<E>) this.clazz);
-    }
-
-    @Nullable
-    static <T extends Enum> T[] getEnumConstantsFor(@NotNull Class<T> clazz) {
-        try {
-            return clazz.getEnumConstants();
-        } catch (ExceptionInInitializerError | NoClassDefFoundError ex) {
-            log.warn("Failed to load enum \"{}\"; reason: access encountered initializer error {}",
-                clazz.getName(), (ex.getCause() == null ? ex : ex.getCause()).toString()
-            );
-
-            return null;
+    /**
+     * Returns the names of the constants of this enum, in the order they are declared.
+     *
+     * @return the names of the enum constants, empty if this is not an enum
+     */
+    @NotNull
+    List<String> enumConstants() {
+        List<String> constants = new ArrayList<>();
+        for (FieldModel field : classModel.fields()) {
+            if (field.isEnumConstant()) {
+                constants.add(field.name());
+            }
         }
+        return constants;
     }
 
-    public ClassLoader getClassLoader() {
-        return stubClassLoader;
+    /**
+     * Returns the ID given to this class by the {@link JarClassRegistry}.
+     *
+     * @return the dense ID of this class, or {@code -1} if this instance was created outside of the registry
+     */
+    public int id() {
+        return id;
     }
 
     private static class ClassExpression extends Expression {
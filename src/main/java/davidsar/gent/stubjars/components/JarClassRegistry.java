@@ -0,0 +1,169 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars.components;
+
+import davidsar.gent.stubjars.ClassPath;
+import davidsar.gent.stubjars.MissingClassException;
+import davidsar.gent.stubjars.classfile.ClassModel;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Holds the one canonical {@link JarClass} of every class seen during a run, keyed by its binary name.
+ * <p>
+ * Every class is interned exactly once and gets a dense {@code int} ID, in the order classes are first seen. The
+ * classes are kept in pages of that ID space, which are allocated as IDs reach them, so that a class can also be
+ * found by its ID. Lookups by name and by ID never lock.
+ * Interning is safe to call from any number of threads; the first time a class is seen, it briefly locks one bin
+ * of the map while the {@code JarClass} is created.
+ */
+public final class JarClassRegistry {
+    private static final JarClassRegistry INSTANCE = new JarClassRegistry();
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_COUNT = 1 << 16;
+
+    private final Map<String, JarClass> classes = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final AtomicReferenceArray<AtomicReferenceArray<JarClass>> pages = new AtomicReferenceArray<>(PAGE_COUNT);
+
+    JarClassRegistry() {
+    }
+
+    /**
+     * Returns the registry shared by every part of StubJars.
+     *
+     * @return the registry of this run
+     */
+    @NotNull
+    public static JarClassRegistry instance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the canonical {@link JarClass} of a class, creating it the first time the class is seen.
+     *
+     * @param classModel the declarations of the class
+     * @param classPath  the {@link ClassPath} used to resolve the classes this one refers to, if the class has not
+     *                   been seen yet
+     * @return the one {@code JarClass} of the class
+     */
+    @NotNull
+    public JarClass intern(@NotNull ClassModel classModel, @NotNull ClassPath classPath) {
+        JarClass jarClass = classes.get(classModel.name());
+        if (jarClass != null) {
+            return jarClass;
+        }
+
+        // computeIfAbsent holds the lock of the map bin while the class is created, which is cheap
+        return classes.computeIfAbsent(classModel.name(), key -> {
+            int id = reserveId();
+            JarClass created = new JarClass(classModel, classPath, id);
+            page(id).set(id & (PAGE_SIZE - 1), created);
+            return created;
+        });
+    }
+
+    /**
+     * Returns the canonical {@link JarClass} of the class with the given name, reading it from the class path the
+     * first time the class is seen.
+     *
+     * @param name      the binary name of the class
+     * @param classPath the {@link ClassPath} to find the class on
+     * @return the one {@code JarClass} of the class
+     * @throws MissingClassException if the class has not been seen and is not on the class path
+     */
+    @NotNull
+    public JarClass intern(@NotNull String name, @NotNull ClassPath classPath) {
+        JarClass jarClass = classes.get(name);
+        if (jarClass != null) {
+            return jarClass;
+        }
+
+        return intern(classPath.get(name), classPath);
+    }
+
+    /**
+     * Takes the next ID, failing without taking it if every ID is in use.
+     */
+    private int reserveId() {
+        int id;
+        do {
+            id = nextId.get();
+            if (id >= PAGE_COUNT * PAGE_SIZE) {
+                throw new IllegalStateException("Too many classes");
+            }
+        } while (!nextId.compareAndSet(id, id + 1));
+        return id;
+    }
+
+    /**
+     * Returns the canonical {@link JarClass} of a class, if the class has been seen.
+     *
+     * @param name the binary name of the class
+     * @return the {@code JarClass}, or {@code null} if the class was never interned
+     */
+    @Nullable
+    public JarClass get(@NotNull String name) {
+        return classes.get(name);
+    }
+
+    /**
+     * Returns the class with the given ID.
+     *
+     * @param id an ID handed out by this registry
+     * @return the {@code JarClass} with that ID
+     * @throws IndexOutOfBoundsException if no class has that ID
+     * @throws IllegalStateException     if the class with that ID is still being interned, or failed to be
+     */
+    @NotNull
+    public JarClass byId(int id) {
+        if (id < 0 || id >= nextId.get()) {
+            throw new IndexOutOfBoundsException("No class with ID " + id);
+        }
+
+        // An ID only escapes through its JarClass, which is stored before it is returned, so this is a race
+        // only for callers that guess IDs
+        JarClass jarClass = page(id).get(id & (PAGE_SIZE - 1));
+        if (jarClass == null) {
+            throw new IllegalStateException("The class with ID " + id + " is not interned yet");
+        }
+        return jarClass;
+    }
+
+    /**
+     * Returns the number of classes interned so far; every ID is below this number.
+     *
+     * @return the number of classes
+     */
+    public int size() {
+        return nextId.get();
+    }
+
+    @NotNull
+    private AtomicReferenceArray<JarClass> page(int id) {
+        int pageIndex = id >>> PAGE_BITS;
+        AtomicReferenceArray<JarClass> page = pages.get(pageIndex);
+        if (page == null) {
+            pages.compareAndSet(pageIndex, null, new AtomicReferenceArray<>(PAGE_SIZE));
+            page = pages.get(pageIndex);
+        }
+        return page;
+    }
+}
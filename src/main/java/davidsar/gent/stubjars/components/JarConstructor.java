@@ -14,37 +14,43 @@
 package davidsar.gent.stubjars.components;
 
 import davidsar.gent.stubjars.Utils;
+import davidsar.gent.stubjars.classfile.ClassTypeModel;
+import davidsar.gent.stubjars.classfile.InnerClassModel;
+import davidsar.gent.stubjars.classfile.MethodModel;
+import davidsar.gent.stubjars.classfile.TypeModel;
+import davidsar.gent.stubjars.classfile.TypeVariableModel;
 import davidsar.gent.stubjars.components.expressions.*;
-import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.lang.reflect.Constructor;
 import java.lang.reflect.Modifier;
-import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Type;
-import java.lang.reflect.TypeVariable;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
-public class JarConstructor<T> extends JarModifiers implements CompileableExpression {
-    private final JarClass<T> clazz;
-    private final Constructor<T> constructor;
+public class JarConstructor extends JarModifiers implements CompileableExpression {
+    private static final ClassTypeModel VOID_TYPE = ClassTypeModel.of("java.lang.Void");
+    private final JarClass clazz;
+    private final MethodModel constructor;
 
-    JarConstructor(@NotNull JarClass<T> clazz, @NotNull Constructor<T> constructor) {
+    JarConstructor(@NotNull JarClass clazz, @NotNull MethodModel constructor) {
         this.clazz = clazz;
         this.constructor = constructor;
     }
 
     @Override
     protected int getModifiers() {
-        return constructor.getModifiers();
+        return constructor.accessFlags() & 0xFFFF;
+    }
+
+    @NotNull
+    MemberKey key() {
+        return MemberKey.of(constructor);
     }
 
     boolean shouldIncludeCotr() {
-        for (Class<?> paramType : constructor.getParameterTypes()) {
-            if (!JarClass.hasSafeName(paramType)) {
+        for (TypeModel paramType : constructor.parameterTypes()) {
+            if (!JarClass.hasSafeName(paramType, clazz)) {
                 return false;
             }
         }
@@ -54,92 +60,29 @@ public class JarConstructor<T> extends JarModifiers implements CompileableExpres
 
     @NotNull
     Expression[] parameters() {
-        return Arrays.stream(constructor.getParameters())
-            .map(parameter -> Expressions.of(
-                JarType.toExpression(parameter.getParameterizedType(), clazz),
+        List<TypeModel> parameterTypes = constructor.parameterizedTypes();
+        Expression[] parameters = new Expression[parameterTypes.size()];
+        for (int i = 0; i < parameters.length; i++) {
+            parameters[i] = Expressions.of(
+                JarType.toExpression(parameterTypes.get(i), clazz),
                 StringExpression.SPACE,
-                Expressions.fromString(parameter.getName()))
-            ).toArray(Expression[]::new);
-    }
-
-    @Nullable
-    private static Type typeArgumentForClass(@NotNull TypeVariable typeVariable, @NotNull Class<?> clazz) {
-        if (clazz.getSuperclass() == null) {
-            return null;
-        }
-
-        Type superClassType = clazz.getGenericSuperclass();
-        if (!(superClassType instanceof ParameterizedType)) {
-            return null;
-        }
-
-        Class<?> superClass = clazz.getSuperclass();
-        ParameterizedType parameterizedSuperType = (ParameterizedType) superClassType;
-        Type[] actualTypeParameters = superClass.getTypeParameters();
-        Type[] actualTypeArguments = parameterizedSuperType.getActualTypeArguments();
-        for (int i = 0; i < actualTypeArguments.length; i++) {
-            if ((actualTypeParameters[i] instanceof TypeVariable)) {
-                TypeVariable testType = (TypeVariable) actualTypeParameters[i];
-                if (!testType.getName().equals(typeVariable.getName())) {
-                    continue;
-                }
-
-                return actualTypeArguments[i];
-            }
-
-            if (handleParameterizedType(typeVariable, actualTypeParameters[i])) {
-                return actualTypeArguments[i];
-            }
-        }
-
-        return null;
-    }
-
-    @Contract("_, null -> false")
-    private static boolean handleParameterizedType(@NotNull TypeVariable typeVariable, Type actualTypeParameter) {
-        if (!(actualTypeParameter instanceof ParameterizedType)) {
-            return false;
-        }
-
-        ParameterizedType testType = (ParameterizedType) actualTypeParameter;
-        for (Type testChildType : testType.getActualTypeArguments()) {
-            if (testChildType instanceof TypeVariable) {
-                TypeVariable tTestChildType = (TypeVariable) testChildType;
-                if (tTestChildType.getName().equals(typeVariable.getName())) {
-                    return true;
-                }
-            }
-
-            if (testChildType instanceof ParameterizedType) {
-                return handleParameterizedType(typeVariable, testChildType);
-            }
+                Expressions.fromString(constructor.parameterName(i)));
         }
-
-        return false;
+        return parameters;
     }
 
     private Expression name() {
-        return Expressions.fromString(constructor.getDeclaringClass().getSimpleName());
+        return Expressions.fromString(clazz.name());
     }
 
-    private static boolean hasDefaultConstructor(@NotNull Class<?> clazz) {
-        try {
-            Class<?> declaringClass = clazz.getDeclaringClass();
-            Constructor<?> declaredConstructor;
-            if (declaringClass == null || Modifier.isStatic(clazz.getModifiers())) {
-                declaredConstructor = clazz.getDeclaredConstructor();
-            } else {
-                return false;
-            }
-
-            return Modifier.isPublic(declaredConstructor.getModifiers());
-        } catch (NoSuchMethodException e) {
+    static boolean hasDefaultConstructor(@NotNull JarClass clazz) {
+        InnerClassModel nestingInfo = clazz.classModel().nestingInfo();
+        if (nestingInfo != null && nestingInfo.isMember() && !clazz.isStatic()) {
             return false;
         }
-    }
 
-    private Constructor<T> getConstructor() {
-        return constructor;
+        MethodModel declaredConstructor = clazz.declaredMembers().noArgConstructor();
+        return declaredConstructor != null && Modifier.isPublic(declaredConstructor.accessFlags());
     }
 
     @Override
@@ -169,53 +112,48 @@ public class JarConstructor<T> extends JarModifiers implements CompileableExpres
 
     @NotNull
     private Expression determineBody() {
-        Class<?> clazzSuperClass = clazz.extendsClass();
-        Expression stubMethod;// What should the contents of the constructor be?
-        if (clazzSuperClass == null || JarConstructor.hasDefaultConstructor(clazzSuperClass)) {
+        JarClass clazzSuperClass = clazz.extendsClass();
+        if (clazzSuperClass == null) {
             return Expressions.of(Expressions.emptyBlock(), StringExpression.NEW_LINE);
-        } else {
-            // We need to call some form of the default constructor, so we can compile code
-            JarConstructor<?>[] declaredConstructors;
-            JarClass<?> jarClass = JarClass.forClass(clazzSuperClass, clazz.getClassLoader());
-            declaredConstructors = jarClass.constructors().values().toArray(new JarConstructor<?>[0]);
-            if (declaredConstructors.length == 0) {
-                throw new UnsupportedOperationException("Cannot infer super cotr to write for " + clazz.fullName());
-            }
-
-            JarConstructor selectedCotr = null;
-            for (JarConstructor declaredCotr : declaredConstructors) {
-                if (declaredCotr.security() == SecurityModifier.PRIVATE) {
-                    continue;
-                }
-
-                selectedCotr = declaredCotr;
-                break;
-            }
+        }
 
-            if (selectedCotr == null || selectedCotr.canRewriteConstructorParams()) {
+        // What should the contents of the constructor be?
+        SuperConstructorCall superCall = clazzSuperClass.superConstructorCall();
+        final Expression stubMethod;
+        switch (superCall.kind()) {
+            case IMPLICIT:
+                return Expressions.of(Expressions.emptyBlock(), StringExpression.NEW_LINE);
+            case UNSUPPORTED:
+                throw new UnsupportedOperationException("Cannot infer super cotr to write for " + clazz.fullName());
+            case NO_ARGUMENTS:
                 stubMethod = Expressions.toMethodCall("super").asBlock();
-            } else {
-                Type[] genericParameterTypes = selectedCotr.getConstructor().getGenericParameterTypes();
+                break;
+            default:
                 stubMethod = Expressions.toMethodCall("super",
-                    Utils.arrayToListExpression(genericParameterTypes,
+                    Utils.arrayToListExpression(superCall.parameterTypes(),
                         paramType -> castedDefaultType(paramType, clazz)
                     )
                 ).asBlock();
-            }
+                break;
         }
 
         return Expressions.of(stubMethod, StringExpression.NEW_LINE);
     }
 
+    @NotNull
+    List<TypeModel> genericParameterTypes() {
+        return constructor.genericParameterTypes();
+    }
+
     boolean canRewriteConstructorParams() {
         return security() == SecurityModifier.PRIVATE;
     }
 
     @Nullable
-    static Expression castedDefaultType(Type paramType, JarClass<?> clazz) {
-        final Type correctType;
-        if (paramType instanceof TypeVariable) {
-            Type testCorrectType = typeArgumentForClass((TypeVariable) paramType, clazz.getClazz());
+    static Expression castedDefaultType(TypeModel paramType, JarClass clazz) {
+        final TypeModel correctType;
+        if (paramType instanceof TypeVariableModel) {
+            TypeModel testCorrectType = clazz.superclassTypeArgument(((TypeVariableModel) paramType).name());
             if (testCorrectType == null) {
                 correctType = paramType;
             } else {
@@ -225,12 +163,12 @@ public class JarConstructor<T> extends JarModifiers implements CompileableExpres
             correctType = paramType;
         }
 
-        if (correctType.equals(Void.class)) {
+        if (correctType.equals(VOID_TYPE)) {
             return Expressions.fromString("null");
         }
 
         return Expressions.toCast(JarType.toExpression(correctType, clazz, true, type -> {
-            Type obj = typeArgumentForClass(type, clazz.getClazz());
+            TypeModel obj = clazz.superclassTypeArgument(type.name());
             return JarType.toString(obj != null ? obj : type, clazz);
         }), Value.defaultValueForType(correctType, clazz));
     }
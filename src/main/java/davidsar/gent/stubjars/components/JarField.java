@@ -13,38 +13,41 @@
 
 package davidsar.gent.stubjars.components;
 
+import davidsar.gent.stubjars.classfile.ClassTypeModel;
+import davidsar.gent.stubjars.classfile.FieldModel;
+import davidsar.gent.stubjars.classfile.TypeModel;
 import davidsar.gent.stubjars.components.expressions.CompileableExpression;
 import davidsar.gent.stubjars.components.expressions.Expression;
 import davidsar.gent.stubjars.components.expressions.Expressions;
 import davidsar.gent.stubjars.components.expressions.SecurityModifierExpression;
 import davidsar.gent.stubjars.components.expressions.StringExpression;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import java.lang.reflect.Field;
-import java.lang.reflect.Type;
+import org.jetbrains.annotations.NotNull;
 
 public class JarField extends JarModifiers implements CompileableExpression {
-    private static final Logger log = LoggerFactory.getLogger(JarClass.class);
     private final JarClass jarClass;
-    private final Field field;
+    private final FieldModel field;
 
-    JarField(JarClass<?> clazz, Field field) {
+    JarField(JarClass clazz, FieldModel field) {
         this.jarClass = clazz;
         this.field = field;
     }
 
     @Override
     protected int getModifiers() {
-        return field.getModifiers();
+        return field.accessFlags() & 0xFFFF;
     }
 
     String name() {
-        return field.getName();
+        return field.name();
+    }
+
+    @NotNull
+    MemberKey key() {
+        return MemberKey.of(field);
     }
 
-    private Type genericReturnType() {
-        return field.getGenericType();
+    private TypeModel genericReturnType() {
+        return field.genericType();
     }
 
     @Override
@@ -70,25 +73,17 @@ public class JarField extends JarModifiers implements CompileableExpression {
 
     private Expression determineValueOfField() {
         if (isStatic() && !jarClass.isInnerClass()) {
-            try {
-                Class<?> expectedType = field.getType();
-                if (expectedType.isAssignableFrom(float.class) || expectedType.isAssignableFrom(Float.class) || expectedType.isAssignableFrom(double.class) || expectedType.isAssignableFrom(Double.class) || expectedType.isAssignableFrom(byte.class) || expectedType.isAssignableFrom(Byte.class) || expectedType.isAssignableFrom(short.class) || expectedType.isAssignableFrom(Short.class) || expectedType.isAssignableFrom(boolean.class) || expectedType.isAssignableFrom(Boolean.class) || expectedType.isAssignableFrom(long.class) || expectedType.isAssignableFrom(Long.class) || expectedType.isAssignableFrom(int.class) || expectedType.isAssignableFrom(Integer.class) || expectedType.isAssignableFrom(String.class)) {
-                    field.setAccessible(true);
-                    final Object o = field.get(null);
-                    return Expressions.fromString(Value.reduceValueToString(expectedType, o));
-                }
-            } catch (IllegalAccessException | UnsatisfiedLinkError | NoClassDefFoundError |
-                     ExceptionInInitializerError e) {
-                log.warn("Could not determine the value of the static field \"{}\" from \"{}\". Reason: {}", name(), getClazz().fullName(), e.getMessage());
-            } catch (NullPointerException e) {
-                log.warn("Could not determine the value of the static field \"{}\" from \"{}\". Reason: Static field is instance field?", name(), getClazz().name());
+            // Compile-time constants are in the class file; any other value would need the class to be initialized
+            Object constant = field.constantValue();
+            if (constant != null && !field.type().equals(ClassTypeModel.CHAR)) {
+                return Expressions.fromString(Value.reduceValueToString(constant));
             }
         }
 
         return Value.defaultValueForType(genericReturnType(), getClazz());
     }
 
-    JarClass<?> getClazz() {
+    JarClass getClazz() {
         return jarClass;
     }
 
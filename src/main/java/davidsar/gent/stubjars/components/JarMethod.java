@@ -13,41 +13,44 @@
 
 package davidsar.gent.stubjars.components;
 
+import davidsar.gent.stubjars.classfile.ArrayTypeModel;
+import davidsar.gent.stubjars.classfile.ClassTypeModel;
+import davidsar.gent.stubjars.classfile.InnerClassModel;
+import davidsar.gent.stubjars.classfile.MethodModel;
+import davidsar.gent.stubjars.classfile.TypeModel;
+import davidsar.gent.stubjars.classfile.TypeParameterModel;
 import davidsar.gent.stubjars.components.expressions.CompileableExpression;
 import davidsar.gent.stubjars.components.expressions.Expression;
 import davidsar.gent.stubjars.components.expressions.Expressions;
 import davidsar.gent.stubjars.components.expressions.MethodDeclarationExpression;
 import davidsar.gent.stubjars.components.expressions.StringExpression;
 import org.jetbrains.annotations.NotNull;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import java.lang.reflect.AnnotatedElement;
-import java.lang.reflect.GenericArrayType;
-import java.lang.reflect.Method;
-import java.lang.reflect.Parameter;
-import java.lang.reflect.Type;
-import java.lang.reflect.TypeVariable;
-import java.util.Arrays;
-import java.util.Set;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
 
 public class JarMethod extends JarModifiers implements CompileableExpression {
-    private final JarClass<?> parentClazz;
-    private final Method method;
+    private final JarClass parentClazz;
+    private final MethodModel method;
     private Expression[] cachedParameters;
 
-    JarMethod(@NotNull JarClass<?> parentClazz, @NotNull Method method) {
+    JarMethod(@NotNull JarClass parentClazz, @NotNull MethodModel method) {
         this.parentClazz = parentClazz;
         this.method = method;
     }
 
     @Override
     protected int getModifiers() {
-        return method.getModifiers();
+        return method.accessFlags() & 0xFFFF;
+    }
+
+    @NotNull
+    MemberKey key() {
+        return MemberKey.of(method);
     }
 
     public String name() {
-        return method.getName();
+        return method.name();
     }
 
     @NotNull
@@ -55,27 +58,18 @@ public class JarMethod extends JarModifiers implements CompileableExpression {
         if (cachedParameters != null) {
             return cachedParameters;
         }
-        Parameter[] parameters = method.getParameters();
-        Expression[] stringifiedParameters = Arrays.stream(parameters)
-            .map(parameter -> Expressions.of(JarType.toExpression(
-                parameter.getParameterizedType(), getParentClazz()), StringExpression.SPACE, Expressions.fromString(parameter.getName()))
-            ).toArray(Expression[]::new);
-
-        if (method.isVarArgs()) {
-            Parameter varArgsParameter = parameters[parameters.length - 1];
-            Type parameterizedType = varArgsParameter.getParameterizedType();
-            if (JarType.isArray(parameterizedType)) {
-                if (parameterizedType instanceof GenericArrayType) {
-                    stringifiedParameters[parameters.length - 1] =
-                        Expressions.of(JarType.toExpression(
-                            ((GenericArrayType) parameterizedType).getGenericComponentType(), getParentClazz()
-                        ), StringExpression.VARARGS, StringExpression.SPACE, Expressions.fromString(varArgsParameter.getName()));
-                } else if (parameterizedType instanceof Class) {
-                    stringifiedParameters[parameters.length - 1] =
-                        Expressions.of(JarType.toExpression(((Class) parameterizedType).getComponentType(), getParentClazz()
-                        ), StringExpression.VARARGS, StringExpression.SPACE, Expressions.fromString(varArgsParameter.getName()));
-                }
-            }
+        List<TypeModel> parameterTypes = method.parameterizedTypes();
+        Expression[] stringifiedParameters = new Expression[parameterTypes.size()];
+        for (int i = 0; i < stringifiedParameters.length; i++) {
+            stringifiedParameters[i] = Expressions.of(JarType.toExpression(parameterTypes.get(i), getParentClazz()),
+                StringExpression.SPACE, Expressions.fromString(method.parameterName(i)));
+        }
+
+        int last = stringifiedParameters.length - 1;
+        if (method.isVarArgs() && last >= 0 && parameterTypes.get(last) instanceof ArrayTypeModel) {
+            TypeModel componentType = ((ArrayTypeModel) parameterTypes.get(last)).componentType();
+            stringifiedParameters[last] = Expressions.of(JarType.toExpression(componentType, getParentClazz()),
+                StringExpression.VARARGS, StringExpression.SPACE, Expressions.fromString(method.parameterName(last)));
         }
 
         cachedParameters = stringifiedParameters;
@@ -91,8 +85,8 @@ public class JarMethod extends JarModifiers implements CompileableExpression {
 
         // What should the method body be?
         final Expression stubMethod;
-        final Type returnType = genericReturnType();
-        if (returnType.equals(void.class)) {
+        final TypeModel returnType = genericReturnType();
+        if (returnType.equals(ClassTypeModel.VOID)) {
             stubMethod = Expressions.emptyBlock();
         } else {
             stubMethod = Expressions
@@ -104,12 +98,12 @@ public class JarMethod extends JarModifiers implements CompileableExpression {
                 ).asStatement());
         }
 
-        if (getParentClazz().isAnnotation() && hasDefaultValue()) {
+        TypeModel defaultValueType = method.defaultValueType();
+        if (getParentClazz().isAnnotation() && defaultValueType != null) {
             Expression methodBody = Expressions.of(
                 Expressions.toSpaceAfter("default"),
                 Expressions.forType(
-                    defaultValue().getClass(), Value.defaultValueForType(defaultValue().getClass(),
-                        getParentClazz(), true)
+                    defaultValueType, Value.defaultValueForType(defaultValueType, getParentClazz(), true)
                 ),
                 StringExpression.SEMICOLON
             );
@@ -137,18 +131,27 @@ public class JarMethod extends JarModifiers implements CompileableExpression {
             return false;
         }
 
-        Class<?> declaringClass = getParentClazz().getClazz().getDeclaringClass();
+        String declaringClass = declaringClassName();
         if (declaringClass == null) {
             return true;
         }
 
-        try {
-            var ignored = declaringClass.getDeclaredMethod(name(), parameterTypes());
-            return false;
-        } catch (NoSuchMethodException ignored) {
-            // log.debug("method \"{}\" does not exist on enum \"{}\"", name(), parentClazz.name());
+        return !getParentClazz().resolve(declaringClass).declaredMembers().hasMethod(method);
+    }
+
+    /**
+     * Returns the class the parent class is a member of, as {@link Class#getDeclaringClass()} does.
+     *
+     * @return the binary name of the declaring class, or {@code null} if the parent class is not a member class
+     */
+    @Nullable
+    private String declaringClassName() {
+        InnerClassModel nestingInfo = getParentClazz().classModel().nestingInfo();
+        if (nestingInfo == null || !nestingInfo.isMember()) {
+            return null;
         }
-        return true;
+
+        return nestingInfo.outerName().replace('/', '.');
     }
 
     boolean isSynthetic() {
@@ -170,41 +173,33 @@ public class JarMethod extends JarModifiers implements CompileableExpression {
     }
 
     private boolean shouldIncludeMethod() {
-        for (Class<?> paramType : method.getParameterTypes()) {
-            if (!JarClass.hasSafeName(paramType)) {
+        for (TypeModel paramType : method.parameterTypes()) {
+            if (!JarClass.hasSafeName(paramType, getParentClazz())) {
                 return false;
             }
         }
 
-        return JarClass.hasSafeName(method.getReturnType());
-    }
-
-    public Type genericReturnType() {
-        return method.getGenericReturnType();
+        return JarClass.hasSafeName(method.returnType(), getParentClazz());
     }
 
-    public TypeVariable<Method>[] typeParameters() {
-        return method.getTypeParameters();
+    public TypeModel genericReturnType() {
+        return method.genericReturnType();
     }
 
-    private Class<?>[] parameterTypes() {
-        return method.getParameterTypes();
+    public List<TypeParameterModel> typeParameters() {
+        return method.typeParameters();
     }
 
-    private boolean hasDefaultValue() {
-        return defaultValue() != null;
+    public boolean isDeprecated() {
+        return method.isDeprecated();
     }
 
-    private Object defaultValue() {
-        return method.getDefaultValue();
-    }
-
-    public Type[] throwsTypes() {
-        return method.getGenericExceptionTypes();
+    public TypeModel[] throwsTypes() {
+        return method.genericExceptionTypes().toArray(new TypeModel[0]);
     }
 
     public boolean requiresThrowsSignature() {
-        return throwsTypes().length > 0;
+        return !method.genericExceptionTypes().isEmpty();
     }
 
     @Override
@@ -216,11 +211,7 @@ public class JarMethod extends JarModifiers implements CompileableExpression {
         return buildMethod(isEnumField);
     }
 
-    public JarClass<?> getParentClazz() {
+    public JarClass getParentClazz() {
         return parentClazz;
     }
-
-    public AnnotatedElement method() {
-        return method;
-    }
 }
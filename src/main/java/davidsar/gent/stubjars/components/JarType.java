@@ -14,6 +14,12 @@
 package davidsar.gent.stubjars.components;
 
 import davidsar.gent.stubjars.Utils;
+import davidsar.gent.stubjars.classfile.ArrayTypeModel;
+import davidsar.gent.stubjars.classfile.ClassTypeModel;
+import davidsar.gent.stubjars.classfile.TypeModel;
+import davidsar.gent.stubjars.classfile.TypeParameterModel;
+import davidsar.gent.stubjars.classfile.TypeVariableModel;
+import davidsar.gent.stubjars.classfile.WildcardTypeModel;
 import davidsar.gent.stubjars.components.expressions.Expression;
 import davidsar.gent.stubjars.components.expressions.Expressions;
 import davidsar.gent.stubjars.components.expressions.StringExpression;
@@ -22,38 +28,29 @@ import davidsar.gent.stubjars.components.writer.Constants;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.lang.reflect.GenericArrayType;
-import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Type;
-import java.lang.reflect.TypeVariable;
-import java.lang.reflect.WildcardType;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 import java.util.function.Function;
 
 public class JarType {
-    private final Type type;
-
-    public JarType(@NotNull Type type) {
-        this.type = type;
+    private JarType() {
     }
 
-    public static Expression convertTypeParametersToExpression(TypeVariable<?>[] typeParameters, JarClass<?> against) {
-        if (typeParameters.length == 0) {
+    public static Expression convertTypeParametersToExpression(List<TypeParameterModel> typeParameters, JarClass against) {
+        if (typeParameters.isEmpty()) {
             return StringExpression.SPACE;
         }
 
-        Expression typeParams = Utils.arrayToListExpression(typeParameters, typeParam -> {
-            if (typeParam.getBounds()[0] == Object.class) {
-                return Expressions.fromString(typeParam.getName());
+        Expression typeParams = Utils.arrayToListExpression(typeParameters.toArray(new TypeParameterModel[0]), typeParam -> {
+            if (typeParam.bounds().get(0).equals(ClassTypeModel.OBJECT)) {
+                return Expressions.fromString(typeParam.name());
             } else {
                 return Expressions.of(
-                    Expressions.fromString(typeParam.getName()),
+                    Expressions.fromString(typeParam.name()),
                     StringExpression.SPACE,
                     StringExpression.EXTENDS,
                     StringExpression.SPACE,
-                    JarType.toExpression(typeParam.getBounds()[0], against));
+                    JarType.toExpression(typeParam.bounds().get(0), against));
             }
         });
         return Expressions.of(
@@ -64,53 +61,58 @@ public class JarType {
     }
 
     @NotNull
-    @Override
-    public String toString() {
-        return toString(type, null);
-    }
-
-    @NotNull
-    static String toString(@NotNull Type type, JarClass<?> against) {
+    static String toString(@NotNull TypeModel type, @NotNull JarClass against) {
         return toExpression(type, against, false, null).toString();
     }
 
     @NotNull
-    public static String toString(@NotNull Type type, @NotNull JarClass<?> against, boolean keepSimple, @Nullable Function<TypeVariable, String> resolver) {
+    public static String toString(@NotNull TypeModel type, @NotNull JarClass against, boolean keepSimple, @Nullable Function<TypeVariableModel, String> resolver) {
         return toExpression(type, against, keepSimple, resolver).toString();
     }
 
-    public static TypeExpression toExpression(@NotNull Type type, JarClass<?> against) {
+    public static TypeExpression toExpression(@NotNull TypeModel type, @NotNull JarClass against) {
         return toExpression(type, against, false, null);
     }
 
-    public static TypeExpression toExpression(@NotNull Type type, JarClass<?> against, boolean keepSimple, @Nullable Function<TypeVariable, String> resolver) {
-        if (type instanceof Class) {
-            return JarClass.safeFullNameForClass((Class<?>) type, against);
+    public static TypeExpression toExpression(@NotNull TypeModel type, @NotNull JarClass against, boolean keepSimple, @Nullable Function<TypeVariableModel, String> resolver) {
+        if (resolver != null) {
+            return buildExpression(type, against, keepSimple, resolver);
         }
 
-        if (type instanceof ParameterizedType) {
-            return parameterizedTypeToExpression((ParameterizedType) type, against, keepSimple);
+        // Without a resolver, the expression only depends on the type and on the package it is written into
+        return TypeExpressionCache.instance().get(type, against.packageName(), keepSimple,
+            () -> buildExpression(type, against, keepSimple, null));
+    }
+
+    @NotNull
+    private static TypeExpression buildExpression(@NotNull TypeModel type, @NotNull JarClass against, boolean keepSimple, @Nullable Function<TypeVariableModel, String> resolver) {
+        if (type.isClass()) {
+            return JarClass.safeFullNameForClass(type, against);
+        }
+
+        if (type instanceof ClassTypeModel) {
+            return parameterizedTypeToExpression((ClassTypeModel) type, against, keepSimple);
         }
 
-        if (type instanceof TypeVariable) {
-            return typeVariableToExpression(type, resolver);
+        if (type instanceof TypeVariableModel) {
+            return typeVariableToExpression((TypeVariableModel) type, resolver);
         }
 
-        if (type instanceof GenericArrayType) {
-            return genericArrayTypeToExpression(type, against, keepSimple, resolver);
+        if (type instanceof ArrayTypeModel) {
+            return genericArrayTypeToExpression((ArrayTypeModel) type, against, keepSimple, resolver);
         }
 
-        if (type instanceof WildcardType) {
-            return wildcardTypeToExpression((WildcardType) type, against, keepSimple, resolver);
+        if (type instanceof WildcardTypeModel) {
+            return wildcardTypeToExpression((WildcardTypeModel) type, against, keepSimple, resolver);
         }
 
         throw new UnsupportedOperationException(type.getClass().getName());
     }
 
     @NotNull
-    private static TypeExpression parameterizedTypeToExpression(@NotNull ParameterizedType type, JarClass<?> against, boolean keepSimple) {
+    private static TypeExpression parameterizedTypeToExpression(@NotNull ClassTypeModel type, @NotNull JarClass against, boolean keepSimple) {
         TypeExpression ownerTypeExpression;
-        if (type.getOwnerType() != null) {
+        if (type.ownerType() != null) {
             ownerTypeExpression = handleOwnerTypeOfParameterizedType(type, against);
         } else {
             ownerTypeExpression = handleRawTypeOfParameterizedType(type, against);
@@ -125,29 +127,18 @@ public class JarType {
         }
     }
 
-    private static TypeExpression handleRawTypeOfParameterizedType(@NotNull ParameterizedType type, JarClass<?> against) {
-        return Expressions.forType(type.getRawType(),
-            JarClass.safeFullNameForClass((Class<?>) type.getRawType(), against)
-        );
+    private static TypeExpression handleRawTypeOfParameterizedType(@NotNull ClassTypeModel type, @NotNull JarClass against) {
+        return Expressions.forType(type.erasure(), JarClass.safeFullNameForClass(type.erasure(), against));
     }
 
     @Nullable
-    private static Expression handleTypeArgumentsOfParameterizedType(@NotNull ParameterizedType type, JarClass<?> against, boolean keepSimple) {
-        Type[] actualTypeArguments = type.getActualTypeArguments();
+    private static Expression handleTypeArgumentsOfParameterizedType(@NotNull ClassTypeModel type, @NotNull JarClass against, boolean keepSimple) {
+        List<TypeModel> actualTypeArguments = type.typeArguments();
         Expression typeArgumentExpression = null;
-        if (!keepSimple && (actualTypeArguments != null && actualTypeArguments.length > 0)) {
+        if (!keepSimple && !actualTypeArguments.isEmpty()) {
             typeArgumentExpression = Expressions.of(
                 StringExpression.LESS_THAN,
-                Expressions.makeListFrom(Arrays.stream(actualTypeArguments).map(typeArg -> {
-                    if (typeArg instanceof Class
-                        || typeArg instanceof ParameterizedType
-                        || typeArg instanceof TypeVariable
-                        || typeArg instanceof GenericArrayType
-                        || typeArg instanceof WildcardType) {
-                        return toExpression(typeArg, against);
-                    }
-                    throw new UnsupportedOperationException(typeArg.getClass().getName());
-                })),
+                Expressions.makeListFrom(actualTypeArguments.stream().map(typeArg -> toExpression(typeArg, against))),
                 StringExpression.GREATER_THAN
             );
         }
@@ -155,68 +146,52 @@ public class JarType {
     }
 
     @NotNull
-    private static TypeExpression handleOwnerTypeOfParameterizedType(@NotNull ParameterizedType type, JarClass<?> against) {
-        TypeExpression ownerTypeExpression;
-        if (type.getOwnerType() instanceof Class) {
-            ownerTypeExpression = handleRawTypeOfParameterizedType(type, against);
-        } else if (type.getOwnerType() instanceof ParameterizedType) {
-            Class<?> rawTypeOfOwner = (Class<?>) ((ParameterizedType) type.getOwnerType()).getRawType();
-            ownerTypeExpression = Expressions.forType(rawTypeOfOwner, Expressions.of(
-                toExpression(type.getOwnerType(), against),
-                StringExpression.PERIOD,
-                Expressions.forType(type.getRawType(), Expressions.fromString(
-                    ((Class<?>) type.getRawType()).getName()
-                        .replace(rawTypeOfOwner.getName() + "$", Constants.EMPTY_STRING))
-                )
-            ));
-        } else {
-            throw new UnsupportedOperationException(type.getRawType().getTypeName());
-        }
-
-        return ownerTypeExpression;
+    private static TypeExpression handleOwnerTypeOfParameterizedType(@NotNull ClassTypeModel type, @NotNull JarClass against) {
+        ClassTypeModel ownerType = type.ownerType();
+        ClassTypeModel rawTypeOfOwner = ownerType.erasure();
+        return Expressions.forType(rawTypeOfOwner, Expressions.of(
+            toExpression(ownerType, against),
+            StringExpression.PERIOD,
+            Expressions.forType(type.erasure(), Expressions.fromString(
+                type.name().replace(rawTypeOfOwner.name() + "$", Constants.EMPTY_STRING))
+            )
+        ));
     }
 
     @NotNull
-    private static TypeExpression typeVariableToExpression(@NotNull Type type, @Nullable Function<TypeVariable, String> resolver) {
-        TypeVariable tType = (TypeVariable) type;
+    private static TypeExpression typeVariableToExpression(@NotNull TypeVariableModel type, @Nullable Function<TypeVariableModel, String> resolver) {
         if (resolver == null) {
-            return Expressions.forType(type, Expressions.fromString(tType.getName()));
+            return Expressions.forType(type, Expressions.fromString(type.name()));
         }
 
-        return Expressions.forType(tType, Expressions.fromString(resolver.apply(tType)));
+        return Expressions.forType(type, Expressions.fromString(resolver.apply(type)));
     }
 
     @NotNull
-    private static TypeExpression genericArrayTypeToExpression(@NotNull Type type, JarClass<?> against, boolean keepSimple, @Nullable Function<TypeVariable, String> resolver) {
+    private static TypeExpression genericArrayTypeToExpression(@NotNull ArrayTypeModel type, @NotNull JarClass against, boolean keepSimple, @Nullable Function<TypeVariableModel, String> resolver) {
         return Expressions.forType(type,
             Expressions.of(
-                toExpression(((GenericArrayType) type).getGenericComponentType(), against, keepSimple, resolver),
+                toExpression(type.componentType(), against, keepSimple, resolver),
                 Expressions.fromString("[]")
             )
         );
     }
 
     @NotNull
-    private static TypeExpression wildcardTypeToExpression(@NotNull WildcardType type, JarClass<?> against, boolean keepSimple, @Nullable Function<TypeVariable, String> resolver) {
-        if (type.getLowerBounds() != null && type.getLowerBounds().length > 0) {
-            return new WildcardSuperType(type, toExpression(type.getLowerBounds()[0], against, keepSimple, resolver));
-        } else if (type.getUpperBounds()[0] == Object.class) {
+    private static TypeExpression wildcardTypeToExpression(@NotNull WildcardTypeModel type, @NotNull JarClass against, boolean keepSimple, @Nullable Function<TypeVariableModel, String> resolver) {
+        if (type.lowerBound() != null) {
+            return new WildcardSuperType(type, toExpression(type.lowerBound(), against, keepSimple, resolver));
+        } else if (type.upperBound().equals(ClassTypeModel.OBJECT)) {
             return new WildcardTypeExpression();
         } else {
-            return new WildcardExtendsType(type, toExpression(type.getUpperBounds()[0], against, keepSimple, resolver));
+            return new WildcardExtendsType(type, toExpression(type.upperBound(), against, keepSimple, resolver));
         }
     }
 
-
-    static boolean isArray(Type parameterizedType) {
-        return parameterizedType instanceof GenericArrayType
-            || (parameterizedType instanceof Class && ((Class) parameterizedType).isArray());
-    }
-
     private static class WildcardBoundedType extends TypeExpression {
         protected List<Expression> children;
 
-        WildcardBoundedType(Type type, Expression typeExpression, TypeExpression boundingType) {
+        WildcardBoundedType(TypeModel type, Expression typeExpression, TypeExpression boundingType) {
             super(type, Expressions.of(
                 StringExpression.QUESTION_MARK,
                 StringExpression.SPACE,
@@ -244,33 +219,33 @@ public class JarType {
     }
 
     private static class WildcardSuperType extends WildcardBoundedType {
-        private WildcardSuperType(Type type, TypeExpression boundingType) {
+        private WildcardSuperType(TypeModel type, TypeExpression boundingType) {
             super(type, StringExpression.SUPER, boundingType);
         }
     }
 
     private static class WildcardExtendsType extends WildcardBoundedType {
-        private WildcardExtendsType(Type type, @NotNull TypeExpression expression) {
+        private WildcardExtendsType(TypeModel type, @NotNull TypeExpression expression) {
             super(type, StringExpression.EXTENDS, expression);
         }
     }
 
     private static class ParameterizedTypeExpression extends TypeExpression {
-        private ParameterizedTypeExpression(@NotNull Type type, TypeExpression ownerTypeExpression, Expression typeArgumentExpression) {
+        private ParameterizedTypeExpression(@NotNull TypeModel type, TypeExpression ownerTypeExpression, Expression typeArgumentExpression) {
             super(type, Expressions.of(ownerTypeExpression, typeArgumentExpression));
         }
     }
 
     private static class WildcardTypeExpression extends TypeExpression {
         WildcardTypeExpression() {
-            super(Object.class, StringExpression.QUESTION_MARK);
+            super(ClassTypeModel.OBJECT, StringExpression.QUESTION_MARK);
         }
     }
 
     static class ArrayType extends TypeExpression {
-        public ArrayType(@NotNull Class<?> clazz, JarClass<?> against) {
-            super(clazz, Expressions.of(
-                JarClass.safeFullNameForClass(clazz.getComponentType(), against),
+        public ArrayType(@NotNull ArrayTypeModel type, @NotNull JarClass against) {
+            super(type, Expressions.of(
+                JarClass.safeFullNameForClass(type.componentType(), against),
                 StringExpression.LEFT_BRACE,
                 StringExpression.RIGHT_BRACE)
             );
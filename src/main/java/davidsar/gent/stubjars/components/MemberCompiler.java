@@ -0,0 +1,105 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars.components;
+
+import davidsar.gent.stubjars.components.expressions.Expression;
+import davidsar.gent.stubjars.components.expressions.Expressions;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+/**
+ * Compiles the members of a class to expressions, splitting the members of very large classes into fork/join
+ * tasks so that a single huge class doesn't hold up the end of a run. The expressions always come back in the
+ * order of the members.
+ * <p>
+ * Subtasks run on the {@link ForkJoinPool} the caller runs on, or on the common pool otherwise.
+ */
+final class MemberCompiler {
+    /**
+     * The fewest members a class needs before they are compiled in parallel.
+     */
+    static final int PARALLEL_THRESHOLD = 512;
+    private static final int MEMBERS_PER_TASK = 128;
+
+    private MemberCompiler() {
+    }
+
+    /**
+     * Compiles each member to an expression.
+     *
+     * @param members  the members, in the order their expressions should be in
+     * @param compiler compiles a single member
+     * @param <T>      the type of the members
+     * @return the expression of each member, in the order of {@code members}
+     */
+    @NotNull
+    static <T> Expression[] compile(@NotNull List<T> members, @NotNull Function<? super T, Expression> compiler) {
+        Expression[] compiled = new Expression[members.size()];
+        CompileRange<T> task = new CompileRange<>(members, compiler, compiled, 0, members.size());
+        if (members.size() < PARALLEL_THRESHOLD) {
+            task.compileInCurrentThread();
+        } else if (ForkJoinTask.inForkJoinPool()) {
+            task.invoke();
+        } else {
+            ForkJoinPool.commonPool().invoke(task);
+        }
+
+        return compiled;
+    }
+
+    private static final class CompileRange<T> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<T> members;
+        private final Function<? super T, Expression> compiler;
+        private final Expression[] compiled;
+        private final int start;
+        private final int end;
+
+        CompileRange(@NotNull List<T> members, @NotNull Function<? super T, Expression> compiler,
+                     @NotNull Expression[] compiled, int start, int end) {
+            this.members = members;
+            this.compiler = compiler;
+            this.compiled = compiled;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= MEMBERS_PER_TASK) {
+                compileInCurrentThread();
+                return;
+            }
+
+            int middle = (start + end) >>> 1;
+            invokeAll(new CompileRange<>(members, compiler, compiled, start, middle),
+                new CompileRange<>(members, compiler, compiled, middle, end));
+        }
+
+        void compileInCurrentThread() {
+            // a worker thread that isn't compiling a class of its own shares expressions within this range
+            try (Expressions.InternScope ignored = Expressions.internScope()) {
+                for (int i = start; i < end; i++) {
+                    compiled[i] = compiler.apply(members.get(i));
+                }
+            }
+        }
+    }
+}
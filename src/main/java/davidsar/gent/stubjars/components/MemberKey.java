@@ -0,0 +1,95 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars.components;
+
+import davidsar.gent.stubjars.classfile.FieldModel;
+import davidsar.gent.stubjars.classfile.MethodModel;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Identifies a member of a class by its name and erased JVM descriptor, such as {@code get(I)Ljava/lang/Object;}.
+ * Keys sort by name, then by descriptor, which gives the members of a class a stable order without having to
+ * compile them first.
+ */
+final class MemberKey implements Comparable<MemberKey> {
+    private final String name;
+    private final String descriptor;
+
+    private MemberKey(@NotNull String name, @NotNull String descriptor) {
+        this.name = name;
+        this.descriptor = descriptor;
+    }
+
+    @NotNull
+    static MemberKey of(@NotNull FieldModel field) {
+        return new MemberKey(field.name(), field.descriptor());
+    }
+
+    @NotNull
+    static MemberKey of(@NotNull MethodModel method) {
+        return new MemberKey(method.name(), method.descriptor());
+    }
+
+    @NotNull
+    String name() {
+        return name;
+    }
+
+    @NotNull
+    String descriptor() {
+        return descriptor;
+    }
+
+    /**
+     * Describes a method by its name and parameter types only, such as {@code get(I)}, which is how
+     * {@link Class#getDeclaredMethod(String, Class[])} tells methods apart.
+     *
+     * @param method a method
+     * @return the name followed by the descriptors of the parameters
+     */
+    @NotNull
+    static String parameterSignature(@NotNull MethodModel method) {
+        String descriptor = method.descriptor();
+        return method.name() + descriptor.substring(0, descriptor.indexOf(')') + 1);
+    }
+
+    @Override
+    public int compareTo(@NotNull MemberKey other) {
+        int byName = name.compareTo(other.name);
+        return byName != 0 ? byName : descriptor.compareTo(other.descriptor);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof MemberKey)) {
+            return false;
+        }
+
+        MemberKey memberKey = (MemberKey) o;
+        return name.equals(memberKey.name) && descriptor.equals(memberKey.descriptor);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * name.hashCode() + descriptor.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return name + descriptor;
+    }
+}
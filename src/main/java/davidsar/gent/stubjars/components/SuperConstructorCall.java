@@ -0,0 +1,93 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars.components;
+
+import davidsar.gent.stubjars.classfile.TypeModel;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * How the constructors of a subclass call into a superclass: not at all, through {@code super()}, or through
+ * one of the superclass's constructors with default arguments. The choice only depends on the superclass, so it
+ * is made once per superclass and shared by all of its subclasses.
+ */
+final class SuperConstructorCall {
+    enum Kind {
+        /**
+         * The superclass has a no-arg constructor, so nothing needs to be called.
+         */
+        IMPLICIT,
+        /**
+         * The superclass's constructor is called through {@code super()}.
+         */
+        NO_ARGUMENTS,
+        /**
+         * A constructor of the superclass is called with a default value for each parameter.
+         */
+        ARGUMENTS,
+        /**
+         * The superclass has no constructors to call.
+         */
+        UNSUPPORTED
+    }
+
+    private static final TypeModel[] NO_TYPES = new TypeModel[0];
+
+    private final Kind kind;
+    private final TypeModel[] parameterTypes;
+
+    private SuperConstructorCall(@NotNull Kind kind, @NotNull TypeModel[] parameterTypes) {
+        this.kind = kind;
+        this.parameterTypes = parameterTypes;
+    }
+
+    @NotNull
+    static SuperConstructorCall of(@NotNull JarClass superclass) {
+        if (JarConstructor.hasDefaultConstructor(superclass)) {
+            return new SuperConstructorCall(Kind.IMPLICIT, NO_TYPES);
+        }
+
+        var constructors = superclass.constructors().values();
+        if (constructors.isEmpty()) {
+            return new SuperConstructorCall(Kind.UNSUPPORTED, NO_TYPES);
+        }
+
+        JarConstructor selected = null;
+        for (JarConstructor constructor : constructors) {
+            if (constructor.security() != SecurityModifier.PRIVATE) {
+                selected = constructor;
+                break;
+            }
+        }
+
+        if (selected == null || selected.canRewriteConstructorParams()) {
+            return new SuperConstructorCall(Kind.NO_ARGUMENTS, NO_TYPES);
+        }
+        return new SuperConstructorCall(Kind.ARGUMENTS, selected.genericParameterTypes().toArray(NO_TYPES));
+    }
+
+    @NotNull
+    Kind kind() {
+        return kind;
+    }
+
+    /**
+     * Returns the generic parameter types of the constructor to call. The array is shared and must not be modified.
+     *
+     * @return the parameter types, empty unless the kind is {@link Kind#ARGUMENTS}
+     */
+    @NotNull
+    TypeModel[] parameterTypes() {
+        return parameterTypes;
+    }
+}
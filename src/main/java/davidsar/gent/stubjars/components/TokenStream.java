@@ -0,0 +1,238 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars.components;
+
+import davidsar.gent.stubjars.components.expressions.Expression;
+import davidsar.gent.stubjars.components.expressions.StringExpression;
+import davidsar.gent.stubjars.components.writer.Constants;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A class compiled down to the atoms {@link TreeFormatter} lays out, stored as a flat array of {@code int} tokens.
+ * Each token holds its kind in the low bits and, for text, the index of the text in the string table of the
+ * stream, which holds each distinct text of the class once and goes away with the stream. Whitespace is dropped
+ * when compiling, since the formatter lays out lines by itself.
+ * <p>
+ * Once compiled, the expression tree of a class can be dropped, and formatting is a switch over the token kinds
+ * rather than {@code equals} checks against every separator.
+ */
+public final class TokenStream {
+    private static final int KIND_BITS = 2;
+    private static final int KIND_MASK = (1 << KIND_BITS) - 1;
+    private static final int TEXT = 0;
+    private static final int SEMICOLON = 1;
+    private static final int LEFT_CURLY = 2;
+    private static final int RIGHT_CURLY = 3;
+
+    private final int[] tokens;
+    private final String[] strings;
+    private final boolean endsWithLine;
+
+    private TokenStream(@NotNull Compiler compiler, boolean endsWithLine) {
+        this.tokens = compiler.tokens();
+        this.strings = compiler.strings();
+        this.endsWithLine = endsWithLine;
+    }
+
+    /**
+     * Compiles an expression into tokens, splitting it into atoms the same way {@link TreeFormatter} does.
+     *
+     * @param expression the expression to compile
+     * @return the tokens of the expression
+     */
+    @NotNull
+    public static TokenStream compile(@NotNull Expression expression) {
+        Compiler compiler = new Compiler();
+        if (!expression.hasChildren()) {
+            // A lone atom is a line of its own, whatever it is
+            compiler.text(expression.toString());
+            return new TokenStream(compiler, true);
+        }
+
+        for (Expression child : expression.children()) {
+            compiler.walk(child);
+        }
+        return new TokenStream(compiler, false);
+    }
+
+    /**
+     * Writes the formatted source to {@code out}, exactly as {@link TreeFormatter#renderTo(Expression, Appendable)}
+     * would have for the compiled expression.
+     *
+     * @param out where to write the formatted source
+     * @throws IOException if {@code out} cannot be written to
+     */
+    public void renderTo(@NotNull Appendable out) throws IOException {
+        int indentLevel = 0;
+        int lineStart = 0;
+        boolean firstLine = true;
+        for (int i = 0; i < tokens.length; i++) {
+            int kind = tokens[i] & KIND_MASK;
+            if (kind == TEXT) {
+                continue;
+            }
+
+            if (kind == RIGHT_CURLY) {
+                indentLevel--;
+            }
+            writeLine(out, indentLevel, lineStart, i + 1, firstLine);
+            firstLine = false;
+            lineStart = i + 1;
+            if (kind == LEFT_CURLY) {
+                indentLevel++;
+            }
+        }
+
+        if (endsWithLine) {
+            writeLine(out, 0, lineStart, tokens.length, firstLine);
+        }
+    }
+
+    private void writeLine(@NotNull Appendable out, int indentLevel, int start, int end, boolean firstLine)
+        throws IOException {
+        if (!firstLine) {
+            out.append(Constants.NEW_LINE_CHARACTER);
+        }
+        for (int i = 0; i < indentLevel; i++) {
+            out.append(Constants.INDENT);
+        }
+
+        for (int i = start; i < end; i++) {
+            int kind = tokens[i] & KIND_MASK;
+            if (i > start && kind != SEMICOLON) {
+                out.append(Constants.SPACE);
+            }
+
+            switch (kind) {
+                case SEMICOLON:
+                    out.append(Constants.SEMICOLON);
+                    break;
+                case LEFT_CURLY:
+                    out.append(Constants.LEFT_CURLY);
+                    break;
+                case RIGHT_CURLY:
+                    out.append(Constants.RIGHT_CURLY);
+                    break;
+                default:
+                    out.append(strings[tokens[i] >>> KIND_BITS]);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of tokens.
+     *
+     * @return the number of tokens
+     */
+    public int size() {
+        return tokens.length;
+    }
+
+    /**
+     * Estimates the memory this stream holds: its tokens and the characters of its strings.
+     *
+     * @return the size in bytes
+     */
+    public long sizeInBytes() {
+        long bytes = (long) tokens.length * Integer.BYTES;
+        for (String string : strings) {
+            bytes += (long) string.length() * Character.BYTES;
+        }
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder source = new StringBuilder();
+        try {
+            renderTo(source);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return source.toString();
+    }
+
+    private static final class Compiler extends AtomWalker<RuntimeException> {
+        private final StringBuilder text = new StringBuilder();
+        private final Map<String, Integer> indices = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+        private int[] tokens = new int[256];
+        private int size = 0;
+
+        @Override
+        void atom(@NotNull Kind kind, @NotNull Expression atom) {
+            switch (kind) {
+                case SEMICOLON:
+                    add(TokenStream.SEMICOLON, 0);
+                    break;
+                case LEFT_CURLY:
+                    add(TokenStream.LEFT_CURLY, 0);
+                    break;
+                case RIGHT_CURLY:
+                    add(TokenStream.RIGHT_CURLY, 0);
+                    break;
+                default:
+                    if (atom instanceof StringExpression) {
+                        // The text of a string atom is shared as is, rather than copied
+                        text(atom.toString());
+                        break;
+                    }
+                    text.setLength(0);
+                    try {
+                        atom.renderTo(text);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    text(text.toString());
+                    break;
+            }
+        }
+
+        void text(@NotNull String string) {
+            Integer index = indices.get(string);
+            if (index == null) {
+                index = strings.size();
+                indices.put(string, index);
+                strings.add(string);
+            }
+            add(TEXT, index);
+        }
+
+        void add(int kind, int value) {
+            if (size == tokens.length) {
+                tokens = Arrays.copyOf(tokens, size * 2);
+            }
+            tokens[size++] = value << KIND_BITS | kind;
+        }
+
+        @NotNull
+        int[] tokens() {
+            return Arrays.copyOf(tokens, size);
+        }
+
+        @NotNull
+        String[] strings() {
+            return strings.toArray(new String[0]);
+        }
+    }
+}
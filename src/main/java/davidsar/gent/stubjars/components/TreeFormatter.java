@@ -1,62 +1,114 @@
 package davidsar.gent.stubjars.components;
 
 import davidsar.gent.stubjars.components.expressions.Expression;
-import davidsar.gent.stubjars.components.expressions.FormattedExpression;
-import davidsar.gent.stubjars.components.expressions.Line;
-import davidsar.gent.stubjars.components.expressions.StringExpression;
+import davidsar.gent.stubjars.components.writer.Constants;
+import org.jetbrains.annotations.NotNull;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
 public class TreeFormatter {
+    /**
+     * Formats an {@link Expression} into lines of source code, each indented by the braces it is nested in.
+     *
+     * @param expression the expression to format
+     * @return the formatted lines, without line separators
+     */
     public static List<String> toLines(Expression expression) {
-        if (!expression.hasChildren()) {
-            return Collections.singletonList(new Line(0, Collections.singletonList(expression)).toString());
-        }
-
         List<String> lines = new ArrayList<>();
-        List<Expression> currentLine = new ArrayList<>();
-        int currentIndentLevel = 0;
-        for (Expression child : flattenToAtomicExpressions(expression)) {
-            if (child == null) {
-                throw new NullPointerException("Null child expression; currentLine=" + currentLine + "; lines=" + lines);
-            }
-            if (child.equals(StringExpression.SPACE) || child.equals(StringExpression.NEW_LINE) || child.equals(StringExpression.EMPTY) || child.equals(StringExpression.INDENT)) {
-                continue;
-            }
-            currentLine.add(child);
-            if (child.equals(StringExpression.RIGHT_CURLY)) {
-                currentIndentLevel--;
-            }
-            if (child.equals(StringExpression.SEMICOLON) || child.equals(StringExpression.LEFT_CURLY) || child.equals(StringExpression.RIGHT_CURLY)) {
-                lines.add(new Line(currentIndentLevel, currentLine).toString());
-                currentLine = new ArrayList<>();
-            }
-            if (child.equals(StringExpression.LEFT_CURLY)) {
-                currentIndentLevel++;
-            }
+        try {
+            new LineFormatter() {
+                @Override
+                void endLine(int indentLevel, CharSequence contents) {
+                    lines.add(indentation(indentLevel) + contents);
+                }
+            }.format(expression);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
         return Collections.unmodifiableList(lines);
     }
 
-    private static List<Expression> flattenToAtomicExpressions(Expression expression) {
-        if (expression instanceof FormattedExpression) {
-            Expression formattedString = ((FormattedExpression) expression).getFormattedString();
-            if (formattedString == null) {
-                throw new NullPointerException("Null formatted string; expression=" + expression + "; expression type=" + expression.getClass().getName());
+    /**
+     * Formats an {@link Expression} into lines of source code like {@link #toLines(Expression)}, writing each line
+     * to {@code out} as soon as it is complete. Lines are separated by, not terminated with, a new line.
+     *
+     * @param expression the expression to format
+     * @param out        where to write the formatted source
+     * @throws IOException if {@code out} cannot be written to
+     */
+    public static void renderTo(Expression expression, Appendable out) throws IOException {
+        new LineFormatter() {
+            private boolean firstLine = true;
+
+            @Override
+            void endLine(int indentLevel, CharSequence contents) throws IOException {
+                if (!firstLine) {
+                    out.append(Constants.NEW_LINE_CHARACTER);
+                }
+                firstLine = false;
+                for (int i = 0; i < indentLevel; i++) {
+                    out.append(Constants.INDENT);
+                }
+                out.append(contents);
             }
-            return Collections.singletonList(formattedString);
+        }.format(expression);
+    }
+
+    private static String indentation(int indentLevel) {
+        StringBuilder indent = new StringBuilder();
+        for (int i = 0; i < indentLevel; i++) {
+            indent.append(Constants.INDENT);
         }
+        return indent.toString();
+    }
 
-        if (!expression.hasChildren()) {
-            return Collections.singletonList(expression);
+    /**
+     * Walks an expression tree, splitting its atomic expressions into lines after each {@code ;}, <code>{</code>
+     * and <code>}</code>. Only the line being built is kept; atoms after the last of these are dropped.
+     */
+    private abstract static class LineFormatter extends AtomWalker<IOException> {
+        private final StringBuilder currentLine = new StringBuilder();
+        private int atomsInLine = 0;
+        private int currentIndentLevel = 0;
+
+        abstract void endLine(int indentLevel, CharSequence contents) throws IOException;
+
+        void format(Expression expression) throws IOException {
+            if (!expression.hasChildren()) {
+                expression.renderTo(currentLine);
+                endLine(0, currentLine);
+                return;
+            }
+
+            for (Expression child : expression.children()) {
+                walk(child);
+            }
         }
 
-        List<Expression> result = new ArrayList<>();
-        for (Expression child : expression.children()) {
-            result.addAll(flattenToAtomicExpressions(child));
+        @Override
+        void atom(@NotNull Kind kind, @NotNull Expression atom) throws IOException {
+            if (atomsInLine > 0 && kind != Kind.SEMICOLON) {
+                currentLine.append(Constants.SPACE);
+            }
+            atom.renderTo(currentLine);
+            atomsInLine++;
+            if (kind == Kind.TEXT) {
+                return;
+            }
+
+            if (kind == Kind.RIGHT_CURLY) {
+                currentIndentLevel--;
+            }
+            endLine(currentIndentLevel, currentLine);
+            currentLine.setLength(0);
+            atomsInLine = 0;
+            if (kind == Kind.LEFT_CURLY) {
+                currentIndentLevel++;
+            }
         }
-        return Collections.unmodifiableList(result);
     }
 }
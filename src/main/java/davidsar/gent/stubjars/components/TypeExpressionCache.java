@@ -0,0 +1,150 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars.components;
+
+import davidsar.gent.stubjars.classfile.TypeModel;
+import davidsar.gent.stubjars.components.expressions.TypeExpression;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the {@link TypeExpression}s built by {@link JarType#toExpression(TypeModel, JarClass)}, so that a type used all
+ * over a JAR, such as {@code Map<String, List<Foo>>}, is only converted once for every package it appears in.
+ * <p>
+ * Types are keyed by structure, as {@link TypeModel} and its subclasses implement {@code equals}, together with
+ * the package of the class the expression is written into. Expressions are immutable once built, so one instance
+ * is shared by every class in that package that refers to the type. The cache holds at most a fixed number of
+ * expressions; once full it is emptied and fills up again with the types still in use.
+ */
+public final class TypeExpressionCache {
+    private static final int DEFAULT_MAX_ENTRIES = 1 << 16;
+    private static final TypeExpressionCache INSTANCE = new TypeExpressionCache(DEFAULT_MAX_ENTRIES);
+
+    private final Map<Key, TypeExpression> expressions = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    TypeExpressionCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Returns the cache shared by every part of StubJars.
+     *
+     * @return the cache of this run
+     */
+    @NotNull
+    public static TypeExpressionCache instance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the expression of a type as written in a package, building it if it is not cached.
+     *
+     * @param type        the type
+     * @param packageName the package the expression is written into, or {@code null} if it is not written into a
+     *                    class
+     * @param keepSimple  whether type arguments are left out
+     * @param builder     builds the expression on a miss
+     * @return the cached or newly built expression
+     */
+    @NotNull
+    TypeExpression get(@NotNull TypeModel type, @Nullable String packageName, boolean keepSimple,
+                       @NotNull Supplier<TypeExpression> builder) {
+        Key key = new Key(type, packageName, keepSimple);
+        TypeExpression expression = expressions.get(key);
+        if (expression != null) {
+            hits.increment();
+            return expression;
+        }
+
+        misses.increment();
+        // Built outside of the map, as building an expression looks up the expressions of the type's arguments
+        expression = builder.get();
+        if (expressions.size() >= maxEntries) {
+            expressions.clear();
+            evictions.increment();
+        }
+        TypeExpression existing = expressions.putIfAbsent(key, expression);
+        return existing != null ? existing : expression;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of times the cache was emptied because it was full.
+     *
+     * @return the number of evictions
+     */
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        return expressions.size();
+    }
+
+    @Override
+    public String toString() {
+        return "TypeExpressionCache{hits=" + hits() + ", misses=" + misses() + ", evictions=" + evictions()
+            + ", size=" + size() + '}';
+    }
+
+    private static final class Key {
+        private final TypeModel type;
+        private final String packageName;
+        private final boolean keepSimple;
+        private final int hash;
+
+        private Key(@NotNull TypeModel type, @Nullable String packageName, boolean keepSimple) {
+            this.type = type;
+            this.packageName = packageName;
+            this.keepSimple = keepSimple;
+            this.hash = 31 * (31 * type.hashCode() + Objects.hashCode(packageName)) + Boolean.hashCode(keepSimple);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+
+            Key key = (Key) o;
+            return hash == key.hash && keepSimple == key.keepSimple && type.equals(key.type)
+                && Objects.equals(packageName, key.packageName);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars.components;
+
+import davidsar.gent.stubjars.classfile.ClassModel;
+import davidsar.gent.stubjars.classfile.InnerClassModel;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Renders the name a class is referred to by in Java source. The names of a class are worked out once, the
+ * first time the class is referenced, and kept alongside the class; rendering a reference from then on only
+ * decides whether the class can go by its simple name in the referencing package.
+ */
+final class TypeNameResolver {
+    private static final String CLASS_FILE_EXTENSION = ".class";
+    private static final String JAVA_LANG = "java.lang";
+
+    private TypeNameResolver() {
+    }
+
+    /**
+     * Checks whether a class can be referred to from Java source at all.
+     *
+     * @param clazz a class
+     * @return {@code false} if the class is synthetic or anonymous
+     */
+    static boolean hasSafeName(@NotNull JarClass clazz) {
+        return clazz.names().safe;
+    }
+
+    /**
+     * Returns the name to refer to a class by in the source of another class. Classes in {@code java.lang}, and
+     * top level classes in the package of the referencing class, go by their simple name; every other class
+     * goes by its canonical name.
+     *
+     * @param clazz       a class
+     * @param referencing the class whose source refers to {@code clazz}, if any
+     * @return the source name of {@code clazz}
+     * @throws IllegalArgumentException if the class has no name that can be written in source
+     */
+    @NotNull
+    static String sourceName(@NotNull JarClass clazz, @Nullable JarClass referencing) {
+        ClassNames names = clazz.names();
+        String name;
+        if (names.inJavaLang) {
+            name = names.simpleName;
+        } else if (referencing != null && names.topLevel
+            && names.packageName.equals(referencing.names().packageName)) {
+            name = names.simpleName;
+        } else {
+            name = names.qualifiedName;
+        }
+
+        if (name == null || !names.safe) {
+            throw new IllegalArgumentException("Class does not have safe name.");
+        }
+        return name;
+    }
+
+    /**
+     * Converts the path of a class file inside a JAR, such as {@code java/util/Map$Entry.class}, into the binary
+     * name of the class, {@code java.util.Map$Entry}.
+     *
+     * @param entryName the name of the JAR entry
+     * @return the binary name of the class
+     */
+    @NotNull
+    static String binaryNameOfEntry(@NotNull String entryName) {
+        if (entryName.endsWith(CLASS_FILE_EXTENSION)) {
+            entryName = entryName.substring(0, entryName.length() - CLASS_FILE_EXTENSION.length());
+        }
+        return entryName.replace('/', '.');
+    }
+
+    /**
+     * Replaces each {@code $} in a binary name, along with any digits right after it, with a {@code .}, so that
+     * {@code a.Outer$Inner} becomes {@code a.Outer.Inner}.
+     *
+     * @param binaryName a binary class name, or the simple name of a class
+     * @return the name with nested class separators replaced, or {@code null} if the name ends in a separator,
+     *     as the names of anonymous and local classes do
+     */
+    @Nullable
+    static String toSourceSeparators(@NotNull String binaryName) {
+        int dollar = binaryName.indexOf('$');
+        if (dollar < 0) {
+            return binaryName;
+        }
+
+        int length = binaryName.length();
+        StringBuilder name = new StringBuilder(length);
+        int start = 0;
+        while (dollar >= 0) {
+            name.append(binaryName, start, dollar).append('.');
+            start = dollar + 1;
+            while (start < length && isAsciiDigit(binaryName.charAt(start))) {
+                start++;
+            }
+            dollar = binaryName.indexOf('$', start);
+        }
+        name.append(binaryName, start, length);
+
+        if (name.charAt(name.length() - 1) == '.') {
+            return null;
+        }
+        return name.toString();
+    }
+
+    private static boolean isAsciiDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * The names of a class, kept by its {@link JarClass}.
+     */
+    static final class ClassNames {
+        private final boolean safe;
+        private final boolean topLevel;
+        private final boolean inJavaLang;
+        private final String packageName;
+        private final String simpleName;
+        private final String qualifiedName;
+
+        ClassNames(@NotNull JarClass clazz) {
+            ClassModel classModel = clazz.classModel();
+            InnerClassModel nestingInfo = classModel.nestingInfo();
+            packageName = classModel.packageName();
+            inJavaLang = JAVA_LANG.equals(packageName);
+            // Like Class#getDeclaringClass(), local and anonymous classes have no declaring class
+            topLevel = nestingInfo == null || nestingInfo.outerName() == null;
+
+            safe = !clazz.isSynthetic() && !(nestingInfo != null && nestingInfo.simpleName() == null);
+            if (safe) {
+                simpleName = inJavaLang || topLevel ? toSourceSeparators(clazz.name()) : null;
+                qualifiedName = toSourceSeparators(clazz.fullName());
+            } else {
+                simpleName = null;
+                qualifiedName = null;
+            }
+        }
+    }
+}
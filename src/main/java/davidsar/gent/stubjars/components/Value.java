@@ -13,122 +13,119 @@
 
 package davidsar.gent.stubjars.components;
 
+import davidsar.gent.stubjars.classfile.ArrayTypeModel;
+import davidsar.gent.stubjars.classfile.ClassTypeModel;
+import davidsar.gent.stubjars.classfile.TypeModel;
 import davidsar.gent.stubjars.components.expressions.Expression;
 import davidsar.gent.stubjars.components.expressions.Expressions;
 import davidsar.gent.stubjars.components.expressions.StringExpression;
 
-import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Type;
+import java.util.List;
 
 class Value {
     /**
      * Returns a String contains the default value for a given type.
      *
-     * @param type a {@link Type} to get the default value for
+     * @param type a {@link TypeModel} to get the default value for
      * @return a String with the default type for the parameter type
      */
-    static Expression defaultValueForType(Type type, JarClass<?> against) {
+    static Expression defaultValueForType(TypeModel type, JarClass against) {
         return defaultValueForType(type, against, false);
     }
 
     /**
      * Returns a String contains the default value for a given type.
      *
-     * @param type a {@link Type} to get the default value for
+     * @param type a {@link TypeModel} to get the default value for
      * @param constant {@code true} if the returned value should be a constant
      * @return a String with the default type for the parameter type
      */
-    static Expression defaultValueForType(Type type, JarClass<?> against, boolean constant) {
-        if (!(type instanceof Class)) {
-            if (type instanceof ParameterizedType) {
-                return defaultValueForType(((ParameterizedType) type).getRawType(), against);
+    static Expression defaultValueForType(TypeModel type, JarClass against, boolean constant) {
+        if (!type.isClass()) {
+            if (type instanceof ClassTypeModel) {
+                return defaultValueForType(((ClassTypeModel) type).erasure(), against);
             }
 
-            return defaultValueForType(Object.class, against);
+            return defaultValueForType(ClassTypeModel.OBJECT, against);
         }
 
-        if (type.equals(int.class) || type.equals(Integer.class)) {
+        if (type instanceof ArrayTypeModel) {
+            if (constant) {
+                return Expressions.fromString("{}");
+            }
+
+            return Expressions.of(
+                Expressions.fromString("new"),
+                StringExpression.SPACE,
+                JarType.toExpression(type, against),
+                StringExpression.SPACE,
+                Expressions.emptyBlock());
+        }
+
+        String name = ((ClassTypeModel) type).name();
+        if (name.equals("int") || name.equals("java.lang.Integer")) {
             if (constant) {
                 return Expressions.fromString("0");
             }
             return Expressions.fromString("Integer.valueOf(0)");
-        } else if (type.equals(double.class) || type.equals(Double.class)) {
+        } else if (name.equals("double") || name.equals("java.lang.Double")) {
             if (constant) {
                 return Expressions.fromString("0.0");
             }
             return Expressions.fromString("Double.valueOf('\\0').doubleValue()");
-        } else if (type.equals(long.class) || type.equals(Long.class)) {
+        } else if (name.equals("long") || name.equals("java.lang.Long")) {
             if (constant) {
                 return Expressions.fromString("0L");
             }
             return Expressions.fromString("Long.valueOf('\\0').longValue()");
-        } else if (type.equals(byte.class) || type.equals(Byte.class)) {
+        } else if (name.equals("byte") || name.equals("java.lang.Byte")) {
             if (constant) {
                 return Expressions.fromString("0");
             }
-            return Expressions.toCast(byte.class, "Integer.valueOf(0).byteValue()");
-        } else if (type.equals(short.class) || type.equals(Short.class)) {
+            return Expressions.toCast("byte", "Integer.valueOf(0).byteValue()");
+        } else if (name.equals("short") || name.equals("java.lang.Short")) {
             if (constant) {
-                return Expressions.toCast(short.class, "0");
+                return Expressions.toCast("short", "0");
             }
-            return Expressions.toCast(short.class, "Integer.valueOf(0).shortValue()");
-        } else if (type.equals(boolean.class) || type.equals(Boolean.class)) {
+            return Expressions.toCast("short", "Integer.valueOf(0).shortValue()");
+        } else if (name.equals("boolean") || name.equals("java.lang.Boolean")) {
             if (constant) {
                 return Expressions.fromString("false");
             }
             return Expressions.fromString("Boolean.valueOf(false).booleanValue()");
-        } else if (type.equals(float.class) || type.equals(Float.class)) {
+        } else if (name.equals("float") || name.equals("java.lang.Float")) {
             if (constant) {
                 return Expressions.fromString("0.0f");
             }
-            return Expressions.toCast(float.class, "Float.valueOf('\\0').floatValue()");
-        } else if (type.equals(char.class) || type.equals(Character.class)) {
+            return Expressions.toCast("float", "Float.valueOf('\\0').floatValue()");
+        } else if (name.equals("char") || name.equals("java.lang.Character")) {
             if (constant) {
                 return Expressions.fromString("'\\0'");
             }
-            return Expressions.toCast(char.class, "Character.valueOf('\\0').charValue()");
-        } else if (type.equals(String.class)) {
+            return Expressions.toCast("char", "Character.valueOf('\\0').charValue()");
+        } else if (name.equals("java.lang.String")) {
             if (constant) {
                 return Expressions.fromString("\"\"");
             }
             return Expressions.fromString("\"\".toString()");
-        } else if (((Class) type).isArray()) {
-            if (constant) {
-                return Expressions.fromString("{}");
-            }
-
-            return Expressions.of(
-                Expressions.fromString("new"),
-                StringExpression.SPACE,
-                JarType.toExpression(type, against),
-                StringExpression.SPACE,
-                Expressions.emptyBlock());
-        } else if (((Class) type).isEnum()) {
-            //noinspection unchecked
-            Enum[] enumConstants = JarClass.getEnumConstantsFor((Class<? extends Enum>) type);
-            if (enumConstants == null) {
-                if (constant) {
-                    throw new RuntimeException("Cannot determine constant value!");
-                }
-
-                return Expressions.fromString("null");
-            }
-
-            if (enumConstants.length == 0) {
+        } else if (against.resolve(name).isEnum()) {
+            // The constants are read from the class file, so the enum is never initialized
+            List<String> enumConstants = against.resolve(name).enumConstants();
+            if (enumConstants.isEmpty()) {
                 return Expressions.fromString("null");
             }
 
             return Expressions.of(
                 JarType.toExpression(type, against),
                 StringExpression.PERIOD,
-                Expressions.fromString(enumConstants[0].name())
+                Expressions.fromString(enumConstants.get(0))
             );
         } else {
             return Expressions.fromString("null");
         }
     }
 
-    public static String reduceValueToString(Class<?> expectedType, Object o) {
+    public static String reduceValueToString(Object o) {
         if (o instanceof String) {
             // Per the Java 3.10.6 Spec
             String filteredString = ((String) o)
@@ -1,22 +1,22 @@
 package davidsar.gent.stubjars.components.expressions;
 
+import davidsar.gent.stubjars.classfile.ClassTypeModel;
 import davidsar.gent.stubjars.components.JarClass;
 import davidsar.gent.stubjars.components.JarType;
 import davidsar.gent.stubjars.components.writer.Constants;
 
-import java.lang.annotation.Annotation;
-import java.lang.annotation.RetentionPolicy;
 import java.util.Arrays;
 import java.util.List;
 
 public class AnnotationExpression extends Expression implements FormattedExpression {
-    private final Class<? extends Annotation> annotationType;
+    private static final ClassTypeModel RETENTION_POLICY_TYPE = ClassTypeModel.of("java.lang.annotation.RetentionPolicy");
+    private final ClassTypeModel annotationType;
     private final String annotationName;
     private final JarClass declaringClass;
     private TypeExpression typeExpression;
     private Expression annotationValue;
 
-    public AnnotationExpression(JarClass declaringClass, Class<? extends Annotation> annotationType, String annotationName) {
+    public AnnotationExpression(JarClass declaringClass, ClassTypeModel annotationType, String annotationName) {
         this.annotationType = annotationType;
         this.annotationName = annotationName;
         this.declaringClass = declaringClass;
@@ -32,7 +32,7 @@ public class AnnotationExpression extends Expression implements FormattedExpress
     public List<Expression> children() {
         typeExpression = Expressions.forType(annotationType, JarType.toExpression(annotationType, declaringClass));
         annotationValue = Expressions.of(
-            Expressions.of(JarType.toExpression(RetentionPolicy.class, declaringClass)),
+            Expressions.of(JarType.toExpression(RETENTION_POLICY_TYPE, declaringClass)),
             StringExpression.PERIOD,
             Expressions.fromString(annotationName));
         return Arrays.asList(
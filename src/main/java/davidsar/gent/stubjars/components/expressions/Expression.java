@@ -15,22 +15,26 @@ package davidsar.gent.stubjars.components.expressions;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Arrays;
 import java.util.List;
 
 public abstract class Expression {
+    private int hash;
+
     public StatementExpression asStatement() {
         return Expressions.toStatement(this);
     }
 
     @NotNull
     public static BlockStatement blockWith(String... statements) {
-        return new BlockStatement(Arrays.stream(statements).map(Expressions::stringAsStatement).toArray(Expression[]::new));
+        return Expressions.intern(new BlockStatement(Arrays.stream(statements).map(Expressions::stringAsStatement).toArray(Expression[]::new)));
     }
 
     @NotNull
     public IndentedExpression indent() {
-        return new IndentedExpression<>(this);
+        return Expressions.intern(new IndentedExpression<>(this));
     }
 
     public int indentLevel() {
@@ -39,7 +43,7 @@ public abstract class Expression {
 
     @NotNull
     public Parenthetical parenthetical() {
-        return new Parenthetical(this);
+        return Expressions.intern(new Parenthetical(this));
     }
 
     public Expression asSpaceAfter() {
@@ -50,13 +54,45 @@ public abstract class Expression {
 
     public abstract List<Expression> children();
 
+    /**
+     * Writes the source code of this expression to {@code out}, in the same form as {@link #toString()}.
+     *
+     * @param out where to write the source code
+     * @throws IOException if {@code out} cannot be written to
+     */
+    public void renderTo(@NotNull Appendable out) throws IOException {
+        if (!hasChildren()) {
+            out.append(toString());
+            return;
+        }
+
+        renderChildrenTo(out);
+    }
+
+    private void renderChildrenTo(@NotNull Appendable out) throws IOException {
+        for (Expression child : children()) {
+            if (child != null) {
+                child.renderTo(out);
+            }
+        }
+    }
+
     @Override
     public String toString() {
-        return Expressions.stringOf(Expressions.flatten(children()));
+        StringBuilder result = new StringBuilder();
+        try {
+            renderChildrenTo(result);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result.toString();
     }
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (!(obj instanceof Expression)) {
             return false;
         }
@@ -70,13 +106,20 @@ public abstract class Expression {
         return children().equals(rhs.children());
     }
 
+    /**
+     * Hashes the children of this expression, in line with {@link #equals(Object)}. The hash is worked out once,
+     * as expressions do not change once built.
+     *
+     * @return the structural hash of this expression
+     */
     @Override
     public int hashCode() {
-        if (!hasChildren()) {
-            throw new UnsupportedOperationException();
+        int h = hash;
+        if (h == 0) {
+            h = children().hashCode();
+            hash = h;
         }
-
-        return children().hashCode();
+        return h;
     }
 
     public Expression asBlock() {
@@ -13,29 +13,81 @@
 
 package davidsar.gent.stubjars.components.expressions;
 
+import davidsar.gent.stubjars.classfile.TypeModel;
 import davidsar.gent.stubjars.components.writer.Constants;
 import org.jetbrains.annotations.NotNull;
 
-import java.lang.reflect.Type;
 import java.util.Arrays;
-import java.util.Collection;
-import java.util.stream.Collectors;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.stream.Stream;
 
 public final class Expressions {
+    private static final ThreadLocal<Map<InternKey, Expression>> internTables = new ThreadLocal<>();
+
     static StatementExpression toStatement(Expression expression) {
-        return new StatementExpression(expression);
+        return intern(new StatementExpression(expression));
+    }
+
+    /**
+     * Starts sharing equal expressions built on the current thread, until the returned scope is closed. Open one
+     * scope around the compilation of each top-level class, so that the table of shared expressions is only
+     * touched by one thread and is dropped along with the class. Opening a scope inside another one keeps using
+     * the outer table.
+     *
+     * @return the scope, to close once the class is compiled
+     */
+    @NotNull
+    public static InternScope internScope() {
+        if (internTables.get() != null) {
+            return new InternScope(false);
+        }
+
+        internTables.set(new HashMap<>());
+        return new InternScope(true);
+    }
+
+    /**
+     * Returns the one shared instance of an expression within the current {@link #internScope()}. Two expressions
+     * share an instance when they are of the same class and their children are the very same instances, or, for a
+     * {@link StringExpression}, when they hold the same text. As the factories in this class intern what they
+     * build, equal subtrees built from them end up as one node, however many members they are used in.
+     * <p>
+     * Only expressions that are fully described by their children may be interned. Outside of a scope, every
+     * expression is its own instance.
+     *
+     * @param expression a newly built expression
+     * @param <E>        the class of the expression
+     * @return the shared instance equal to {@code expression}
+     */
+    @NotNull
+    public static <E extends Expression> E intern(@NotNull E expression) {
+        Map<InternKey, Expression> interned = internTables.get();
+        if (interned == null) {
+            return expression;
+        }
+
+        Expression existing = interned.putIfAbsent(new InternKey(expression), expression);
+        if (existing == null) {
+            return expression;
+        }
+
+        // The key includes the class, so the shared instance is of the same class
+        @SuppressWarnings("unchecked")
+        E shared = (E) existing;
+        return shared;
     }
 
     @NotNull
     public static IndentedExpression<Expression> indent(Expression... expressions) {
-        return new IndentedExpression<>(of(expressions));
+        return intern(new IndentedExpression<>(of(expressions)));
     }
 
     @NotNull
     public static Expression indent(Expression expression, int times) {
         for (int i = 0; i < times; i++) {
-            expression = new IndentedExpression<>(expression);
+            expression = intern(new IndentedExpression<>(expression));
         }
 
         return expression;
@@ -43,16 +95,16 @@ public final class Expressions {
 
     @NotNull
     public static BlockStatement emptyBlock() {
-        return new BlockStatement();
+        return intern(new BlockStatement());
     }
 
     @NotNull
     public static BlockStatement blockWith(Expression... statements) {
-        return new BlockStatement(statements);
+        return intern(new BlockStatement(statements));
     }
 
     public static Parenthetical asParenthetical(Expression inner) {
-        return new Parenthetical(inner);
+        return intern(new Parenthetical(inner));
     }
 
     @NotNull
@@ -65,11 +117,6 @@ public final class Expressions {
         return Expressions.of(asParenthetical(type), StringExpression.SPACE, value);
     }
 
-    @NotNull
-    public static Expression toCast(Class<?> type, Object value) {
-        return toCast(type.getSimpleName(), value.toString());
-    }
-
     @NotNull
     public static MethodCall toMethodCall(String methodName) {
         return toMethodCall(methodName, StringExpression.EMPTY);
@@ -77,7 +124,7 @@ public final class Expressions {
 
     @NotNull
     public static MethodCall toMethodCall(String methodName, Expression params) {
-        return new MethodCall(new StringExpression(methodName), asParenthetical(params));
+        return intern(new MethodCall(fromString(methodName), asParenthetical(params)));
     }
 
     @NotNull
@@ -98,8 +145,8 @@ public final class Expressions {
         return toSpaceAfter(fromString(string));
     }
 
-    public static TypeExpression forType(Type type, Expression typeString) {
-        return new TypeExpression(type, typeString);
+    public static TypeExpression forType(TypeModel type, Expression typeString) {
+        return intern(new TypeExpression(type, typeString));
     }
 
     public static ListExpression makeListFrom(Expression... expressions) {
@@ -132,19 +179,15 @@ public final class Expressions {
     }
 
     public static StatementExpression stringAsStatement(String statement) {
-        return new StatementExpression(statement);
-    }
-
-    static String stringOf(Expression... expressions) {
-        return Stream.of(expressions).map(Expression::toString).collect(Collectors.joining());
+        return intern(new StatementExpression(statement));
     }
 
     public static Expression of(Expression... expressions) {
-        return new GenericExpression(expressions);
+        return intern(new GenericExpression(expressions));
     }
 
     public static StringExpression fromString(String string) {
-        return new StringExpression(string);
+        return intern(new StringExpression(string));
     }
 
     public static Expression fromString(String... elements) {
@@ -155,22 +198,83 @@ public final class Expressions {
         return Expressions.fromString(result.toString());
     }
 
-    public static Expression[] flatten(Collection<Expression> children) {
-        return flatten(children.stream());
-    }
+    /**
+     * Shares equal expressions built on one thread while it is open.
+     *
+     * @see #internScope()
+     */
+    public static final class InternScope implements AutoCloseable {
+        private final boolean outermost;
 
+        private InternScope(boolean outermost) {
+            this.outermost = outermost;
+        }
 
-    private static Expression[] flatten(@NotNull Stream<Expression> expressionStream) {
-        return expressionStream.flatMap(expression -> {
-            if (expression == null) {
-                return Stream.empty();
+        @Override
+        public void close() {
+            if (outermost) {
+                internTables.remove();
             }
+        }
+    }
 
+    /**
+     * Identifies an interned expression by its class and its children, compared by identity, since children
+     * built through this class are interned already.
+     */
+    private static final class InternKey {
+        private final Class<?> type;
+        private final String text;
+        private final List<Expression> children;
+        private final int hash;
+
+        private InternKey(@NotNull Expression expression) {
+            type = expression.getClass();
             if (expression.hasChildren()) {
-                return Stream.of(flatten(expression.children()));
+                text = null;
+                children = expression.children();
+                int h = type.hashCode();
+                for (Expression child : children) {
+                    h = 31 * h + System.identityHashCode(child);
+                }
+                hash = h;
+            } else {
+                text = expression.toString();
+                children = null;
+                hash = 31 * type.hashCode() + text.hashCode();
             }
+        }
 
-            return Stream.of(expression);
-        }).toArray(Expression[]::new);
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof InternKey)) {
+                return false;
+            }
+
+            InternKey key = (InternKey) o;
+            if (hash != key.hash || type != key.type) {
+                return false;
+            }
+            if (children == null) {
+                return key.children == null && text.equals(key.text);
+            }
+            if (key.children == null || children.size() != key.children.size()) {
+                return false;
+            }
+            for (int i = 0; i < children.size(); i++) {
+                if (children.get(i) != key.children.get(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
     }
 }
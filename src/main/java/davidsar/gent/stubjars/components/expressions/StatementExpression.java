@@ -30,7 +30,7 @@ public class StatementExpression extends Expression {
     }
 
     StatementExpression(String statement) {
-        expression = new StringExpression(statement);
+        expression = Expressions.fromString(statement);
         implString = true;
     }
 
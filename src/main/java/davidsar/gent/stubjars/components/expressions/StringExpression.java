@@ -15,6 +15,7 @@ package davidsar.gent.stubjars.components.expressions;
 
 import davidsar.gent.stubjars.components.writer.Constants;
 
+import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 
@@ -75,6 +76,11 @@ public final class StringExpression extends Expression implements FormattedExpre
         return data;
     }
 
+    @Override
+    public void renderTo(Appendable out) throws IOException {
+        out.append(data);
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (!(obj instanceof StringExpression)) {
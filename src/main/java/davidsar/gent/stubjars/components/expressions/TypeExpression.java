@@ -13,9 +13,9 @@
 
 package davidsar.gent.stubjars.components.expressions;
 
+import davidsar.gent.stubjars.classfile.TypeModel;
 import org.jetbrains.annotations.NotNull;
 
-import java.lang.reflect.Type;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -24,7 +24,7 @@ import java.util.Objects;
 public class TypeExpression extends Expression implements FormattedExpression {
     private final Expression expression;
 
-    protected TypeExpression(@NotNull Type type, Expression expression) {
+    protected TypeExpression(@NotNull TypeModel type, Expression expression) {
         this.expression = Objects.requireNonNull(expression);
     }
 
@@ -0,0 +1,129 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars.components.writer;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounds the number of bytes held by files waiting to be written. Producers reserve the size of a file before
+ * queueing it and block while the budget is spent; the writer gives the bytes back once the file is written.
+ * <p>
+ * A file larger than the whole budget is still let through once nothing else is pending, so it can't block forever.
+ */
+public final class ByteBudget {
+    private final long maxBytes;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private long used = 0;
+    private long peak = 0;
+
+    /**
+     * Creates a budget.
+     *
+     * @param maxBytes the most bytes that can be pending at once, at least one
+     */
+    public ByteBudget(long maxBytes) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("The budget must be at least one byte");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Creates a budget that never blocks, but still tracks how many bytes are pending.
+     *
+     * @return an unbounded budget
+     */
+    public static ByteBudget unbounded() {
+        return new ByteBudget(Long.MAX_VALUE);
+    }
+
+    /**
+     * Reserves bytes, waiting until enough of the budget is given back.
+     *
+     * @param bytes the number of bytes to reserve
+     * @throws InterruptedException if the current {@link Thread} is interrupted while waiting
+     */
+    public void acquire(long bytes) throws InterruptedException {
+        lock.lock();
+        try {
+            while (used > 0 && used + bytes > maxBytes) {
+                released.await();
+            }
+            used += bytes;
+            peak = Math.max(peak, used);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gives back bytes reserved with {@link #acquire(long)}.
+     *
+     * @param bytes the number of bytes to give back
+     */
+    public void release(long bytes) {
+        lock.lock();
+        try {
+            used -= bytes;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long maxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Returns the number of bytes that are currently reserved.
+     *
+     * @return the current depth of the pending writes, in bytes
+     */
+    public long used() {
+        lock.lock();
+        try {
+            return used;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the most bytes that have been reserved at once.
+     *
+     * @return the peak depth of the pending writes, in bytes
+     */
+    public long peak() {
+        lock.lock();
+        try {
+            return peak;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        lock.lock();
+        try {
+            return String.format("%d bytes pending, %d at peak, of %s", used, peak,
+                maxBytes == Long.MAX_VALUE ? "unbounded" : Long.toString(maxBytes));
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -14,6 +14,7 @@
 package davidsar.gent.stubjars.components.writer;
 
 import davidsar.gent.stubjars.components.JarClass;
+import davidsar.gent.stubjars.components.TokenStream;
 import davidsar.gent.stubjars.components.TreeFormatter;
 import davidsar.gent.stubjars.components.expressions.Expression;
 import davidsar.gent.stubjars.components.expressions.Expressions;
@@ -22,11 +23,13 @@ import davidsar.gent.stubjars.components.expressions.StringExpression;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Objects;
 
 public class JavaClassWriter extends Writer {
-    private final JarClass<?> klazz;
-    private String compiledString;
+    private final JarClass klazz;
+    private final boolean tokenStream;
 
     /**
      * Builds a new {@link JavaClassWriter} for the given file associated with the given
@@ -37,33 +40,55 @@ public class JavaClassWriter extends Writer {
      * @param clazz        the representative class
      * @param writerThread the thread to use for Writing
      */
-    public JavaClassWriter(@NotNull final File file, @NotNull final JarClass<?> clazz,
+    public JavaClassWriter(@NotNull final File file, @NotNull final JarClass clazz,
                            @NotNull WriterThread writerThread) {
+        this(file, clazz, writerThread, false);
+    }
+
+    /**
+     * Builds a new {@link JavaClassWriter} like {@link #JavaClassWriter(File, JarClass, WriterThread)}, optionally
+     * handing the class to the {@code WriterThread} as a {@link TokenStream} that is only formatted as the file is
+     * written.
+     *
+     * @param file         the file to write to
+     * @param clazz        the representative class
+     * @param writerThread the thread to use for Writing
+     * @param tokenStream  {@code true} to compile the class to a {@code TokenStream}
+     */
+    public JavaClassWriter(@NotNull final File file, @NotNull final JarClass clazz,
+                           @NotNull WriterThread writerThread, boolean tokenStream) {
         super(
             Objects.requireNonNull(file, "file is null"),
             Objects.requireNonNull(writerThread, "writer thread is null")
         );
         this.klazz = Objects.requireNonNull(clazz, "class is null");
+        this.tokenStream = tokenStream;
     }
 
-    @NotNull
-    private String compile() {
-        if (compiledString == null) {
-            this.compiledString = String.join(Constants.NEW_LINE_CHARACTER, TreeFormatter.toLines(compile(klazz)));
-        }
-
-        return compiledString;
+    /**
+     * Builds a new {@link JavaClassWriter} that is not bound to a {@link WriterThread}, and can only write its
+     * file with {@link #writeInCurrentThread()}.
+     *
+     * @param file  the file to write to
+     * @param clazz the representative class
+     */
+    public JavaClassWriter(@NotNull final File file, @NotNull final JarClass clazz) {
+        super(Objects.requireNonNull(file, "file is null"));
+        this.klazz = Objects.requireNonNull(clazz, "class is null");
+        this.tokenStream = false;
     }
 
     @NotNull
-    private static Expression compile(@NotNull final JarClass<?> klazz) {
-        Expression packageStatement = compilePackageStatement(klazz);
-        Expression classBody = compileClass(klazz);
-        return Expressions.of(packageStatement, StringExpression.NEW_LINE, classBody);
+    private static Expression compile(@NotNull final JarClass klazz) {
+        try (Expressions.InternScope ignored = Expressions.internScope()) {
+            Expression packageStatement = compilePackageStatement(klazz);
+            Expression classBody = compileClass(klazz);
+            return Expressions.of(packageStatement, StringExpression.NEW_LINE, classBody);
+        }
     }
 
     @NotNull
-    private static Expression compileClass(@NotNull final JarClass<?> klazz) {
+    private static Expression compileClass(@NotNull final JarClass klazz) {
         return klazz.compileToExpression();
     }
 
@@ -74,11 +99,40 @@ public class JavaClassWriter extends Writer {
      * @return source code version of the package name declaration
      */
     @NotNull
-    private static Expression compilePackageStatement(@NotNull final JarClass<?> clazz) {
+    private static Expression compilePackageStatement(@NotNull final JarClass clazz) {
         return new PackageStatement(clazz.packageName());
     }
 
-    public void write() {
-        writeDataWithDedicatedThread(compile());
+    /**
+     * Compiles the class and hands its file to the {@link WriterThread}. The expression tree is released before
+     * the file is queued; only its rendered source, or its {@link TokenStream}, waits for the thread.
+     *
+     * @throws InterruptedException if the current {@link Thread} is interrupted before the file is queued
+     */
+    public void write() throws InterruptedException {
+        if (tokenStream) {
+            TokenStream tokens = TokenStream.compile(compile(klazz));
+            writeDataWithDedicatedThread(tokens::renderTo, tokens.sizeInBytes());
+        } else {
+            StringBuilder source = new StringBuilder();
+            try {
+                TreeFormatter.renderTo(compile(klazz), source);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            writeDataWithDedicatedThread(source);
+        }
+    }
+
+    /**
+     * Compiles the class and writes its file on the calling thread, rather than handing it to a
+     * {@link WriterThread}. Nothing is queued, so the source is formatted straight into the file and is never
+     * held in memory whole.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public void writeInCurrentThread() throws IOException {
+        Expression classExpression = compile(klazz);
+        write(out -> TreeFormatter.renderTo(classExpression, out));
     }
 }
@@ -0,0 +1,194 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars.components.writer;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * A bounded, lock-free queue that any number of threads put elements into and a single thread takes them out of.
+ * <p>
+ * Each slot carries a sequence number, which tells producers when the slot is free for their lap around the ring
+ * and tells the consumer when the element in it has been published. Producers only contend on claiming a
+ * position, with a single compare-and-set. The consumer takes elements in batches and parks while the buffer is
+ * empty, and is unparked by the next producer.
+ *
+ * @param <E> the type of the elements
+ */
+final class MpscRingBuffer<E> {
+    private static final long FULL_BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final Object[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private long head = 0;
+    private volatile Thread waitingConsumer;
+
+    /**
+     * Creates an empty buffer.
+     *
+     * @param capacity the number of elements the buffer holds, rounded up to a power of two
+     */
+    MpscRingBuffer(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity out of range: " + capacity);
+        }
+
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        slots = new Object[size];
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        mask = size - 1;
+    }
+
+    int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * Adds an element if there is room for it. Safe to call from any thread.
+     *
+     * @param element the element to add
+     * @return {@code true} if the element was added, {@code false} if the buffer is full
+     */
+    boolean offer(@NotNull E element) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) position & mask;
+            long sequence = sequences.get(index);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots[index] = element;
+                    // Publishes the element to the consumer
+                    sequences.set(index, position + 1);
+                    signalConsumer();
+                    return true;
+                }
+            } else if (sequence < position) {
+                // The consumer hasn't taken the element from the last lap around the ring yet
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Adds an element, backing off while the buffer is full. Safe to call from any thread.
+     *
+     * @param element the element to add
+     * @throws InterruptedException if the calling thread is interrupted while waiting for room
+     */
+    void put(@NotNull E element) throws InterruptedException {
+        while (!offer(element)) {
+            LockSupport.parkNanos(this, FULL_BACKOFF_NANOS);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    /**
+     * Removes the oldest element. Must only be called from the consumer thread.
+     *
+     * @return the oldest element, or {@code null} if the buffer is empty
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    E poll() {
+        int index = (int) head & mask;
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+
+        E element = (E) slots[index];
+        slots[index] = null;
+        // Hands the slot to the producers of the next lap
+        sequences.set(index, head + slots.length);
+        head++;
+        return element;
+    }
+
+    /**
+     * Removes up to {@code maxElements} elements, oldest first, passing each to {@code consumer}. Must only be
+     * called from the consumer thread.
+     *
+     * @param consumer    what to pass the elements to
+     * @param maxElements the most elements to remove
+     * @return the number of elements removed
+     */
+    int drain(@NotNull Consumer<? super E> consumer, int maxElements) {
+        int drained = 0;
+        E element;
+        while (drained < maxElements && (element = poll()) != null) {
+            consumer.accept(element);
+            drained++;
+        }
+
+        return drained;
+    }
+
+    /**
+     * Checks if the consumer has nothing to take. Must only be called from the consumer thread.
+     *
+     * @return {@code true} if the buffer is empty
+     */
+    boolean isEmpty() {
+        return sequences.get((int) head & mask) != head + 1;
+    }
+
+    /**
+     * Parks the consumer thread until the buffer is not empty, {@code stopWaiting} is met, or the thread is
+     * interrupted. Must only be called from the consumer thread.
+     *
+     * @param stopWaiting checked after every wake-up, along with the buffer itself
+     */
+    void await(@NotNull BooleanSupplier stopWaiting) {
+        waitingConsumer = Thread.currentThread();
+        try {
+            // Rechecked after publishing the waiting thread, so a producer or wakeUp() racing with it isn't missed
+            while (isEmpty() && !stopWaiting.getAsBoolean() && !Thread.currentThread().isInterrupted()) {
+                LockSupport.park(this);
+            }
+        } finally {
+            waitingConsumer = null;
+        }
+    }
+
+    /**
+     * Unparks the consumer if it is waiting in {@link #await(BooleanSupplier)}, so that it checks its condition
+     * again. Safe to call from any thread.
+     */
+    void wakeUp() {
+        signalConsumer();
+    }
+
+    private void signalConsumer() {
+        Thread consumer = waitingConsumer;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+    }
+}
@@ -26,9 +26,27 @@ import java.nio.file.Files;
 import java.util.Objects;
 
 public class Writer {
+    /**
+     * Text that is only produced once it is written out.
+     */
+    public interface Content {
+        /**
+         * Writes this content to {@code out}.
+         *
+         * @param out where to write the content
+         * @throws IOException if {@code out} cannot be written to
+         */
+        void renderTo(@NotNull java.io.Writer out) throws IOException;
+    }
+
     private static final Logger log = LoggerFactory.getLogger(Writer.class);
+    private static final int CHUNK_SIZE = 8192;
     private final File file;
-    private volatile String dataCache;
+    private volatile Content dataCache;
+    private long dataCacheBytes;
+    private long queuedAtNanos;
+    private long writeNanos;
+    private Runnable whenWritten;
     private final WriterThread writerThread;
 
     /**
@@ -40,12 +58,12 @@ public class Writer {
     }
 
     /**
-     * Allows a Writer to write files eventually versus once {@link #write(String)} is called.
+     * Allows a Writer to write files eventually versus once {@link #write(CharSequence)} is called.
      *
      * @param file the {@link File} to eventually write data to
      * @param writerThread the {@link WriterThread} that writes data
      *
-     * @see #writeDataWithDedicatedThread(String)
+     * @see #writeDataWithDedicatedThread(CharSequence)
      */
     Writer(@NotNull File file, @Nullable WriterThread writerThread) {
         this.file = file;
@@ -53,32 +71,116 @@ public class Writer {
     }
 
     /**
-     * Write the contents of a String to a {@link File}.
+     * Write a sequence of characters to a {@link File}.
      *
      * @param data the data to write
      * @throws IOException the file cannot be written to
      */
-    public void write(String data) throws IOException {
+    public void write(CharSequence data) throws IOException {
+        write(out -> writeInChunks(data, out));
+    }
+
+    void write(@NotNull Content content) throws IOException {
         try (BufferedWriter writer = Files.newBufferedWriter(file.toPath())) {
-            writer.write(data);
+            content.renderTo(writer);
         }
     }
 
     /**
-     * Write the contents of a String to a {@link File} using the dedicated {@link WriterThread} for this
+     * Write a sequence of characters to a {@link File} using the dedicated {@link WriterThread} for this
      * {@code WriterThread}. The {@code File} this {@code Writer} is bound to will eventually be written, as long as this
      * object lives.
      *
      * @param data the data to write
+     * @throws InterruptedException if the current {@link Thread} is interrupted before the data is queued
      * @see #canUseWriterThread()
      */
-    synchronized void writeDataWithDedicatedThread(@NotNull String data) {
+    void writeDataWithDedicatedThread(@NotNull CharSequence data) throws InterruptedException {
+        writeDataWithDedicatedThread(out -> writeInChunks(data, out), (long) data.length() * Character.BYTES);
+    }
+
+    /**
+     * Copies characters to {@code out} through one small buffer. Appending a {@link CharSequence} to a
+     * {@link java.io.Writer} would first copy all of it into a new {@link String}.
+     *
+     * @param data the characters to write
+     * @param out  where to write them
+     * @throws IOException if {@code out} cannot be written to
+     */
+    static void writeInChunks(@NotNull CharSequence data, @NotNull java.io.Writer out) throws IOException {
+        if (data instanceof String) {
+            out.write((String) data);
+            return;
+        }
+
+        char[] chunk = new char[Math.min(CHUNK_SIZE, data.length())];
+        for (int start = 0; start < data.length(); start += chunk.length) {
+            int end = Math.min(start + chunk.length, data.length());
+            if (data instanceof StringBuilder) {
+                ((StringBuilder) data).getChars(start, end, chunk, 0);
+            } else {
+                for (int i = start; i < end; i++) {
+                    chunk[i - start] = data.charAt(i);
+                }
+            }
+            out.write(chunk, 0, end - start);
+        }
+    }
+
+    /**
+     * Write {@link Content} to a {@link File} using the dedicated {@link WriterThread}, producing the text only
+     * once the {@code WriterThread} gets to this {@code Writer}. Blocks while the {@link ByteBudget} of the
+     * {@code WriterThread} has no room for the content.
+     *
+     * @param content     the content to write
+     * @param sizeInBytes how much memory the content holds until it is written
+     * @throws InterruptedException if the current {@link Thread} is interrupted before the content is queued
+     * @see #writeDataWithDedicatedThread(CharSequence)
+     */
+    synchronized void writeDataWithDedicatedThread(@NotNull Content content, long sizeInBytes)
+        throws InterruptedException {
         if (!canUseWriterThread()) {
             throw new IllegalStateException("Not bound to writing thread");
         }
 
-        dataCache = data;
-        Objects.requireNonNull(writerThread).addWriter(this);
+        dataCache = content;
+        dataCacheBytes = sizeInBytes;
+        queuedAtNanos = System.nanoTime();
+        try {
+            Objects.requireNonNull(writerThread).addWriter(this, sizeInBytes);
+        } catch (InterruptedException e) {
+            dataCache = null;
+            throw e;
+        }
+    }
+
+    /**
+     * Sets what to run on the {@link WriterThread} once it has written the file. It isn't run if writing fails,
+     * and if it throws, the write counts as failed.
+     *
+     * @param whenWritten what to run after the file is written
+     */
+    public synchronized void whenWritten(@NotNull Runnable whenWritten) {
+        this.whenWritten = whenWritten;
+    }
+
+    /**
+     * Returns when the content was handed to the {@link WriterThread}, before waiting for room in its queue.
+     *
+     * @return the {@link System#nanoTime()} at which the content was queued
+     */
+    public synchronized long queuedAtNanos() {
+        return queuedAtNanos;
+    }
+
+    /**
+     * Returns how long the {@link WriterThread} took to write the file, not counting the time the content waited
+     * in its queue. Only set once the file is written, such as from {@link #whenWritten(Runnable)}.
+     *
+     * @return the time taken to write the file, in nanoseconds
+     */
+    public synchronized long writeNanos() {
+        return writeNanos;
     }
 
     /**
@@ -96,11 +198,21 @@ public class Writer {
             return;
         }
 
+        WriterThread thread = Objects.requireNonNull(writerThread);
         try {
+            long startTime = System.nanoTime();
             write(dataCache);
-        } catch (IOException e) {
-            log.error("Encountered an error writing to file", e);
+            writeNanos = System.nanoTime() - startTime;
+            if (whenWritten != null) {
+                whenWritten.run();
+            }
+        } catch (IOException | RuntimeException e) {
+            // the writer thread must outlive a bad file, so the others still get written
+            log.error("Encountered an error writing to file {}", file, e);
+            thread.failed();
+        } finally {
+            dataCache = null;
+            thread.written(dataCacheBytes);
         }
-        dataCache = null;
     }
 }
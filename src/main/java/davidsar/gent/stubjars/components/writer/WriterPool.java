@@ -0,0 +1,116 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars.components.writer;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A fixed set of {@link WriterThread}s that write files concurrently. Each {@link Writer} is bound to one of the
+ * threads, taken in turn from {@link #next()}, so each thread still has a queue with a single consumer.
+ */
+public final class WriterPool {
+    private final WriterThread[] threads;
+    private final ByteBudget budget;
+    private final AtomicInteger nextThread = new AtomicInteger();
+
+    /**
+     * Creates a pool of writer threads, which are not started yet.
+     *
+     * @param threads the number of threads, at least one
+     */
+    public WriterPool(int threads) {
+        this(threads, ByteBudget.unbounded());
+    }
+
+    /**
+     * Creates a pool of writer threads, which are not started yet, that share one budget for pending content.
+     *
+     * @param threads the number of threads, at least one
+     * @param budget  the bytes that pending writers of all the threads may hold
+     */
+    public WriterPool(int threads, @NotNull ByteBudget budget) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("There must be at least one writer thread");
+        }
+
+        this.budget = budget;
+        this.threads = new WriterThread[threads];
+        for (int i = 0; i < threads; i++) {
+            WriterThread thread = new WriterThread(budget);
+            thread.setName("stubjars-writer-" + i);
+            this.threads[i] = thread;
+        }
+    }
+
+    public void start() {
+        for (WriterThread thread : threads) {
+            thread.start();
+        }
+    }
+
+    public int size() {
+        return threads.length;
+    }
+
+    @NotNull
+    public ByteBudget budget() {
+        return budget;
+    }
+
+    /**
+     * Returns the thread to bind the next {@link Writer} to.
+     *
+     * @return one of the threads of this pool
+     */
+    @NotNull
+    public WriterThread next() {
+        return threads[Math.floorMod(nextThread.getAndIncrement(), threads.length)];
+    }
+
+    /**
+     * Tells every thread that no more writers are coming, so that each stops once its queue is empty.
+     */
+    public void done() {
+        for (WriterThread thread : threads) {
+            thread.done();
+        }
+    }
+
+    /**
+     * Checks if any thread of this pool failed to write a file.
+     *
+     * @return {@code true} if writing a file failed
+     */
+    public boolean hasFailed() {
+        for (WriterThread thread : threads) {
+            if (thread.hasFailed()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Waits for every thread to write out all of its pending files and stop. Call {@link #done()} first.
+     *
+     * @throws InterruptedException if the current {@link Thread} is interrupted while waiting
+     */
+    public void waitForCompletion() throws InterruptedException {
+        for (WriterThread thread : threads) {
+            thread.join();
+        }
+    }
+}
@@ -13,8 +13,7 @@
 
 package davidsar.gent.stubjars.components.writer;
 
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
 
 /**
  * A specialized {@link Thread} for operations with a {@link Writer}.
@@ -22,28 +21,69 @@ import java.util.concurrent.TimeUnit;
  * @see Writer
  */
 public class WriterThread extends Thread implements Runnable {
-    private final ArrayBlockingQueue<Writer> writersToProcess;
+    private static final int CAPACITY = 8192;
+    private static final int DRAIN_BATCH = 256;
+
+    private final MpscRingBuffer<Writer> writersToProcess;
+    private final ByteBudget budget;
     private Thread runningThread = null;
     private volatile boolean stop = false;
+    private volatile boolean failed = false;
 
     public WriterThread() {
+        this(ByteBudget.unbounded());
+    }
+
+    /**
+     * Creates a writer thread that holds back writers while their pending content is over {@code budget}.
+     *
+     * @param budget the bytes that pending writers may hold, which can be shared with other threads
+     */
+    public WriterThread(@NotNull ByteBudget budget) {
         super();
-        writersToProcess = new ArrayBlockingQueue<>(5000);
+        writersToProcess = new MpscRingBuffer<>(CAPACITY);
+        this.budget = budget;
     }
 
     public void done() {
         stop = true;
-        // runningThread.interrupt();
+        writersToProcess.wakeUp();
     }
 
-    void addWriter(Writer writer) {
+    /**
+     * Queues a writer, first reserving its pending content in the {@link ByteBudget}.
+     *
+     * @param writer      the writer to queue
+     * @param sizeInBytes how much memory the content of the writer holds until it is written
+     * @throws InterruptedException if the current {@link Thread} is interrupted before the writer is queued
+     */
+    void addWriter(Writer writer, long sizeInBytes) throws InterruptedException {
+        budget.acquire(sizeInBytes);
         try {
             writersToProcess.put(writer);
         } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+            budget.release(sizeInBytes);
+            throw e;
         }
     }
 
+    void written(long sizeInBytes) {
+        budget.release(sizeInBytes);
+    }
+
+    void failed() {
+        failed = true;
+    }
+
+    /**
+     * Checks if any file handed to this thread could not be written.
+     *
+     * @return {@code true} if writing a file failed
+     */
+    public boolean hasFailed() {
+        return failed;
+    }
+
     /**
      * Waits for all of the pending I/O operations to complete.
      *
@@ -57,18 +97,16 @@ public class WriterThread extends Thread implements Runnable {
     }
 
     private void internalRun() {
-        while (!Thread.currentThread().isInterrupted() && !stop) {
-            while (!(writersToProcess.isEmpty() && stop)) {
-                Writer writer;
-                try {
-                    writer = writersToProcess.poll(100, TimeUnit.MILLISECONDS);
-                    if (writer != null) {
-                        writer.threadWrite();
-                    }
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                }
+        while (!Thread.currentThread().isInterrupted()) {
+            if (writersToProcess.drain(Writer::threadWrite, DRAIN_BATCH) > 0) {
+                continue;
+            }
+
+            // Writers are only added before done() is called, so once stopped an empty buffer stays empty
+            if (stop && writersToProcess.isEmpty()) {
+                return;
             }
+            writersToProcess.await(() -> stop);
         }
     }
 
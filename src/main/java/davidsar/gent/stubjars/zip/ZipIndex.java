@@ -0,0 +1,444 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars.zip;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A read-only index over the central directory of a ZIP archive, such as a JAR.
+ * <p>
+ * The archive is memory-mapped once and the central directory is parsed up front, so looking up an entry is
+ * a hash lookup and reading a stored entry is a zero-copy slice of the mapping. Deflated entries are inflated
+ * straight from the mapping into a buffer of the exact uncompressed size. An index is safe to share between
+ * threads.
+ */
+public final class ZipIndex {
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY = 0x06064b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR = 0x07064b50;
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+    private static final int ZIP64_EXTRA_FIELD = 0x0001;
+    private static final int CENTRAL_DIRECTORY_HEADER = 0x02014b50;
+    private static final int CENTRAL_DIRECTORY_HEADER_SIZE = 46;
+    private static final int LOCAL_FILE_HEADER = 0x04034b50;
+    private static final int LOCAL_FILE_HEADER_SIZE = 30;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+    private static final long MAGIC_SIZE = 0xFFFFFFFFL;
+    private static final int MAGIC_COUNT = 0xFFFF;
+    private static final int EXTRACT_CHUNK_SIZE = 64 * 1024;
+
+    private final String name;
+    private final ByteBuffer archive;
+    private final List<ZipIndexEntry> entries;
+    private final Map<String, ZipIndexEntry> entriesByName;
+
+    private ZipIndex(@NotNull String name, @NotNull ByteBuffer archive) throws IOException {
+        this.name = name;
+        this.archive = archive.slice().order(ByteOrder.LITTLE_ENDIAN);
+        this.entries = Collections.unmodifiableList(readCentralDirectory());
+        this.entriesByName = new HashMap<>(entries.size() * 4 / 3 + 1);
+        for (ZipIndexEntry entry : entries) {
+            entriesByName.putIfAbsent(entry.name(), entry);
+        }
+    }
+
+    /**
+     * Memory-maps and indexes a ZIP archive on disk. The file is closed again before this method returns; the
+     * mapping stays valid for as long as the index is reachable.
+     *
+     * @param path the archive to index
+     * @return a new index over the archive
+     * @throws IOException if the file cannot be read or is not a ZIP archive
+     */
+    @NotNull
+    public static ZipIndex open(@NotNull Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Archive is too large to be mapped: " + path);
+            }
+
+            return new ZipIndex(path.toString(), channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /**
+     * Indexes a ZIP archive that is already in memory, such as an archive nested in another archive.
+     *
+     * @param name    a name for the archive, used in error messages
+     * @param archive the bytes of the whole archive, from its position to its limit
+     * @return a new index over the archive
+     * @throws IOException if the bytes are not a ZIP archive
+     */
+    @NotNull
+    public static ZipIndex of(@NotNull String name, @NotNull ByteBuffer archive) throws IOException {
+        return new ZipIndex(name, archive);
+    }
+
+    @NotNull
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Returns the entries of this archive in central directory order.
+     *
+     * @return an unmodifiable list of every entry
+     */
+    @NotNull
+    public List<ZipIndexEntry> entries() {
+        return entries;
+    }
+
+    @Nullable
+    public ZipIndexEntry entry(@NotNull String entryName) {
+        return entriesByName.get(entryName);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns a hash of the central directory: the name, CRC and size of every entry. It identifies the
+     * contents of the archive across runs without reading any of them, as the CRCs are already in the index.
+     *
+     * @return the SHA-256 hash as lowercase hexadecimal digits
+     */
+    @NotNull
+    public String centralDirectoryHash() {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required of every Java platform", e);
+        }
+
+        ByteBuffer fields = ByteBuffer.allocate(2 * Long.BYTES);
+        for (ZipIndexEntry entry : entries) {
+            digest.update(entry.name().getBytes(UTF_8));
+            fields.clear();
+            fields.putLong(entry.crc()).putLong(entry.size()).flip();
+            digest.update(fields);
+        }
+
+        StringBuilder hash = new StringBuilder(64);
+        for (byte b : digest.digest()) {
+            hash.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hash.toString();
+    }
+
+    /**
+     * Returns the uncompressed contents of an entry. Stored entries are served as a read-only slice of the
+     * archive without copying; deflated entries are inflated into a new buffer and checked against their CRC.
+     *
+     * @param entry an entry of this archive
+     * @return a buffer positioned at the start of the contents, with its limit at the end
+     * @throws IOException if the entry is corrupt or uses an unsupported compression method
+     */
+    @NotNull
+    public ByteBuffer read(@NotNull ZipIndexEntry entry) throws IOException {
+        ByteBuffer data = rawData(entry);
+        switch (entry.method()) {
+            case ZipIndexEntry.METHOD_STORED:
+                return data;
+            case ZipIndexEntry.METHOD_DEFLATED:
+                return inflate(entry, data);
+            default:
+                throw new IOException("Unsupported compression method " + entry.method() + " for " + describe(entry));
+        }
+    }
+
+    /**
+     * Writes the uncompressed contents of an entry to a file, replacing it if it exists. Deflated entries are
+     * inflated a chunk at a time, so the entry is never held in memory whole, and are checked against their CRC.
+     *
+     * @param entry  an entry of this archive
+     * @param target the file to write
+     * @throws IOException if the entry is corrupt, uses an unsupported compression method or cannot be written
+     */
+    public void extract(@NotNull ZipIndexEntry entry, @NotNull Path target) throws IOException {
+        ByteBuffer data = rawData(entry);
+        if (entry.method() != ZipIndexEntry.METHOD_STORED && entry.method() != ZipIndexEntry.METHOD_DEFLATED) {
+            throw new IOException("Unsupported compression method " + entry.method() + " for " + describe(entry));
+        }
+
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+            if (entry.method() == ZipIndexEntry.METHOD_STORED) {
+                writeFully(data, out);
+            } else {
+                inflate(entry, data, out);
+            }
+        }
+    }
+
+    /**
+     * Writes the whole archive to a file, replacing it if it exists.
+     *
+     * @param target the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void writeTo(@NotNull Path target) throws IOException {
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(archive.duplicate().clear(), out);
+        }
+    }
+
+    /**
+     * Returns the contents of an entry exactly as stored in the archive, without inflating them.
+     *
+     * @param entry an entry of this archive
+     * @return a read-only slice of the archive holding the (possibly compressed) contents
+     * @throws IOException if the local header of the entry is corrupt
+     */
+    @NotNull
+    public ByteBuffer rawData(@NotNull ZipIndexEntry entry) throws IOException {
+        long headerOffset = entry.offset();
+        if (headerOffset + LOCAL_FILE_HEADER_SIZE > archive.limit()
+            || archive.getInt((int) headerOffset) != LOCAL_FILE_HEADER) {
+            throw new IOException("Missing local header for " + describe(entry));
+        }
+
+        int nameLength = u2((int) headerOffset + 26);
+        int extraLength = u2((int) headerOffset + 28);
+        long dataOffset = headerOffset + LOCAL_FILE_HEADER_SIZE + nameLength + extraLength;
+        if (dataOffset + entry.compressedSize() > archive.limit()) {
+            throw new IOException("Truncated data for " + describe(entry));
+        }
+
+        return slice((int) dataOffset, (int) entry.compressedSize());
+    }
+
+    @NotNull
+    private ByteBuffer inflate(@NotNull ZipIndexEntry entry, @NotNull ByteBuffer compressed) throws IOException {
+        if (entry.size() > Integer.MAX_VALUE) {
+            throw new IOException("Entry is too large to be read: " + describe(entry));
+        }
+
+        ByteBuffer inflated = ByteBuffer.allocate((int) entry.size());
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed);
+            while (!inflater.finished() && inflated.hasRemaining()) {
+                if (inflater.inflate(inflated) == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt deflated data for " + describe(entry), e);
+        } finally {
+            inflater.end();
+        }
+
+        inflated.flip();
+        if (inflated.remaining() != entry.size()) {
+            throw new IOException("Unexpected size of inflated data for " + describe(entry));
+        }
+
+        CRC32 crc32 = new CRC32();
+        crc32.update(inflated.duplicate());
+        if (crc32.getValue() != entry.crc()) {
+            throw new IOException("CRC mismatch for " + describe(entry));
+        }
+
+        return inflated;
+    }
+
+    private void inflate(@NotNull ZipIndexEntry entry, @NotNull ByteBuffer compressed,
+                         @NotNull FileChannel out) throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocate(EXTRACT_CHUNK_SIZE);
+        CRC32 crc32 = new CRC32();
+        long size = 0;
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed);
+            while (!inflater.finished()) {
+                chunk.clear();
+                if (inflater.inflate(chunk) == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+
+                chunk.flip();
+                size += chunk.remaining();
+                crc32.update(chunk.duplicate());
+                writeFully(chunk, out);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt deflated data for " + describe(entry), e);
+        } finally {
+            inflater.end();
+        }
+
+        if (size != entry.size()) {
+            throw new IOException("Unexpected size of inflated data for " + describe(entry));
+        }
+        if (crc32.getValue() != entry.crc()) {
+            throw new IOException("CRC mismatch for " + describe(entry));
+        }
+    }
+
+    private static void writeFully(@NotNull ByteBuffer data, @NotNull FileChannel out) throws IOException {
+        while (data.hasRemaining()) {
+            out.write(data);
+        }
+    }
+
+    @NotNull
+    private List<ZipIndexEntry> readCentralDirectory() throws IOException {
+        int endOfCentralDirectory = findEndOfCentralDirectory();
+        long entryCount = u2(endOfCentralDirectory + 10);
+        long directorySize = u4(endOfCentralDirectory + 12);
+        long directoryOffset = u4(endOfCentralDirectory + 16);
+        if (entryCount == MAGIC_COUNT || directorySize == MAGIC_SIZE || directoryOffset == MAGIC_SIZE) {
+            int zip64End = findZip64EndOfCentralDirectory(endOfCentralDirectory);
+            if (zip64End >= 0) {
+                entryCount = archive.getLong(zip64End + 32);
+                directorySize = archive.getLong(zip64End + 40);
+                directoryOffset = archive.getLong(zip64End + 48);
+            }
+        }
+
+        if (directoryOffset + directorySize > endOfCentralDirectory || entryCount > Integer.MAX_VALUE) {
+            throw new IOException("Corrupt central directory in " + name);
+        }
+
+        List<ZipIndexEntry> result = new ArrayList<>((int) Math.min(entryCount, directorySize / CENTRAL_DIRECTORY_HEADER_SIZE));
+        int position = (int) directoryOffset;
+        int end = (int) (directoryOffset + directorySize);
+        for (long i = 0; i < entryCount; i++) {
+            if (position + CENTRAL_DIRECTORY_HEADER_SIZE > end || archive.getInt(position) != CENTRAL_DIRECTORY_HEADER) {
+                throw new IOException("Corrupt central directory entry " + i + " in " + name);
+            }
+
+            int method = u2(position + 10);
+            long crc = u4(position + 16);
+            long compressedSize = u4(position + 20);
+            long size = u4(position + 24);
+            int nameLength = u2(position + 28);
+            int extraLength = u2(position + 30);
+            int commentLength = u2(position + 32);
+            long localHeaderOffset = u4(position + 42);
+            String entryName = decodeName(position + CENTRAL_DIRECTORY_HEADER_SIZE, nameLength);
+
+            int extra = position + CENTRAL_DIRECTORY_HEADER_SIZE + nameLength;
+            int extraEnd = extra + extraLength;
+            while (extra + 4 <= extraEnd) {
+                int id = u2(extra);
+                int length = u2(extra + 2);
+                if (id == ZIP64_EXTRA_FIELD) {
+                    // ZIP64 values are only present for the fields that overflowed, in this order
+                    int value = extra + 4;
+                    if (size == MAGIC_SIZE) {
+                        size = archive.getLong(value);
+                        value += 8;
+                    }
+                    if (compressedSize == MAGIC_SIZE) {
+                        compressedSize = archive.getLong(value);
+                        value += 8;
+                    }
+                    if (localHeaderOffset == MAGIC_SIZE) {
+                        localHeaderOffset = archive.getLong(value);
+                    }
+                }
+                extra += 4 + length;
+            }
+
+            result.add(new ZipIndexEntry(entryName, method, crc, compressedSize, size, localHeaderOffset));
+            position = extraEnd + commentLength;
+        }
+
+        return result;
+    }
+
+    private int findEndOfCentralDirectory() throws IOException {
+        int last = archive.limit() - END_OF_CENTRAL_DIRECTORY_SIZE;
+        int first = Math.max(0, last - MAX_COMMENT_SIZE);
+        for (int position = last; position >= first; position--) {
+            if (archive.getInt(position) == END_OF_CENTRAL_DIRECTORY) {
+                return position;
+            }
+        }
+
+        throw new IOException("Not a ZIP archive: " + name);
+    }
+
+    private int findZip64EndOfCentralDirectory(int endOfCentralDirectory) {
+        int locator = endOfCentralDirectory - ZIP64_LOCATOR_SIZE;
+        if (locator < 0 || archive.getInt(locator) != ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR) {
+            return -1;
+        }
+
+        long zip64End = archive.getLong(locator + 8);
+        if (zip64End < 0 || zip64End > locator || archive.getInt((int) zip64End) != ZIP64_END_OF_CENTRAL_DIRECTORY) {
+            return -1;
+        }
+
+        return (int) zip64End;
+    }
+
+    @NotNull
+    private String decodeName(int offset, int length) {
+        return UTF_8.decode(slice(offset, length)).toString();
+    }
+
+    @NotNull
+    private ByteBuffer slice(int offset, int length) {
+        ByteBuffer slice = archive.duplicate();
+        slice.position(offset);
+        slice.limit(offset + length);
+        return slice.slice().asReadOnlyBuffer();
+    }
+
+    private int u2(int offset) {
+        return archive.getShort(offset) & 0xFFFF;
+    }
+
+    private long u4(int offset) {
+        return archive.getInt(offset) & 0xFFFFFFFFL;
+    }
+
+    @NotNull
+    private String describe(@NotNull ZipIndexEntry entry) {
+        return entry.name() + " in " + name;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
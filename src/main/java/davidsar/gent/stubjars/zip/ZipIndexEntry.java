@@ -0,0 +1,104 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars.zip;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * One entry of the central directory of a {@link ZipIndex}.
+ */
+public final class ZipIndexEntry {
+    static final int METHOD_STORED = 0;
+    static final int METHOD_DEFLATED = 8;
+
+    private final String name;
+    private final int method;
+    private final long crc;
+    private final long compressedSize;
+    private final long size;
+    private final long localHeaderOffset;
+
+    ZipIndexEntry(@NotNull String name, int method, long crc, long compressedSize, long size, long localHeaderOffset) {
+        this.name = name;
+        this.method = method;
+        this.crc = crc;
+        this.compressedSize = compressedSize;
+        this.size = size;
+        this.localHeaderOffset = localHeaderOffset;
+    }
+
+    @NotNull
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Returns the compression method of this entry; only stored ({@code 0}) and deflated ({@code 8}) entries
+     * can be read.
+     *
+     * @return the compression method
+     */
+    public int method() {
+        return method;
+    }
+
+    /**
+     * Returns the CRC-32 of the uncompressed contents of this entry.
+     *
+     * @return the CRC-32 checksum, as an unsigned 32-bit value
+     */
+    public long crc() {
+        return crc;
+    }
+
+    public long compressedSize() {
+        return compressedSize;
+    }
+
+    /**
+     * Returns the uncompressed size of this entry.
+     *
+     * @return the size in bytes
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Returns the offset of the local file header of this entry from the start of the archive.
+     *
+     * @return the offset in bytes
+     */
+    public long offset() {
+        return localHeaderOffset;
+    }
+
+    /**
+     * Returns whether this entry is stored without compression, so that reading it doesn't copy it.
+     *
+     * @return {@code true} if this entry is stored
+     */
+    public boolean isStored() {
+        return method == METHOD_STORED;
+    }
+
+    public boolean isDirectory() {
+        return name.endsWith("/");
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
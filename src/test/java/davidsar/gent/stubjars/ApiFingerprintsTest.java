@@ -0,0 +1,87 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars;
+
+import davidsar.gent.stubjars.components.JarClass;
+import davidsar.gent.stubjars.components.TestConstructorClass;
+import davidsar.gent.stubjars.components.TestImplementation;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import static davidsar.gent.stubjars.components.TestJarClasses.jarClass;
+
+public class ApiFingerprintsTest {
+    @Test
+    public void fingerprintsAreStableAcrossRuns() {
+        JarClass clazz = jarClass(TestImplementation.class);
+
+        Assert.assertEquals(new ApiFingerprints().fingerprint(clazz), new ApiFingerprints().fingerprint(clazz));
+    }
+
+    @Test
+    public void fingerprintsDifferBetweenClasses() {
+        ApiFingerprints fingerprints = new ApiFingerprints();
+
+        Assert.assertNotEquals(
+            fingerprints.fingerprint(jarClass(TestImplementation.class)),
+            fingerprints.fingerprint(jarClass(TestConstructorClass.class)));
+    }
+
+    @Test
+    public void fingerprintsCoverReferencedClasses() throws ClassNotFoundException {
+        String hiddenClassFile = Level.class.getName().replace('.', '/') + ".class";
+        ClassLoader hidingLoader = new ClassLoader(ApiFingerprintsTest.class.getClassLoader()) {
+            @Override
+            public InputStream getResourceAsStream(String name) {
+                return name.equals(hiddenClassFile) ? null : super.getResourceAsStream(name);
+            }
+        };
+
+        Assert.assertNotEquals(
+            new ApiFingerprints().fingerprint(jarClass(Logged.class)),
+            new ApiFingerprints().fingerprint(new JarClass(ClassPath.ofResources(hidingLoader), Logged.class.getName())));
+    }
+
+    @Test
+    public void storesAndLoadsFingerprints() throws IOException {
+        File file = Files.createTempFile("fingerprints", ".tsv").toFile();
+        try {
+            Map<String, String> fingerprints = new HashMap<>();
+            fingerprints.put("a.B", "0123");
+            fingerprints.put("c.D", "4567");
+            ApiFingerprints.store(file, fingerprints);
+
+            Assert.assertEquals(fingerprints, ApiFingerprints.load(file));
+        } finally {
+            file.delete();
+        }
+
+        Assert.assertTrue(ApiFingerprints.load(file).isEmpty());
+    }
+
+    enum Level {
+        LOW, HIGH
+    }
+
+    @interface Logged {
+        Level value() default Level.LOW;
+    }
+}
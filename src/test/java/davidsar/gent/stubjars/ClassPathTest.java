@@ -0,0 +1,55 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+
+package davidsar.gent.stubjars;
+
+import davidsar.gent.stubjars.classfile.ClassModel;
+import davidsar.gent.stubjars.components.TestClass;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ClassPathTest {
+    @Test
+    public void readsClassesOfTheJdkAndTheResources() {
+        ClassPath classPath = ClassPath.ofResources(ClassPathTest.class.getClassLoader());
+
+        ClassModel map = classPath.find("java.util.Map$Entry");
+        Assert.assertNotNull(map);
+        Assert.assertEquals("java.util.Map$Entry", map.name());
+        Assert.assertNotNull(classPath.find(TestClass.class.getName()));
+        Assert.assertSame(map, classPath.find("java.util.Map$Entry"));
+    }
+
+    @Test
+    public void findsNothingForMissingClasses() {
+        ClassPath classPath = ClassPath.ofResources(ClassPathTest.class.getClassLoader());
+
+        Assert.assertNull(classPath.find("does.not.Exist"));
+        try {
+            classPath.get("does.not.Exist");
+            Assert.fail("Expected a MissingClassException");
+        } catch (MissingClassException e) {
+            Assert.assertEquals("does.not.Exist", e.className());
+        }
+    }
+
+    @Test
+    public void prefersRegisteredModels() {
+        ClassPath classPath = ClassPath.ofResources(ClassPathTest.class.getClassLoader());
+        ClassModel model = ClassPath.ofResources(ClassPathTest.class.getClassLoader()).get(TestClass.class.getName());
+
+        classPath.register(model);
+        Assert.assertSame(model, classPath.get(TestClass.class.getName()));
+    }
+}
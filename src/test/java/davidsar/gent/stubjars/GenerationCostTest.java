@@ -0,0 +1,43 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars;
+
+import davidsar.gent.stubjars.classfile.ClassModel;
+import davidsar.gent.stubjars.components.TestConstructorClass;
+import davidsar.gent.stubjars.components.TestInterface;
+import org.junit.Assert;
+import org.junit.Test;
+
+import static davidsar.gent.stubjars.components.TestJarClasses.CLASS_PATH;
+import static davidsar.gent.stubjars.components.TestJarClasses.jarClass;
+
+public class GenerationCostTest {
+    @Test
+    public void countsClassFileAndMembers() {
+        ClassModel model = CLASS_PATH.get(TestInterface.class.getName());
+        long expected = 1 + model.classFileSize()
+            + (long) GenerationCost.MEMBER_WEIGHT * (model.fields().size() + model.methods().size());
+
+        Assert.assertEquals(expected, GenerationCost.estimate(jarClass(TestInterface.class)));
+    }
+
+    @Test
+    public void includesNestedClasses() {
+        ClassModel outer = CLASS_PATH.get(TestConstructorClass.class.getName());
+        ClassModel nested = CLASS_PATH.get(TestConstructorClass.Result.class.getName());
+
+        Assert.assertTrue(GenerationCost.estimate(jarClass(TestConstructorClass.class))
+            > outer.classFileSize() + nested.classFileSize());
+    }
+}
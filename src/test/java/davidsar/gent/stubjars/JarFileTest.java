@@ -0,0 +1,194 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars;
+
+import davidsar.gent.stubjars.components.JarClass;
+import davidsar.gent.stubjars.components.TestConstructorClass;
+import davidsar.gent.stubjars.components.TestInterface;
+import davidsar.gent.stubjars.zip.ZipIndex;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class JarFileTest {
+    private static final Class<?> ANONYMOUS_CLASS = new Object() { }.getClass();
+
+    @Test
+    public void findsTopLevelAndNestedClasses() throws IOException {
+        Path directory = Files.createTempDirectory("jar-file");
+        try {
+            File jar = directory.resolve("classes.jar").toFile();
+            Files.write(jar.toPath(), jar());
+
+            Assert.assertEquals(expectedClasses(), classNames(JarFile.forFile(jar)));
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void readsStoredAarClassesJarInPlace() throws IOException {
+        Path directory = Files.createTempDirectory("jar-file");
+        try {
+            File aar = directory.resolve("stored.aar").toFile();
+            Files.write(aar.toPath(), aar(ZipEntry.STORED));
+            File extractDirectory = directory.resolve("extracted").toFile();
+
+            JarFile jarFile = JarFile.forAar(aar, extractDirectory);
+            Assert.assertEquals(expectedClasses(), classNames(jarFile));
+            Assert.assertFalse(extractDirectory.exists());
+
+            File classpathFile = jarFile.classpathFile();
+            Assert.assertEquals(extractDirectory, classpathFile.getParentFile());
+            Assert.assertEquals(jarFile.index().size(), ZipIndex.open(classpathFile.toPath()).size());
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void extractsDeflatedAarClassesJarToDisk() throws IOException {
+        Path directory = Files.createTempDirectory("jar-file");
+        try {
+            File aar = directory.resolve("deflated.aar").toFile();
+            Files.write(aar.toPath(), aar(ZipEntry.DEFLATED));
+            File extractDirectory = directory.resolve("extracted").toFile();
+
+            JarFile jarFile = JarFile.forAar(aar, extractDirectory);
+            File[] extracted = extractDirectory.listFiles();
+            Assert.assertNotNull(extracted);
+            Assert.assertEquals(1, extracted.length);
+            Assert.assertArrayEquals(jar(), Files.readAllBytes(extracted[0].toPath()));
+            Assert.assertEquals(extracted[0], jarFile.classpathFile());
+            Assert.assertEquals(expectedClasses(), classNames(jarFile));
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsAarsWithoutClassesJar() throws IOException {
+        Path directory = Files.createTempDirectory("jar-file");
+        try {
+            File aar = directory.resolve("empty.aar").toFile();
+            Files.write(aar.toPath(), zip(new LinkedHashMap<>(), ZipEntry.DEFLATED));
+
+            JarFile.forAar(aar, directory.resolve("extracted").toFile());
+        } finally {
+            delete(directory);
+        }
+    }
+
+    private static Set<String> classNames(JarFile jarFile) throws IOException {
+        ClassPath classPath = ClassPath.ofResources(JarFileTest.class.getClassLoader());
+        return jarFile.getClasses(classPath, null).stream().map(JarClass::fullName).collect(Collectors.toSet());
+    }
+
+    /**
+     * Lists the classes the JAR built by {@link #jar()} is expected to stub: its top-level classes and every class
+     * nested in them, but not the anonymous class it also holds.
+     */
+    private static Set<String> expectedClasses() {
+        Set<String> names = new HashSet<>();
+        for (Class<?> clazz : topLevelClasses()) {
+            names.add(clazz.getName());
+            names.addAll(nestedClasses(clazz));
+        }
+        return names;
+    }
+
+    private static Class<?>[] topLevelClasses() {
+        return new Class<?>[] {TestConstructorClass.class, TestInterface.class};
+    }
+
+    private static Set<String> nestedClasses(Class<?> topLevelClass) {
+        Set<String> names = new HashSet<>();
+        Deque<Class<?>> pending = new ArrayDeque<>();
+        pending.push(topLevelClass);
+        while (!pending.isEmpty()) {
+            for (Class<?> nested : pending.pop().getDeclaredClasses()) {
+                names.add(nested.getName());
+                pending.push(nested);
+            }
+        }
+        return names;
+    }
+
+    private static byte[] jar() throws IOException {
+        Set<String> names = expectedClasses();
+        names.add(ANONYMOUS_CLASS.getName());
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        for (String name : names.stream().sorted().collect(Collectors.toList())) {
+            String entryName = name.replace('.', '/') + ".class";
+            try (InputStream classFile = JarFileTest.class.getClassLoader().getResourceAsStream(entryName)) {
+                Assert.assertNotNull(classFile);
+                entries.put(entryName, classFile.readAllBytes());
+            }
+        }
+        return zip(entries, ZipEntry.DEFLATED);
+    }
+
+    private static byte[] aar(int classesJarMethod) throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        entries.put("AndroidManifest.xml", "<manifest/>".getBytes());
+        entries.put("classes.jar", jar());
+        return zip(entries, classesJarMethod);
+    }
+
+    private static byte[] zip(Map<String, byte[]> entries, int method) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                ZipEntry zipEntry = new ZipEntry(entry.getKey());
+                zipEntry.setMethod(method);
+                if (method == ZipEntry.STORED) {
+                    CRC32 crc = new CRC32();
+                    crc.update(entry.getValue());
+                    zipEntry.setSize(entry.getValue().length);
+                    zipEntry.setCrc(crc.getValue());
+                }
+                zip.putNextEntry(zipEntry);
+                zip.write(entry.getValue());
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MainTest {
+    @Test
+    public void acceptsWholeNumbersInRange() {
+        Assert.assertEquals(Long.valueOf(1), Main.positiveValue("1", Integer.MAX_VALUE));
+        Assert.assertEquals(Long.valueOf(Integer.MAX_VALUE), Main.positiveValue("2147483647", Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void rejectsInvalidNumbers() {
+        Assert.assertNull(Main.positiveValue("0", Integer.MAX_VALUE));
+        Assert.assertNull(Main.positiveValue("-4", Integer.MAX_VALUE));
+        Assert.assertNull(Main.positiveValue("2147483648", Integer.MAX_VALUE));
+        Assert.assertNull(Main.positiveValue("99999999999999999999", Long.MAX_VALUE));
+        Assert.assertNull(Main.positiveValue("four", Integer.MAX_VALUE));
+        Assert.assertNull(Main.positiveValue("1.5", Integer.MAX_VALUE));
+        Assert.assertNull(Main.positiveValue("", Integer.MAX_VALUE));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void builderRejectsNoThreads() {
+        StubJars.builder().setThreads(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void builderRejectsEmptyBatches() {
+        StubJars.builder().setBatchSize(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void builderRejectsNoWriterThreads() {
+        StubJars.builder().setWriterThreads(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void builderRejectsAnEmptyWriteBuffer() {
+        StubJars.builder().setWriteBufferMb(0);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class PackageGraphTest {
+    @Test
+    public void findsClassesInMethodDescriptor() {
+        Assert.assertEquals(Arrays.asList("java/lang/String", "java/util/List", "java/io/File"),
+            referencedClasses("(I[Ljava/lang/String;[[Ljava/util/List;J)Ljava/io/File;"));
+    }
+
+    @Test
+    public void findsClassesInGenericSignature() {
+        Assert.assertEquals(Arrays.asList("java/lang/Comparable", "java/util/Map", "java/lang/Number", "a/Outer",
+            "java/lang/Object", "java/lang/Exception"),
+            referencedClasses("<T::Ljava/lang/Comparable<TT;>;>"
+                + "(Ljava/util/Map<+Ljava/lang/Number;*>;TT;)La/Outer<-Ljava/lang/Object;>.Inner<TT;>;"
+                + "^Ljava/lang/Exception;^TT;"));
+    }
+
+    @Test
+    public void findsBoundsOfFormalTypeParameters() {
+        Assert.assertEquals(Arrays.asList("java/lang/Comparable", "java/lang/Object", "java/lang/Runnable",
+            "a/Base"),
+            referencedClasses("<T::Ljava/lang/Comparable<TT;>;U:Ljava/lang/Object;:Ljava/lang/Runnable;>La/Base;"));
+    }
+
+    @Test
+    public void findsOuterClassOfNestedType() {
+        Assert.assertEquals(Arrays.asList("a/Outer", "java/lang/Object", "java/lang/String"),
+            referencedClasses("La/Outer<Ljava/lang/Object;>.Inner<Ljava/lang/String;>;"));
+    }
+
+    @Test
+    public void skipsTypeVariablesAndWildcards() {
+        Assert.assertEquals(Arrays.asList("java/util/Map", "java/lang/Number"),
+            referencedClasses("(Ljava/util/Map<*+Ljava/lang/Number;>;TT;[TU;)V"));
+    }
+
+    @Test
+    public void packageOfClass() {
+        Assert.assertEquals("java.util", PackageGraph.packageOf("java/util/Map$Entry"));
+        Assert.assertEquals("", PackageGraph.packageOf("Unpackaged"));
+    }
+
+    @Test
+    public void ordersDependenciesFirst() {
+        PackageGraph graph = new PackageGraph();
+        graph.addPackage("a");
+        graph.addPackage("b");
+        graph.addPackage("c");
+        graph.addDependency("a", "b");
+        graph.addDependency("b", "c");
+
+        Assert.assertEquals(Arrays.asList(Collections.singletonList("c"), Collections.singletonList("b"),
+            Collections.singletonList("a")), graph.components());
+    }
+
+    @Test
+    public void groupsPackagesThatReferToEachOther() {
+        PackageGraph graph = new PackageGraph();
+        graph.addPackage("app");
+        graph.addPackage("x");
+        graph.addPackage("y");
+        graph.addPackage("util");
+        graph.addDependency("app", "x");
+        graph.addDependency("x", "y");
+        graph.addDependency("y", "x");
+        graph.addDependency("y", "util");
+
+        Assert.assertEquals(Arrays.asList(Collections.singletonList("util"), Arrays.asList("x", "y"),
+            Collections.singletonList("app")), graph.components());
+    }
+
+    @Test
+    public void ignoresUnknownPackagesAndSelfReferences() {
+        PackageGraph graph = new PackageGraph();
+        graph.addPackage("a");
+        graph.addDependency("a", "a");
+        graph.addDependency("a", "java.lang");
+        graph.addDependency("java.lang", "a");
+
+        Assert.assertTrue(graph.dependenciesOf("a").isEmpty());
+        Assert.assertEquals(Collections.singletonList(Collections.singletonList("a")), graph.components());
+    }
+
+    private static List<String> referencedClasses(String signature) {
+        List<String> classes = new ArrayList<>();
+        PackageGraph.referencedClasses(signature, classes::add);
+        return classes;
+    }
+}
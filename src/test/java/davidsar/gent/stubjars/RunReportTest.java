@@ -0,0 +1,54 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+public class RunReportTest {
+    @Test
+    public void storesClassesByEstimatedCost() throws IOException {
+        RunReport report = new RunReport();
+        report.record("a.Small", 10, 2_000);
+        report.record("a.Large", 500, 9_000);
+        File file = Files.createTempFile("report", ".tsv").toFile();
+        try {
+            report.store(file);
+
+            Assert.assertEquals(Arrays.asList("class\testimated_cost\tgenerate_and_write_us", "a.Large\t500\t9", "a.Small\t10\t2"),
+                Files.readAllLines(file.toPath()));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void correlatesRanks() {
+        RunReport report = new RunReport();
+        Assert.assertTrue(Double.isNaN(report.rankCorrelation()));
+
+        report.record("a.A", 1, 100);
+        report.record("a.B", 2, 200);
+        report.record("a.C", 3, 300);
+        Assert.assertEquals(1.0, report.rankCorrelation(), 1e-9);
+
+        report.record("a.D", 4, 50);
+        Assert.assertEquals(-0.2, report.rankCorrelation(), 1e-9);
+    }
+}
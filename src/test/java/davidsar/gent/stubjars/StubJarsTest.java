@@ -0,0 +1,40 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class StubJarsTest {
+    @Test
+    public void sortsTheSourcesListWhateverTheBatchOrder() {
+        List<String> first = Arrays.asList("/src/b/B.java", "/src/a/A.java");
+        List<String> second = Arrays.asList("/src/c/C.java");
+        String expected = String.join(System.lineSeparator(), "/src/a/A.java", "/src/b/B.java", "/src/c/C.java")
+            + System.lineSeparator();
+
+        Assert.assertEquals(expected, StubJars.sourcesListContents(Arrays.asList(first, second)).toString());
+        Assert.assertEquals(expected, StubJars.sourcesListContents(Arrays.asList(second, first)).toString());
+    }
+
+    @Test
+    public void leavesTheSourcesListEmptyWithoutSources() {
+        Assert.assertEquals("", StubJars.sourcesListContents(Collections.emptyList()).toString());
+        Assert.assertEquals("", StubJars.sourcesListContents(Arrays.asList(Collections.emptyList())).toString());
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars.classfile;
+
+import davidsar.gent.stubjars.components.TestConstructorClass;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
+
+public class ClassFileReaderTest {
+    @Test
+    public void readsNameAndSupertypes() throws IOException {
+        ClassModel model = read(Constants.class);
+
+        Assert.assertEquals(Constants.class.getName(), model.name());
+        Assert.assertEquals("java/lang/Object", model.superName());
+        Assert.assertEquals(Arrays.asList("java/io/Serializable", "java/util/concurrent/Callable"), model.interfaces());
+    }
+
+    @Test
+    public void readsConstantValues() throws IOException {
+        ClassModel model = read(Constants.class);
+
+        Assert.assertEquals(42, model.field("ANSWER").constantValue());
+        Assert.assertEquals(1L << 40, model.field("BIG").constantValue());
+        Assert.assertEquals(true, model.field("FLAG").constantValue());
+        Assert.assertEquals((byte) 7, model.field("SMALL").constantValue());
+        Assert.assertEquals('x', model.field("LETTER").constantValue());
+        Assert.assertEquals(2.5, model.field("HALVES").constantValue());
+        Assert.assertEquals("caf\u00e9 \0 \ud83d\ude00", model.field("NAME").constantValue());
+        Assert.assertEquals("\ud800 \udfff", model.field("UNPAIRED").constantValue());
+        Assert.assertNull(model.field("NOT_CONSTANT").constantValue());
+        Assert.assertNull(model.field("missing"));
+    }
+
+    @Test
+    public void readsMethodsAndAttributes() throws IOException {
+        ClassModel model = read(Constants.class);
+
+        MethodModel call = model.methods().stream()
+            .filter(method -> method.name().equals("call"))
+            .filter(method -> !method.isBridge())
+            .findFirst().orElseThrow(AssertionError::new);
+        Assert.assertEquals("()Ljava/util/List;", call.descriptor());
+        Assert.assertEquals("()Ljava/util/List<Ljava/lang/String;>;", call.signature());
+        Assert.assertEquals(Collections.singletonList("java/io/IOException"), call.exceptions());
+        Assert.assertTrue(Modifier.isPublic(call.accessFlags()));
+        Assert.assertTrue(model.methods().stream().anyMatch(MethodModel::isConstructor));
+    }
+
+    @Test
+    public void readsInnerClasses() throws IOException {
+        ClassModel outer = read(TestConstructorClass.class);
+        ClassModel nested = read(TestConstructorClass.Result.class);
+
+        Assert.assertFalse(outer.isNested());
+        Assert.assertTrue(nested.isNested());
+        Assert.assertEquals("Result", nested.nestingInfo().simpleName());
+        Assert.assertTrue(Modifier.isStatic(nested.nestingInfo().accessFlags()));
+        List<String> memberNames = outer.innerClasses().stream()
+            .filter(InnerClassModel::isMember)
+            .map(InnerClassModel::simpleName)
+            .sorted()
+            .collect(Collectors.toList());
+        Assert.assertTrue(memberNames.contains("ColorSwatch"));
+        Assert.assertTrue(memberNames.contains("ResultGetter"));
+    }
+
+    @Test
+    public void readsAnonymousClasses() throws IOException {
+        Runnable anonymous = new Runnable() {
+            @Override
+            public void run() {
+            }
+        };
+        ClassModel model = read(anonymous.getClass());
+
+        Assert.assertTrue(model.isNested());
+        Assert.assertFalse(model.nestingInfo().isMember());
+    }
+
+    @Test
+    public void recordsClassFileSize() throws IOException {
+        byte[] classFile;
+        try (InputStream stream = classFileOf(Constants.class)) {
+            classFile = stream.readAllBytes();
+        }
+        byte[] padded = Arrays.copyOf(classFile, classFile.length + 8);
+        ByteBuffer buffer = ByteBuffer.wrap(padded, 0, classFile.length);
+
+        Assert.assertEquals(classFile.length, ClassFileReader.read(buffer).classFileSize());
+    }
+
+    @Test
+    public void readsAnnotationsAndDefaults() throws IOException {
+        ClassModel model = read(Marker.class);
+
+        Assert.assertTrue(model.isAnnotation());
+        Assert.assertTrue(model.isDeprecated());
+        Assert.assertEquals("RUNTIME", model.retention());
+        MethodModel value = model.methods().get(0);
+        Assert.assertEquals("Ljava/lang/Integer;", value.defaultValueDescriptor());
+        Assert.assertEquals(ClassTypeModel.of("java.lang.Integer"), value.defaultValueType());
+        Assert.assertTrue(value.isDeprecated());
+        Assert.assertNull(read(Constants.class).retention());
+        Assert.assertFalse(read(Constants.class).isDeprecated());
+    }
+
+    @Test
+    public void findsClassesOfEnumConstantBodies() throws IOException {
+        ClassModel model = read(Operation.class);
+
+        Assert.assertTrue(model.isEnum());
+        Assert.assertNull(model.enumConstantClass("PLUS"));
+        Assert.assertEquals(Operation.MINUS.getClass().getName().replace('.', '/'), model.enumConstantClass("MINUS"));
+        Assert.assertFalse(read(Operation.MINUS.getClass()).isEnum());
+    }
+
+    @Test
+    public void parsesGenericSignatures() throws IOException {
+        ClassModel model = read(Constants.class);
+
+        Assert.assertEquals(ClassTypeModel.OBJECT, model.genericSuperclass());
+        ClassTypeModel callable = (ClassTypeModel) model.genericInterfaces().get(1);
+        Assert.assertEquals("java.util.concurrent.Callable", callable.name());
+        Assert.assertEquals("java.util.List<java.lang.String>", callable.typeArguments().get(0).toString());
+        MethodModel call = model.methods().stream()
+            .filter(method -> method.name().equals("call") && !method.isBridge())
+            .findFirst().orElseThrow(AssertionError::new);
+        Assert.assertEquals(ClassTypeModel.of("java.util.List"), call.returnType());
+        Assert.assertEquals(Collections.singletonList(ClassTypeModel.of("java.io.IOException")),
+            call.genericExceptionTypes());
+        Assert.assertEquals("arg0", read(Operation.class).methods().stream()
+            .filter(method -> method.name().equals("apply"))
+            .findFirst().orElseThrow(AssertionError::new).parameterName(0));
+    }
+
+    @Test(expected = ClassFormatException.class)
+    public void rejectsNonClassFiles() throws IOException {
+        ClassFileReader.read(new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+    }
+
+    @Test(expected = ClassFormatException.class)
+    public void rejectsTruncatedClassFiles() throws IOException {
+        byte[] classFile;
+        try (InputStream stream = classFileOf(Constants.class)) {
+            classFile = stream.readAllBytes();
+        }
+        ClassFileReader.read(Arrays.copyOf(classFile, classFile.length / 2));
+    }
+
+    private static ClassModel read(Class<?> clazz) throws IOException {
+        try (InputStream stream = classFileOf(clazz)) {
+            return ClassFileReader.read(stream);
+        }
+    }
+
+    private static InputStream classFileOf(Class<?> clazz) {
+        String name = clazz.getName();
+        return clazz.getResourceAsStream(name.substring(name.lastIndexOf('.') + 1) + ".class");
+    }
+
+    @SuppressWarnings("unused")
+    static class Constants implements Serializable, Callable<List<String>> {
+        public static final int ANSWER = 42;
+        public static final long BIG = 1L << 40;
+        public static final boolean FLAG = true;
+        public static final byte SMALL = 7;
+        public static final char LETTER = 'x';
+        public static final double HALVES = 2.5;
+        public static final String NAME = "caf\u00e9 \0 \ud83d\ude00";
+        public static final String UNPAIRED = "\ud800 \udfff";
+        public static final Integer NOT_CONSTANT = 5;
+
+        @Override
+        public List<String> call() throws IOException {
+            return Collections.emptyList();
+        }
+    }
+
+    @Deprecated
+    @Retention(RetentionPolicy.RUNTIME)
+    @interface Marker {
+        @Deprecated
+        int value() default 1;
+    }
+
+    enum Operation {
+        PLUS,
+        MINUS {
+            @Override
+            int apply(int value) {
+                return -value;
+            }
+        };
+
+        int apply(int value) {
+            return value;
+        }
+    }
+}
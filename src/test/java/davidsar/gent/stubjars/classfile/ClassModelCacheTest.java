@@ -0,0 +1,159 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars.classfile;
+
+import davidsar.gent.stubjars.components.TestConstructorClass;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class ClassModelCacheTest {
+    @Test
+    public void roundTripsClassModels() throws IOException {
+        List<ClassModel> classModels = Arrays.asList(
+            read(ClassFileReaderTest.Constants.class), read(TestConstructorClass.class),
+            read(ClassFileReaderTest.Marker.class), read(ClassFileReaderTest.Operation.class));
+        Path directory = Files.createTempDirectory("class-model-cache");
+        try {
+            ClassModelCache cache = new ClassModelCache(directory, Long.MAX_VALUE);
+            Assert.assertNull(cache.load("key"));
+            cache.store("key", classModels);
+            List<ClassModel> loaded = cache.load("key");
+
+            Assert.assertNotNull(loaded);
+            Assert.assertEquals(classModels.size(), loaded.size());
+            for (int i = 0; i < classModels.size(); i++) {
+                assertSameModel(classModels.get(i), loaded.get(i));
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void roundTripsUnpairedSurrogates() throws IOException {
+        List<ClassModel> classModels = Arrays.asList(read(ClassFileReaderTest.Constants.class));
+        List<ClassModel> decoded = ClassModelCache.decode(ByteBuffer.wrap(ClassModelCache.encode(classModels)));
+
+        Assert.assertEquals("\ud800 \udfff", decoded.get(0).field("UNPAIRED").constantValue());
+        Assert.assertEquals("caf\u00e9 \0 \ud83d\ude00", decoded.get(0).field("NAME").constantValue());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedEntries() throws IOException {
+        List<ClassModel> classModels = Arrays.asList(read(ClassFileReaderTest.Constants.class));
+        long entrySize = ClassModelCache.encode(classModels).length;
+        Path directory = Files.createTempDirectory("class-model-cache");
+        try {
+            ClassModelCache cache = new ClassModelCache(directory, entrySize * 2);
+            cache.store("first", classModels);
+            cache.store("second", classModels);
+            Files.setLastModifiedTime(directory.resolve("first.models"), FileTime.fromMillis(1000));
+            Files.setLastModifiedTime(directory.resolve("second.models"), FileTime.fromMillis(2000));
+            Assert.assertNotNull(cache.load("first"));
+
+            cache.store("third", classModels);
+
+            Assert.assertNotNull(cache.load("first"));
+            Assert.assertNull(cache.load("second"));
+            Assert.assertNotNull(cache.load("third"));
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void ignoresCorruptEntries() throws IOException {
+        Path directory = Files.createTempDirectory("class-model-cache");
+        try {
+            Files.write(directory.resolve("key.models"), new byte[] {1, 2, 3});
+
+            Assert.assertNull(new ClassModelCache(directory, Long.MAX_VALUE).load("key"));
+        } finally {
+            delete(directory);
+        }
+    }
+
+    private static void assertSameModel(ClassModel expected, ClassModel actual) {
+        Assert.assertEquals(expected.accessFlags(), actual.accessFlags());
+        Assert.assertEquals(expected.classFileSize(), actual.classFileSize());
+        Assert.assertEquals(expected.internalName(), actual.internalName());
+        Assert.assertEquals(expected.superName(), actual.superName());
+        Assert.assertEquals(expected.signature(), actual.signature());
+        Assert.assertEquals(expected.interfaces(), actual.interfaces());
+        Assert.assertEquals(expected.isDeprecated(), actual.isDeprecated());
+        Assert.assertEquals(expected.retention(), actual.retention());
+        Assert.assertEquals(expected.enumConstantClasses(), actual.enumConstantClasses());
+        Assert.assertEquals(expected.fields().size(), actual.fields().size());
+        for (int i = 0; i < expected.fields().size(); i++) {
+            FieldModel expectedField = expected.fields().get(i);
+            FieldModel actualField = actual.fields().get(i);
+            Assert.assertEquals(expectedField.accessFlags(), actualField.accessFlags());
+            Assert.assertEquals(expectedField.name(), actualField.name());
+            Assert.assertEquals(expectedField.descriptor(), actualField.descriptor());
+            Assert.assertEquals(expectedField.signature(), actualField.signature());
+            Assert.assertEquals(expectedField.constantValue(), actualField.constantValue());
+        }
+        Assert.assertEquals(expected.methods().size(), actual.methods().size());
+        for (int i = 0; i < expected.methods().size(); i++) {
+            MethodModel expectedMethod = expected.methods().get(i);
+            MethodModel actualMethod = actual.methods().get(i);
+            Assert.assertEquals(expectedMethod.accessFlags(), actualMethod.accessFlags());
+            Assert.assertEquals(expectedMethod.name(), actualMethod.name());
+            Assert.assertEquals(expectedMethod.descriptor(), actualMethod.descriptor());
+            Assert.assertEquals(expectedMethod.signature(), actualMethod.signature());
+            Assert.assertEquals(expectedMethod.exceptions(), actualMethod.exceptions());
+            Assert.assertEquals(expectedMethod.isDeprecated(), actualMethod.isDeprecated());
+            Assert.assertEquals(expectedMethod.defaultValueDescriptor(), actualMethod.defaultValueDescriptor());
+            Assert.assertEquals(expectedMethod.parameters().size(), actualMethod.parameters().size());
+            for (int j = 0; j < expectedMethod.parameters().size(); j++) {
+                Assert.assertEquals(expectedMethod.parameters().get(j).name(), actualMethod.parameters().get(j).name());
+                Assert.assertEquals(expectedMethod.parameters().get(j).accessFlags(),
+                    actualMethod.parameters().get(j).accessFlags());
+            }
+        }
+        Assert.assertEquals(expected.innerClasses().size(), actual.innerClasses().size());
+        for (int i = 0; i < expected.innerClasses().size(); i++) {
+            InnerClassModel expectedInnerClass = expected.innerClasses().get(i);
+            InnerClassModel actualInnerClass = actual.innerClasses().get(i);
+            Assert.assertEquals(expectedInnerClass.innerName(), actualInnerClass.innerName());
+            Assert.assertEquals(expectedInnerClass.outerName(), actualInnerClass.outerName());
+            Assert.assertEquals(expectedInnerClass.simpleName(), actualInnerClass.simpleName());
+            Assert.assertEquals(expectedInnerClass.accessFlags(), actualInnerClass.accessFlags());
+        }
+    }
+
+    private static ClassModel read(Class<?> clazz) throws IOException {
+        String name = clazz.getName();
+        try (InputStream stream = clazz.getResourceAsStream(name.substring(name.lastIndexOf('.') + 1) + ".class")) {
+            return ClassFileReader.read(stream);
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+}
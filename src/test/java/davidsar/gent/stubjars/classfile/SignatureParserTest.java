@@ -0,0 +1,83 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+
+package davidsar.gent.stubjars.classfile;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class SignatureParserTest {
+    @Test
+    public void parsesDescriptors() {
+        Assert.assertEquals(ClassTypeModel.INT, SignatureParser.parseType("I"));
+        Assert.assertEquals(ClassTypeModel.of("java.util.Map$Entry"), SignatureParser.parseType("Ljava/util/Map$Entry;"));
+        Assert.assertEquals(new ArrayTypeModel(new ArrayTypeModel(ClassTypeModel.CHAR)), SignatureParser.parseType("[[C"));
+        Assert.assertSame(ClassTypeModel.OBJECT, SignatureParser.parseType("Ljava/lang/Object;"));
+    }
+
+    @Test
+    public void parsesParameterizedTypes() {
+        TypeModel type = SignatureParser.parseType("Ljava/util/Map<+Ljava/lang/Number;*>;");
+
+        Assert.assertEquals("java.util.Map<? extends java.lang.Number, ?>", type.toString());
+        Assert.assertFalse(type.isClass());
+        Assert.assertEquals(ClassTypeModel.of("java.util.Map"), ((ClassTypeModel) type).erasure());
+        Assert.assertEquals("java.util.List<? super T>[]", SignatureParser.parseType("[Ljava/util/List<-TT;>;").toString());
+    }
+
+    @Test
+    public void parsesInnerClassesOfParameterizedTypes() {
+        ClassTypeModel type = (ClassTypeModel) SignatureParser.parseType("La/Outer<TT;>.Inner<Ljava/lang/String;>;");
+
+        Assert.assertEquals("a.Outer$Inner", type.name());
+        Assert.assertEquals("a.Outer<T>", type.ownerType().toString());
+        Assert.assertEquals(Collections.singletonList(ClassTypeModel.of("java.lang.String")), type.typeArguments());
+    }
+
+    @Test
+    public void parsesClassSignatures() {
+        SignatureParser.ClassSignature signature = SignatureParser.parseClass(
+            "<K:Ljava/lang/Object;V::Ljava/lang/Comparable<TV;>;>Ljava/util/AbstractMap<TK;TV;>;Ljava/io/Serializable;");
+
+        Assert.assertEquals("[K, V extends java.lang.Comparable<V>]", signature.typeParameters.toString());
+        Assert.assertEquals("java.util.AbstractMap<K, V>", signature.superclass.toString());
+        Assert.assertEquals(Collections.singletonList(ClassTypeModel.of("java.io.Serializable")), signature.interfaces);
+    }
+
+    @Test
+    public void parsesMethodSignatures() {
+        SignatureParser.MethodSignature signature = SignatureParser.parseMethod(
+            "<E:Ljava/lang/Exception;>([TE;J)V^TE;^Ljava/io/IOException;");
+
+        Assert.assertEquals("[E extends java.lang.Exception]", signature.typeParameters.toString());
+        Assert.assertEquals(Arrays.asList(new ArrayTypeModel(new TypeVariableModel("E")), ClassTypeModel.LONG),
+            signature.parameterTypes);
+        Assert.assertEquals(ClassTypeModel.VOID, signature.returnType);
+        Assert.assertEquals(Arrays.asList(new TypeVariableModel("E"), ClassTypeModel.of("java.io.IOException")),
+            signature.exceptionTypes);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMalformedSignatures() {
+        SignatureParser.parseType("Ljava/util/List<");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTrailingCharacters() {
+        SignatureParser.parseType("II");
+    }
+}
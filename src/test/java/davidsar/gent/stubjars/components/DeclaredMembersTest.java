@@ -0,0 +1,42 @@
+package davidsar.gent.stubjars.components;
+
+import davidsar.gent.stubjars.ClassPath;
+import davidsar.gent.stubjars.classfile.MethodModel;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DeclaredMembersTest {
+    private static final ClassPath CLASS_PATH = ClassPath.ofResources(DeclaredMembersTest.class.getClassLoader());
+
+    @Test
+    public void indexesDeclaredFieldsAndMethods() {
+        DeclaredMembers members = members(TestConstructorClass.Result.class);
+        DeclaredMembers implementation = members(TestImplementation.class);
+        DeclaredMembers declaringInterface = members(TestInterface.class);
+
+        Assert.assertTrue(members.hasField("rgb"));
+        Assert.assertFalse(members.hasField("missing"));
+        Assert.assertFalse(implementation.hasField("rgb"));
+        Assert.assertTrue(implementation.hasMethod(method(declaringInterface, "testMethod")));
+        Assert.assertFalse(implementation.hasMethod(method(declaringInterface, "testDefaultMethod")));
+        Assert.assertEquals(1, implementation.methods().size());
+        Assert.assertEquals(1, implementation.constructors().size());
+    }
+
+    @Test
+    public void findsNoArgConstructors() {
+        Assert.assertNotNull(members(TestImplementation.class).noArgConstructor());
+        Assert.assertNull(members(TestConstructorClass.Result.class).noArgConstructor());
+    }
+
+    private static DeclaredMembers members(Class<?> clazz) {
+        return new DeclaredMembers(CLASS_PATH.get(clazz.getName()));
+    }
+
+    private static MethodModel method(DeclaredMembers members, String name) {
+        return members.methods().stream()
+            .filter(method -> method.name().equals(name))
+            .findFirst()
+            .orElseThrow(AssertionError::new);
+    }
+}
@@ -0,0 +1,57 @@
+package davidsar.gent.stubjars.components;
+
+import davidsar.gent.stubjars.components.expressions.Expression;
+import davidsar.gent.stubjars.components.expressions.Expressions;
+import davidsar.gent.stubjars.components.expressions.StringExpression;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class InternedExpressionTest {
+    @Test
+    public void sharesEqualSubtrees() {
+        try (Expressions.InternScope ignored = Expressions.internScope()) {
+            Expression first = Expressions.toCast("int", "0");
+            Expression second = Expressions.toCast("int", "0");
+
+            Assert.assertSame(first, second);
+            Assert.assertSame(Expressions.fromString("foo").asStatement(), Expressions.fromString("foo").asStatement());
+            Assert.assertNotSame(first, Expressions.toCast("long", "0"));
+        }
+    }
+
+    @Test
+    public void keepsExpressionsOfDifferentClassesApart() {
+        try (Expressions.InternScope ignored = Expressions.internScope()) {
+            Expression indented = Expressions.fromString("foo").indent();
+            Expression generic = Expressions.of(StringExpression.INDENT, Expressions.fromString("foo"));
+
+            Assert.assertEquals(indented, generic);
+            Assert.assertNotSame(indented, generic);
+            Assert.assertEquals(1, indented.indentLevel());
+            Assert.assertEquals(0, generic.indentLevel());
+        }
+    }
+
+    @Test
+    public void sharesNothingOutsideOfAScope() {
+        Expression inside;
+        try (Expressions.InternScope ignored = Expressions.internScope()) {
+            inside = Expressions.fromString("foo");
+            Expressions.internScope().close();
+            Assert.assertSame(inside, Expressions.fromString("foo"));
+        }
+
+        Assert.assertNotSame(inside, Expressions.fromString("foo"));
+        Assert.assertNotSame(Expressions.fromString("foo"), Expressions.fromString("foo"));
+    }
+
+    @Test
+    public void hashesLeavesAndTrees() {
+        Expression tree = Expressions.of(Expressions.fromString("a"), StringExpression.SPACE);
+
+        Assert.assertEquals("a".hashCode(), Expressions.fromString("a").hashCode());
+        Assert.assertEquals(1, Expressions.makeListFrom().hashCode());
+        Assert.assertEquals(tree.hashCode(), Expressions.of(Expressions.fromString("a"), StringExpression.SPACE).hashCode());
+        Assert.assertEquals(tree.hashCode(), Expressions.of(Expressions.fromString("a"), StringExpression.SPACE).children().hashCode());
+    }
+}
@@ -0,0 +1,87 @@
+package davidsar.gent.stubjars.components;
+
+import davidsar.gent.stubjars.ClassPath;
+import davidsar.gent.stubjars.MissingClassException;
+import davidsar.gent.stubjars.classfile.ClassModel;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class JarClassRegistryTest {
+    private static final ClassPath CLASS_PATH = ClassPath.ofResources(JarClassRegistryTest.class.getClassLoader());
+
+    @Test
+    public void internsEachClassOnce() {
+        JarClassRegistry registry = new JarClassRegistry();
+
+        JarClass first = registry.intern(TestInterface.class.getName(), CLASS_PATH);
+        JarClass second = registry.intern(TestImplementation.class.getName(), CLASS_PATH);
+
+        Assert.assertSame(first, registry.intern(TestInterface.class.getName(), CLASS_PATH));
+        Assert.assertSame(first, registry.get(TestInterface.class.getName()));
+        Assert.assertNull(registry.get(TestClass.class.getName()));
+        Assert.assertEquals(0, first.id());
+        Assert.assertEquals(1, second.id());
+        Assert.assertSame(second, registry.byId(1));
+        Assert.assertEquals(2, registry.size());
+    }
+
+    @Test
+    public void internsModelsByName() {
+        JarClassRegistry registry = new JarClassRegistry();
+        ClassModel model = CLASS_PATH.get(TestInterface.class.getName());
+
+        JarClass jarClass = registry.intern(model, CLASS_PATH);
+        Assert.assertSame(model, jarClass.classModel());
+        Assert.assertSame(jarClass, registry.intern(TestInterface.class.getName(), CLASS_PATH));
+    }
+
+    @Test(expected = MissingClassException.class)
+    public void failsOnClassesMissingFromTheClassPath() {
+        new JarClassRegistry().intern("does.not.Exist", CLASS_PATH);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rejectsUnknownIds() {
+        new JarClassRegistry().byId(0);
+    }
+
+    @Test
+    public void givesDenseIdsAcrossThreads() throws Exception {
+        JarClassRegistry registry = new JarClassRegistry();
+        List<String> classes = Arrays.asList(
+            TestInterface.class.getName(), TestImplementation.class.getName(), TestClass.class.getName(),
+            TestConstructorClass.class.getName(), "java.lang.String", "java.lang.Integer", "java.lang.Long",
+            "java.lang.Object", "java.util.List", "java.util.Set");
+
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                futures.add(threads.submit(() -> classes.forEach(name -> registry.intern(name, CLASS_PATH))));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            threads.shutdown();
+        }
+
+        Assert.assertEquals(classes.size(), registry.size());
+        Set<String> seen = new HashSet<>();
+        for (int id = 0; id < registry.size(); id++) {
+            JarClass jarClass = registry.byId(id);
+            Assert.assertEquals(id, jarClass.id());
+            Assert.assertTrue(seen.add(jarClass.fullName()));
+        }
+        Assert.assertEquals(new HashSet<>(classes), seen);
+    }
+}
@@ -1,6 +1,7 @@
 package davidsar.gent.stubjars.components;
 
 
+import davidsar.gent.stubjars.ClassPath;
 import davidsar.gent.stubjars.components.expressions.Expression;
 import davidsar.gent.stubjars.components.expressions.Expressions;
 import davidsar.gent.stubjars.components.expressions.PackageStatement;
@@ -15,7 +16,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 public class JarClassTest {
     @Test
     public void testInterfaceIsWritten() throws ClassNotFoundException {
-        var testInterfaceClass = new JarClass<TestInterface>(JarClassTest.class.getClassLoader(), TestInterface.class.getName());
+        var testInterfaceClass = new JarClass(ClassPath.ofResources(JarClassTest.class.getClassLoader()), TestInterface.class.getName());
         assertThat(testInterfaceClass.isInterface()).isTrue();
         assertThat(testInterfaceClass.isEnum()).isFalse();
         assertThat(testInterfaceClass.isInnerClass()).isFalse();
@@ -28,7 +29,7 @@ public class JarClassTest {
 
     @Test
     public void testImplementationIsWritten() throws ClassNotFoundException {
-        var testInterfaceClass = new JarClass<TestImplementation>(JarClassTest.class.getClassLoader(), TestImplementation.class.getName());
+        var testInterfaceClass = new JarClass(ClassPath.ofResources(JarClassTest.class.getClassLoader()), TestImplementation.class.getName());
         assertThat(testInterfaceClass.isInterface()).isFalse();
         assertThat(testInterfaceClass.isEnum()).isFalse();
         assertThat(testInterfaceClass.isInnerClass()).isFalse();
@@ -42,7 +43,7 @@ public class JarClassTest {
 
     @Test
     public void fieldDeclarationArrayWorks() throws ClassNotFoundException {
-        var testInterfaceClass = new JarClass<TestConstructorClass>(JarClassTest.class.getClassLoader(), TestConstructorClass.class.getName());
+        var testInterfaceClass = new JarClass(ClassPath.ofResources(JarClassTest.class.getClassLoader()), TestConstructorClass.class.getName());
         assertThat(testInterfaceClass.isInterface()).isFalse();
         assertThat(testInterfaceClass.isEnum()).isFalse();
         assertThat(testInterfaceClass.isInnerClass()).isFalse();
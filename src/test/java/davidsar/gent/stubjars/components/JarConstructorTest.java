@@ -0,0 +1,31 @@
+package davidsar.gent.stubjars.components;
+
+import davidsar.gent.stubjars.classfile.ClassTypeModel;
+import davidsar.gent.stubjars.classfile.TypeVariableModel;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.AbstractList;
+import java.util.Collection;
+
+import static davidsar.gent.stubjars.components.TestJarClasses.jarClass;
+
+public class JarConstructorTest {
+    @Test
+    public void resolvesSuperclassTypeArguments() {
+        JarClass stringList = jarClass(StringList.class);
+
+        Assert.assertEquals(ClassTypeModel.of("java.lang.String"), stringList.superclassTypeArgument("E"));
+        Assert.assertNull(stringList.superclassTypeArgument("T"));
+        Assert.assertNull(jarClass(TestClass.class).superclassTypeArgument("E"));
+    }
+
+    @Test
+    public void castsTypeVariablesToTheirSuperclassTypeArgument() {
+        Assert.assertEquals("(String) \"\".toString()",
+            JarConstructor.castedDefaultType(new TypeVariableModel("E"), jarClass(StringList.class)).toString());
+    }
+
+    private abstract static class StringList extends AbstractList<String> implements Collection<String> {
+    }
+}
@@ -1,5 +1,7 @@
 package davidsar.gent.stubjars.components;
 
+import davidsar.gent.stubjars.ClassPath;
+import davidsar.gent.stubjars.classfile.MethodModel;
 
 import davidsar.gent.stubjars.components.expressions.Expressions;
 import davidsar.gent.stubjars.components.expressions.StringExpression;
@@ -9,30 +11,39 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 
 public class JarMethodTest {
+    private static final ClassPath CLASS_PATH = ClassPath.ofResources(JarMethodTest.class.getClassLoader());
+
     @Test
-    public void testDefaultMethodInInterfaceInterfaceIsWritten() throws ClassNotFoundException, NoSuchMethodException {
-        var testInterfaceClass = new JarClass<TestInterface>(JarMethodTest.class.getClassLoader(), TestInterface.class.getName());
-        var method = new JarMethod(testInterfaceClass, testInterfaceClass.getClazz().getDeclaredMethod("testDefaultMethod"));
+    public void testDefaultMethodInInterfaceInterfaceIsWritten() throws ClassNotFoundException {
+        var testInterfaceClass = new JarClass(CLASS_PATH, TestInterface.class.getName());
+        var method = new JarMethod(testInterfaceClass, declaredMethod(testInterfaceClass, "testDefaultMethod"));
         assertThat(method.isAbstract()).isFalse();
 
         assertThat(TreeFormatter.toLines(method.compileToExpression())).containsExactly("default   void testDefaultMethod() {", "}");
     }
 
     @Test
-    public void testMethodInInterfaceIsWritten() throws ClassNotFoundException, NoSuchMethodException {
-        var testInterfaceClass = new JarClass<TestInterface>(JarMethodTest.class.getClassLoader(), TestInterface.class.getName());
-        var method = new JarMethod(testInterfaceClass, testInterfaceClass.getClazz().getDeclaredMethod("testMethod"));
+    public void testMethodInInterfaceIsWritten() throws ClassNotFoundException {
+        var testInterfaceClass = new JarClass(CLASS_PATH, TestInterface.class.getName());
+        var method = new JarMethod(testInterfaceClass, declaredMethod(testInterfaceClass, "testMethod"));
         assertThat(method.isAbstract()).isTrue();
 
         assertThat(TreeFormatter.toLines(method.compileToExpression())).containsExactly("void testMethod();");
     }
 
     @Test
-    public void testMethodInImplementationIsWritten() throws ClassNotFoundException, NoSuchMethodException {
-        var testInterfaceClass = new JarClass<TestInterface>(JarMethodTest.class.getClassLoader(), TestImplementation.class.getName());
-        var method = new JarMethod(testInterfaceClass, testInterfaceClass.getClazz().getDeclaredMethod("testMethod"));
+    public void testMethodInImplementationIsWritten() throws ClassNotFoundException {
+        var testInterfaceClass = new JarClass(CLASS_PATH, TestImplementation.class.getName());
+        var method = new JarMethod(testInterfaceClass, declaredMethod(testInterfaceClass, "testMethod"));
         assertThat(method.isAbstract()).isFalse();
 
         assertThat(TreeFormatter.toLines(method.compileToExpression())).containsExactly("public    void testMethod() {", "}");
     }
-}
\ No newline at end of file
+
+    private static MethodModel declaredMethod(JarClass clazz, String name) {
+        return clazz.classModel().methods().stream()
+            .filter(method -> method.name().equals(name))
+            .findFirst()
+            .orElseThrow(AssertionError::new);
+    }
+}
@@ -0,0 +1,53 @@
+package davidsar.gent.stubjars.components;
+
+import davidsar.gent.stubjars.components.expressions.Expression;
+import davidsar.gent.stubjars.components.expressions.Expressions;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+public class MemberCompilerTest {
+    @Test
+    public void compilesSmallClassesInTheCallingThread() {
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        Expression[] compiled = MemberCompiler.compile(members(10), member -> {
+            threads.add(Thread.currentThread());
+            return Expressions.fromString(member);
+        });
+
+        Assert.assertEquals(10, compiled.length);
+        Assert.assertEquals(Set.of(Thread.currentThread()), threads);
+    }
+
+    @Test
+    public void keepsTheOrderOfLargeClasses() throws Exception {
+        List<String> members = members(MemberCompiler.PARALLEL_THRESHOLD * 4);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertInOrder(members, MemberCompiler.compile(members, Expressions::fromString));
+            assertInOrder(members, pool.submit(() -> MemberCompiler.compile(members, Expressions::fromString)).get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void assertInOrder(List<String> members, Expression[] compiled) {
+        Assert.assertEquals(members.size(), compiled.length);
+        for (int i = 0; i < compiled.length; i++) {
+            Assert.assertEquals(members.get(i), compiled[i].toString());
+        }
+    }
+
+    private static List<String> members(int count) {
+        List<String> members = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            members.add("member" + i);
+        }
+        return members;
+    }
+}
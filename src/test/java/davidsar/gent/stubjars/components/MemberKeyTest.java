@@ -0,0 +1,57 @@
+package davidsar.gent.stubjars.components;
+
+import davidsar.gent.stubjars.ClassPath;
+import davidsar.gent.stubjars.classfile.ClassModel;
+import davidsar.gent.stubjars.classfile.MethodModel;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MemberKeyTest {
+    private static final ClassPath CLASS_PATH = ClassPath.ofResources(MemberKeyTest.class.getClassLoader());
+
+    @Test
+    public void describesMethods() {
+        MemberKey key = MemberKey.of(method("java.util.Map", "put", "(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;"));
+
+        Assert.assertEquals("put", key.name());
+        Assert.assertEquals("(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;", key.descriptor());
+    }
+
+    @Test
+    public void describesFieldsAndConstructors() {
+        ClassModel integer = CLASS_PATH.get("java.lang.Integer");
+        Assert.assertEquals("MAX_VALUE", MemberKey.of(integer.field("MAX_VALUE")).name());
+        Assert.assertEquals("I", MemberKey.of(integer.field("MAX_VALUE")).descriptor());
+        Assert.assertEquals("<init>(Ljava/lang/String;)V",
+            MemberKey.of(method("java.lang.StringBuilder", "<init>", "(Ljava/lang/String;)V")).toString());
+    }
+
+    @Test
+    public void comparesParameterSignatures() {
+        MethodModel appendString = method("java.lang.StringBuilder", "append", "(Ljava/lang/String;)Ljava/lang/StringBuilder;");
+
+        Assert.assertEquals("append(Ljava/lang/String;)", MemberKey.parameterSignature(appendString));
+        Assert.assertEquals(MemberKey.parameterSignature(appendString),
+            MemberKey.parameterSignature(method("java.lang.AbstractStringBuilder", "append",
+                "(Ljava/lang/String;)Ljava/lang/AbstractStringBuilder;")));
+    }
+
+    @Test
+    public void sortsByNameThenDescriptor() {
+        MemberKey addAtIndex = MemberKey.of(method("java.util.List", "add", "(ILjava/lang/Object;)V"));
+        MemberKey add = MemberKey.of(method("java.util.List", "add", "(Ljava/lang/Object;)Z"));
+        MemberKey clear = MemberKey.of(method("java.util.List", "clear", "()V"));
+
+        Assert.assertTrue(addAtIndex.compareTo(add) < 0);
+        Assert.assertTrue(add.compareTo(clear) < 0);
+        Assert.assertEquals(add, MemberKey.of(method("java.util.List", "add", "(Ljava/lang/Object;)Z")));
+        Assert.assertEquals(add.hashCode(), MemberKey.of(method("java.util.List", "add", "(Ljava/lang/Object;)Z")).hashCode());
+    }
+
+    private static MethodModel method(String className, String name, String descriptor) {
+        return CLASS_PATH.get(className).methods().stream()
+            .filter(method -> method.name().equals(name) && method.descriptor().equals(descriptor))
+            .findFirst()
+            .orElseThrow(AssertionError::new);
+    }
+}
@@ -0,0 +1,30 @@
+package davidsar.gent.stubjars.components;
+
+import davidsar.gent.stubjars.classfile.ArrayTypeModel;
+import davidsar.gent.stubjars.classfile.ClassTypeModel;
+import davidsar.gent.stubjars.classfile.TypeModel;
+import org.junit.Assert;
+import org.junit.Test;
+
+import static davidsar.gent.stubjars.components.TestJarClasses.jarClass;
+
+public class SuperConstructorCallTest {
+    @Test
+    public void needsNoCallWithNoArgConstructor() {
+        SuperConstructorCall call = jarClass(TestImplementation.class).superConstructorCall();
+
+        Assert.assertEquals(SuperConstructorCall.Kind.IMPLICIT, call.kind());
+        Assert.assertEquals(0, call.parameterTypes().length);
+    }
+
+    @Test
+    public void callsConstructorWithArguments() {
+        JarClass superclass = jarClass(TestConstructorClass.Result.class);
+        SuperConstructorCall call = superclass.superConstructorCall();
+
+        Assert.assertEquals(SuperConstructorCall.Kind.ARGUMENTS, call.kind());
+        Assert.assertArrayEquals(new TypeModel[] {ClassTypeModel.of(TestConstructorClass.ColorSwatch.class.getName()),
+            new ArrayTypeModel(ClassTypeModel.FLOAT)}, call.parameterTypes());
+        Assert.assertSame(call, superclass.superConstructorCall());
+    }
+}
@@ -0,0 +1,17 @@
+package davidsar.gent.stubjars.components;
+
+import davidsar.gent.stubjars.ClassPath;
+
+/**
+ * Interns the classes of the tests, and of the JDK, as the {@link JarClass}es generation would see.
+ */
+public final class TestJarClasses {
+    public static final ClassPath CLASS_PATH = ClassPath.ofResources(TestJarClasses.class.getClassLoader());
+
+    private TestJarClasses() {
+    }
+
+    public static JarClass jarClass(Class<?> clazz) {
+        return JarClassRegistry.instance().intern(clazz.getName(), CLASS_PATH);
+    }
+}
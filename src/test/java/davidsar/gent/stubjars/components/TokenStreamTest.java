@@ -0,0 +1,46 @@
+package davidsar.gent.stubjars.components;
+
+import davidsar.gent.stubjars.ClassPath;
+import davidsar.gent.stubjars.components.expressions.Expression;
+import davidsar.gent.stubjars.components.expressions.Expressions;
+import davidsar.gent.stubjars.components.expressions.StringExpression;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TokenStreamTest {
+    @Test
+    public void formatsLikeTheTreeFormatter() throws ClassNotFoundException {
+        for (Class<?> clazz : new Class<?>[] {TestClass.class, TestInterface.class, TestConstructorClass.class}) {
+            Expression expression = new JarClass(ClassPath.ofResources(TokenStreamTest.class.getClassLoader()), clazz.getName())
+                .compileToExpression();
+
+            Assert.assertEquals(String.join("\n", TreeFormatter.toLines(expression)),
+                TokenStream.compile(expression).toString());
+        }
+    }
+
+    @Test
+    public void dropsWhitespace() {
+        Expression statement = Expressions.of(Expressions.fromString("int"), StringExpression.SPACE,
+            Expressions.fromString("a"), StringExpression.SEMICOLON, StringExpression.NEW_LINE, Expressions.fromString("dropped"));
+        TokenStream tokens = TokenStream.compile(statement);
+
+        Assert.assertEquals(4, tokens.size());
+        Assert.assertEquals("int a;", tokens.toString());
+    }
+
+    @Test
+    public void chargesForEachDistinctStringOnce() {
+        Expression statements = Expressions.of(Expressions.fromString("int"), Expressions.fromString("a"),
+            StringExpression.SEMICOLON, Expressions.fromString("int"), Expressions.fromString("b"), StringExpression.SEMICOLON);
+        TokenStream tokens = TokenStream.compile(statements);
+
+        Assert.assertEquals("int a;\nint b;", tokens.toString());
+        Assert.assertEquals(6 * Integer.BYTES + "intab".length() * Character.BYTES, tokens.sizeInBytes());
+    }
+
+    @Test
+    public void keepsALoneAtom() {
+        Assert.assertEquals(" ", TokenStream.compile(StringExpression.SPACE).toString());
+    }
+}
@@ -0,0 +1,46 @@
+package davidsar.gent.stubjars.components;
+
+import davidsar.gent.stubjars.ClassPath;
+import davidsar.gent.stubjars.components.expressions.Expression;
+import davidsar.gent.stubjars.components.expressions.Expressions;
+import davidsar.gent.stubjars.components.expressions.StringExpression;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+public class TreeFormatterTest {
+    private static final Expression BLOCK = Expressions.of(
+        Expressions.fromString("class"), StringExpression.SPACE, Expressions.fromString("Foo"), StringExpression.SPACE,
+        Expressions.blockWith(Expressions.fromString("int").asStatement(), Expressions.fromString("bar()").asStatement().asBlock()),
+        Expressions.fromString("dropped"));
+
+    @Test
+    public void splitsLinesAtBraces() {
+        Assert.assertEquals(Arrays.asList("class Foo {", "    int;", "    {", "        bar();", "    }", "}"),
+            TreeFormatter.toLines(BLOCK));
+    }
+
+    @Test
+    public void rendersTheSameAsTheLines() throws IOException, ClassNotFoundException {
+        StringWriter out = new StringWriter();
+        TreeFormatter.renderTo(BLOCK, out);
+        Assert.assertEquals(String.join("\n", TreeFormatter.toLines(BLOCK)), out.toString());
+
+        Expression clazz = new JarClass(ClassPath.ofResources(TreeFormatterTest.class.getClassLoader()), TestConstructorClass.class.getName())
+            .compileToExpression();
+        StringBuilder builder = new StringBuilder();
+        TreeFormatter.renderTo(clazz, builder);
+        Assert.assertEquals(String.join("\n", TreeFormatter.toLines(clazz)), builder.toString());
+    }
+
+    @Test
+    public void rendersExpressionsLikeToString() throws IOException {
+        StringBuilder out = new StringBuilder();
+        BLOCK.renderTo(out);
+        Assert.assertEquals(BLOCK.toString(), out.toString());
+        Assert.assertEquals("class Foo {\n    int;\n    {\n    bar();\n}\n}\ndropped", out.toString());
+    }
+}
@@ -0,0 +1,64 @@
+package davidsar.gent.stubjars.components;
+
+import davidsar.gent.stubjars.ClassPath;
+import davidsar.gent.stubjars.classfile.ClassModel;
+import davidsar.gent.stubjars.classfile.ClassTypeModel;
+import davidsar.gent.stubjars.classfile.TypeModel;
+import davidsar.gent.stubjars.components.expressions.Expressions;
+import davidsar.gent.stubjars.components.expressions.TypeExpression;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+public class TypeExpressionCacheTest {
+    private static final ClassPath CLASS_PATH = ClassPath.ofResources(TypeExpressionCacheTest.class.getClassLoader());
+    private static final ClassModel MODEL = CLASS_PATH.get(TypeExpressionCacheTest.class.getName());
+
+    @SuppressWarnings("unused")
+    private Map<String, List<TestClass>> first;
+    @SuppressWarnings("unused")
+    private Map<String, List<TestClass>> second;
+
+    @Test
+    public void sharesExpressionsOfEqualTypes() {
+        TypeExpressionCache cache = new TypeExpressionCache(16);
+        TypeModel firstType = MODEL.field("first").genericType();
+        TypeModel secondType = MODEL.field("second").genericType();
+
+        TypeExpression expression = cache.get(firstType, "a", false, () -> expressionOf(firstType));
+        Assert.assertSame(expression, cache.get(secondType, "a", false, () -> expressionOf(secondType)));
+        Assert.assertNotSame(expression, cache.get(secondType, "b", false, () -> expressionOf(secondType)));
+        Assert.assertNotSame(expression, cache.get(secondType, "a", true, () -> expressionOf(secondType)));
+
+        Assert.assertEquals(1, cache.hits());
+        Assert.assertEquals(3, cache.misses());
+    }
+
+    @Test
+    public void emptiesWhenFull() {
+        TypeExpressionCache cache = new TypeExpressionCache(2);
+        cache.get(ClassTypeModel.of("java.lang.String"), null, false, () -> expressionOf(ClassTypeModel.of("java.lang.String")));
+        cache.get(ClassTypeModel.of("java.lang.Integer"), null, false, () -> expressionOf(ClassTypeModel.of("java.lang.Integer")));
+        cache.get(ClassTypeModel.of("java.lang.Long"), null, false, () -> expressionOf(ClassTypeModel.of("java.lang.Long")));
+
+        Assert.assertEquals(1, cache.evictions());
+        Assert.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void rendersTheSameAsWithoutTheCache() throws ClassNotFoundException {
+        TypeModel type = MODEL.field("first").genericType();
+        JarClass against = new JarClass(CLASS_PATH, TestImplementation.class.getName());
+
+        Assert.assertEquals("java.util.Map<String, java.util.List<TestClass>>", JarType.toExpression(type, against).toString());
+        Assert.assertEquals("java.util.Map<String, java.util.List<TestClass>>", JarType.toExpression(type, against).toString());
+    }
+
+    private static TypeExpression expressionOf(TypeModel type) {
+        // Not built through Expressions.forType, which interns, so every miss gets its own instance
+        return new TypeExpression(type, Expressions.fromString(type.toString())) {
+        };
+    }
+}
@@ -0,0 +1,42 @@
+package davidsar.gent.stubjars.components;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static davidsar.gent.stubjars.components.TestJarClasses.jarClass;
+
+public class TypeNameResolverTest {
+    @Test
+    public void replacesNestedClassSeparators() {
+        Assert.assertEquals("a.Outer.Inner", TypeNameResolver.toSourceSeparators("a.Outer$Inner"));
+        Assert.assertEquals("a.Outer.Inner", TypeNameResolver.toSourceSeparators("a.Outer$12Inner"));
+        Assert.assertEquals("a.Plain", TypeNameResolver.toSourceSeparators("a.Plain"));
+        Assert.assertNull(TypeNameResolver.toSourceSeparators("a.Outer$1"));
+        Assert.assertNull(TypeNameResolver.toSourceSeparators("a.Outer$"));
+    }
+
+    @Test
+    public void rendersNamesForTheReferencingPackage() {
+        Assert.assertEquals("String", TypeNameResolver.sourceName(jarClass(String.class), null));
+        Assert.assertEquals("java.util.List", TypeNameResolver.sourceName(jarClass(List.class), jarClass(TestClass.class)));
+        Assert.assertEquals("List", TypeNameResolver.sourceName(jarClass(List.class), jarClass(Map.class)));
+        Assert.assertEquals("java.util.Map.Entry", TypeNameResolver.sourceName(jarClass(Map.Entry.class), jarClass(Map.class)));
+        Assert.assertEquals("TestClass", TypeNameResolver.sourceName(jarClass(TestClass.class), jarClass(TestImplementation.class)));
+        Assert.assertEquals("davidsar.gent.stubjars.components.TestConstructorClass.Result",
+            TypeNameResolver.sourceName(jarClass(TestConstructorClass.Result.class), jarClass(TestImplementation.class)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsAnonymousClasses() {
+        TypeNameResolver.sourceName(jarClass(new Object() { }.getClass()), null);
+    }
+
+    @Test
+    public void convertsEntryNames() {
+        Assert.assertEquals("java.util.Map$Entry", TypeNameResolver.binaryNameOfEntry("java/util/Map$Entry.class"));
+        Assert.assertEquals("java.util.Map", TypeNameResolver.binaryNameOfEntry("java.util.Map"));
+    }
+}
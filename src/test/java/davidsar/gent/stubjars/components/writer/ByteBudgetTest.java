@@ -0,0 +1,67 @@
+package davidsar.gent.stubjars.components.writer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class ByteBudgetTest {
+    @Test
+    public void tracksCurrentAndPeakDepth() throws InterruptedException {
+        ByteBudget budget = new ByteBudget(100);
+        budget.acquire(60);
+        budget.acquire(40);
+        budget.release(60);
+
+        Assert.assertEquals(40, budget.used());
+        Assert.assertEquals(100, budget.peak());
+        Assert.assertEquals("40 bytes pending, 100 at peak, of 100", budget.toString());
+    }
+
+    @Test
+    public void blocksUntilBytesAreReleased() throws InterruptedException {
+        ByteBudget budget = new ByteBudget(100);
+        budget.acquire(80);
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            try {
+                budget.acquire(30);
+                acquired.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+
+        Assert.assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+        budget.release(80);
+        Assert.assertTrue(acquired.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(30, budget.used());
+    }
+
+    @Test
+    public void letsAnOversizedWriteThroughAlone() throws InterruptedException {
+        ByteBudget budget = new ByteBudget(10);
+        budget.acquire(50);
+
+        Assert.assertEquals(50, budget.used());
+    }
+
+    @Test
+    public void writerThreadsGiveBytesBack() throws Exception {
+        Path file = Files.createTempFile("budget", ".txt");
+        ByteBudget budget = new ByteBudget(1024);
+        WriterThread thread = new WriterThread(budget);
+        thread.start();
+        new Writer(file.toFile(), thread).writeDataWithDedicatedThread("abcd");
+        thread.done();
+        thread.join();
+
+        Assert.assertEquals(0, budget.used());
+        Assert.assertEquals(8, budget.peak());
+        Files.delete(file);
+    }
+}
@@ -0,0 +1,52 @@
+package davidsar.gent.stubjars.components.writer;
+
+import davidsar.gent.stubjars.components.JarClass;
+import davidsar.gent.stubjars.components.TestConstructorClass;
+import davidsar.gent.stubjars.components.TestInterface;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static davidsar.gent.stubjars.components.TestJarClasses.jarClass;
+
+public class JavaClassWriterTest {
+    @Test
+    public void writesInCurrentThreadLikeAWriterThread() throws IOException, InterruptedException {
+        for (Class<?> clazz : new Class<?>[] {TestInterface.class, TestConstructorClass.class}) {
+            Path directory = Files.createTempDirectory("java-class-writer");
+            try {
+                JarClass jarClass = jarClass(clazz);
+                File queued = directory.resolve("Queued.java").toFile();
+                File tokens = directory.resolve("Tokens.java").toFile();
+                File direct = directory.resolve("Direct.java").toFile();
+
+                WriterPool pool = new WriterPool(1);
+                pool.start();
+                new JavaClassWriter(queued, jarClass, pool.next()).write();
+                new JavaClassWriter(tokens, jarClass, pool.next(), true).write();
+                pool.done();
+                pool.waitForCompletion();
+                new JavaClassWriter(direct, jarClass).writeInCurrentThread();
+
+                String expected = new String(Files.readAllBytes(queued.toPath()));
+                Assert.assertTrue(expected.contains(jarClass.name()));
+                Assert.assertEquals(expected, new String(Files.readAllBytes(tokens.toPath())));
+                Assert.assertEquals(expected, new String(Files.readAllBytes(direct.toPath())));
+            } finally {
+                for (File file : directory.toFile().listFiles()) {
+                    file.delete();
+                }
+                directory.toFile().delete();
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void cannotQueueWithoutAWriterThread() throws InterruptedException {
+        new JavaClassWriter(new File("Unused.java"), jarClass(TestInterface.class)).write();
+    }
+}
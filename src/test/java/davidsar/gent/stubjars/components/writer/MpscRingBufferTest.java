@@ -0,0 +1,86 @@
+package davidsar.gent.stubjars.components.writer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class MpscRingBufferTest {
+    @Test
+    public void takesElementsInOrder() {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(3);
+        Assert.assertEquals(4, buffer.capacity());
+        Assert.assertTrue(buffer.isEmpty());
+        Assert.assertNull(buffer.poll());
+
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue(buffer.offer(i));
+        }
+        Assert.assertFalse(buffer.offer(4));
+
+        List<Integer> taken = new ArrayList<>();
+        Assert.assertEquals(2, buffer.drain(taken::add, 2));
+        Assert.assertTrue(buffer.offer(4));
+        Assert.assertEquals(3, buffer.drain(taken::add, 10));
+        Assert.assertEquals(Arrays.asList(0, 1, 2, 3, 4), taken);
+        Assert.assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void deliversEveryElementFromManyProducers() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 20_000;
+        MpscRingBuffer<int[]> buffer = new MpscRingBuffer<>(64);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            Thread thread = new Thread(() -> {
+                try {
+                    for (int i = 0; i < perProducer; i++) {
+                        buffer.put(new int[] {producer, i});
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        int[] next = new int[producers];
+        int received = 0;
+        while (received < producers * perProducer) {
+            int drained = buffer.drain(element -> {
+                Assert.assertEquals(next[element[0]]++, element[1]);
+            }, 100);
+            if (drained == 0) {
+                buffer.await(() -> false);
+            }
+            received += drained;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Assert.assertTrue(buffer.isEmpty());
+        for (int count : next) {
+            Assert.assertEquals(perProducer, count);
+        }
+    }
+
+    @Test
+    public void wakesUpAWaitingConsumer() throws InterruptedException {
+        MpscRingBuffer<String> buffer = new MpscRingBuffer<>(4);
+        AtomicBoolean stop = new AtomicBoolean();
+        Thread consumer = new Thread(() -> buffer.await(stop::get));
+        consumer.start();
+        stop.set(true);
+        buffer.wakeUp();
+        consumer.join(10_000);
+
+        Assert.assertFalse(consumer.isAlive());
+    }
+}
@@ -0,0 +1,100 @@
+package davidsar.gent.stubjars.components.writer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+public class WriterPoolTest {
+    @Test
+    public void takesThreadsInTurn() {
+        WriterPool pool = new WriterPool(3);
+        WriterThread first = pool.next();
+        Set<WriterThread> threads = new HashSet<>();
+        threads.add(first);
+        threads.add(pool.next());
+        threads.add(pool.next());
+
+        Assert.assertEquals(3, pool.size());
+        Assert.assertEquals(3, threads.size());
+        Assert.assertSame(first, pool.next());
+    }
+
+    @Test
+    public void writesEveryFileBeforeCompleting() throws IOException, InterruptedException {
+        Path directory = Files.createTempDirectory("writer-pool");
+        WriterPool pool = new WriterPool(4);
+        pool.start();
+        for (int i = 0; i < 100; i++) {
+            new Writer(directory.resolve(i + ".txt").toFile(), pool.next()).writeDataWithDedicatedThread("file " + i);
+        }
+        pool.done();
+        pool.waitForCompletion();
+
+        for (int i = 0; i < 100; i++) {
+            File file = directory.resolve(i + ".txt").toFile();
+            Assert.assertEquals("file " + i, new String(Files.readAllBytes(file.toPath())));
+            file.delete();
+        }
+        directory.toFile().delete();
+    }
+
+    @Test
+    public void keepsWritingAfterAFailedFile() throws IOException, InterruptedException {
+        Path directory = Files.createTempDirectory("writer-pool");
+        WriterPool pool = new WriterPool(1, new ByteBudget(1024));
+        pool.start();
+        new Writer(directory.resolve("bad.txt").toFile(), pool.next()).writeDataWithDedicatedThread(out -> {
+            throw new IllegalStateException("cannot format");
+        }, 100);
+        new Writer(directory.resolve("good.txt").toFile(), pool.next()).writeDataWithDedicatedThread("good");
+        pool.done();
+        pool.waitForCompletion();
+
+        File good = directory.resolve("good.txt").toFile();
+        Assert.assertTrue(pool.hasFailed());
+        Assert.assertEquals(0, pool.budget().used());
+        Assert.assertEquals("good", new String(Files.readAllBytes(good.toPath())));
+        good.delete();
+        directory.resolve("bad.txt").toFile().delete();
+        directory.toFile().delete();
+    }
+
+    @Test
+    public void timesTheWriteOfEachFile() throws IOException, InterruptedException {
+        Path file = Files.createTempFile("writer-pool", ".txt");
+        WriterPool pool = new WriterPool(1, new ByteBudget(1024));
+        pool.start();
+        Writer writer = new Writer(file.toFile(), pool.next());
+        long[] writeNanos = {-1};
+        writer.whenWritten(() -> writeNanos[0] = writer.writeNanos());
+        long beforeQueued = System.nanoTime();
+        writer.writeDataWithDedicatedThread("timed");
+        pool.done();
+        pool.waitForCompletion();
+
+        Assert.assertTrue(writer.queuedAtNanos() - beforeQueued >= 0);
+        Assert.assertTrue(writeNanos[0] > 0);
+        Files.delete(file);
+    }
+
+    @Test
+    public void doesNotQueueWhenInterrupted() throws IOException, InterruptedException {
+        Path file = Files.createTempFile("writer-pool", ".txt");
+        WriterPool pool = new WriterPool(1, new ByteBudget(10));
+        pool.budget().acquire(10);
+        Thread.currentThread().interrupt();
+        try {
+            new Writer(file.toFile(), pool.next()).writeDataWithDedicatedThread("interrupted");
+            Assert.fail("expected the write to be interrupted");
+        } catch (InterruptedException e) {
+            Assert.assertEquals(10, pool.budget().used());
+        }
+        Files.delete(file);
+    }
+}
@@ -0,0 +1,37 @@
+package davidsar.gent.stubjars.components.writer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.CharBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class WriterTest {
+    @Test
+    public void writesSourcesLongerThanAChunk() throws IOException {
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; source.length() < 20000; i++) {
+            source.append("line ").append(i).append('\n');
+        }
+        Path file = Files.createTempFile("writer", ".java");
+        try {
+            new Writer(file.toFile()).write(source);
+
+            Assert.assertEquals(source.toString(), new String(Files.readAllBytes(file)));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void writesAnyCharSequenceInChunks() throws IOException {
+        StringWriter out = new StringWriter();
+        Writer.writeInChunks(CharBuffer.wrap("abc".repeat(5000)), out);
+        Writer.writeInChunks(new StringBuilder(), out);
+
+        Assert.assertEquals("abc".repeat(5000), out.toString());
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ *  Copyright 2018 David Sargent
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ *  the License. You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  License for the specific language governing permissions and limitations under the License.
+ */
+
+package davidsar.gent.stubjars.zip;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public class ZipIndexTest {
+    private static final byte[] STORED = "stored contents".getBytes(UTF_8);
+    private static final byte[] DEFLATED = "deflated contents ".repeat(200).getBytes(UTF_8);
+
+    @Test
+    public void indexesEntriesInOrder() throws IOException {
+        ZipIndex index = ZipIndex.of("test.zip", ByteBuffer.wrap(archive("comment")));
+
+        List<String> names = index.entries().stream().map(ZipIndexEntry::name).collect(Collectors.toList());
+        Assert.assertEquals(Arrays.asList("a/", "a/Stored.txt", "a/Deflated.txt"), names);
+        Assert.assertEquals(3, index.size());
+        Assert.assertTrue(index.entry("a/").isDirectory());
+        Assert.assertNull(index.entry("missing"));
+    }
+
+    @Test
+    public void readsStoredEntriesAsSlices() throws IOException {
+        ZipIndex index = ZipIndex.of("test.zip", ByteBuffer.wrap(archive(null)));
+        ZipIndexEntry entry = index.entry("a/Stored.txt");
+
+        Assert.assertEquals(ZipIndexEntry.METHOD_STORED, entry.method());
+        Assert.assertEquals(STORED.length, entry.size());
+        Assert.assertEquals(crc(STORED), entry.crc());
+        ByteBuffer contents = index.read(entry);
+        Assert.assertTrue(contents.isReadOnly());
+        Assert.assertArrayEquals(STORED, bytes(contents));
+    }
+
+    @Test
+    public void readsDeflatedEntries() throws IOException {
+        ZipIndex index = ZipIndex.of("test.zip", ByteBuffer.wrap(archive(null)));
+        ZipIndexEntry entry = index.entry("a/Deflated.txt");
+
+        Assert.assertEquals(ZipIndexEntry.METHOD_DEFLATED, entry.method());
+        Assert.assertTrue(entry.compressedSize() < entry.size());
+        Assert.assertArrayEquals(DEFLATED, bytes(index.read(entry)));
+    }
+
+    @Test
+    public void mapsArchivesOnDisk() throws IOException {
+        Path file = Files.createTempFile("zip-index", ".zip");
+        try {
+            Files.write(file, archive("a comment that pushes the end record further back"));
+            ZipIndex index = ZipIndex.open(file);
+
+            Assert.assertArrayEquals(STORED, bytes(index.read(index.entry("a/Stored.txt"))));
+            Assert.assertArrayEquals(DEFLATED, bytes(index.read(index.entry("a/Deflated.txt"))));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void indexesNestedArchives() throws IOException {
+        for (int method : new int[] {ZipEntry.STORED, ZipEntry.DEFLATED}) {
+            byte[] inner = archive(null);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+                ZipEntry classesJar = new ZipEntry("classes.jar");
+                classesJar.setMethod(method);
+                classesJar.setSize(inner.length);
+                classesJar.setCrc(crc(inner));
+                zip.putNextEntry(classesJar);
+                zip.write(inner);
+                zip.closeEntry();
+            }
+
+            ZipIndex outer = ZipIndex.of("test.aar", ByteBuffer.wrap(bytes.toByteArray()));
+            ZipIndex nested = ZipIndex.of("test.aar!/classes.jar", outer.read(outer.entry("classes.jar")));
+
+            Assert.assertEquals(3, nested.size());
+            Assert.assertArrayEquals(STORED, bytes(nested.read(nested.entry("a/Stored.txt"))));
+            Assert.assertArrayEquals(DEFLATED, bytes(nested.read(nested.entry("a/Deflated.txt"))));
+        }
+    }
+
+    @Test
+    public void extractsEntriesAndArchives() throws IOException {
+        byte[] archive = archive(null);
+        ZipIndex index = ZipIndex.of("test.zip", ByteBuffer.wrap(archive));
+        Path file = Files.createTempFile("zip-index", ".bin");
+        try {
+            index.extract(index.entry("a/Stored.txt"), file);
+            Assert.assertArrayEquals(STORED, Files.readAllBytes(file));
+            index.extract(index.entry("a/Deflated.txt"), file);
+            Assert.assertArrayEquals(DEFLATED, Files.readAllBytes(file));
+            index.writeTo(file);
+            Assert.assertArrayEquals(archive, Files.readAllBytes(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsCorruptDeflatedEntriesWhenExtracting() throws IOException {
+        byte[] archive = archive(null);
+        ZipIndexEntry entry = ZipIndex.of("test.zip", ByteBuffer.wrap(archive)).entry("a/Deflated.txt");
+        int dataOffset = (int) entry.offset() + 30 + entry.name().length();
+        archive[dataOffset + (int) entry.compressedSize() / 2] ^= 0x55;
+
+        ZipIndex index = ZipIndex.of("test.zip", ByteBuffer.wrap(archive));
+        Path file = Files.createTempFile("zip-index", ".bin");
+        try {
+            index.extract(index.entry("a/Deflated.txt"), file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsCorruptDeflatedEntries() throws IOException {
+        byte[] archive = archive(null);
+        ZipIndexEntry entry = ZipIndex.of("test.zip", ByteBuffer.wrap(archive)).entry("a/Deflated.txt");
+        int dataOffset = (int) entry.offset() + 30 + entry.name().length();
+        archive[dataOffset + (int) entry.compressedSize() / 2] ^= 0x55;
+
+        ZipIndex index = ZipIndex.of("test.zip", ByteBuffer.wrap(archive));
+        index.read(index.entry("a/Deflated.txt"));
+    }
+
+    @Test
+    public void hashesTheCentralDirectory() throws IOException {
+        String hash = ZipIndex.of("test.zip", ByteBuffer.wrap(archive(null))).centralDirectoryHash();
+        ByteArrayOutputStream other = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(other)) {
+            zip.putNextEntry(new ZipEntry("a/Deflated.txt"));
+            zip.write(STORED);
+            zip.closeEntry();
+        }
+
+        Assert.assertEquals(64, hash.length());
+        Assert.assertEquals(hash, ZipIndex.of("test.zip", ByteBuffer.wrap(archive("comment"))).centralDirectoryHash());
+        Assert.assertNotEquals(hash, ZipIndex.of("other.zip", ByteBuffer.wrap(other.toByteArray())).centralDirectoryHash());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsNonArchives() throws IOException {
+        ZipIndex.of("test.zip", ByteBuffer.wrap(new byte[64]));
+    }
+
+    private static byte[] archive(String comment) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            zip.putNextEntry(new ZipEntry("a/"));
+            zip.closeEntry();
+
+            ZipEntry stored = new ZipEntry("a/Stored.txt");
+            stored.setMethod(ZipEntry.STORED);
+            stored.setSize(STORED.length);
+            stored.setCrc(crc(STORED));
+            zip.putNextEntry(stored);
+            zip.write(STORED);
+            zip.closeEntry();
+
+            zip.putNextEntry(new ZipEntry("a/Deflated.txt"));
+            zip.write(DEFLATED);
+            zip.closeEntry();
+
+            if (comment != null) {
+                zip.setComment(comment);
+            }
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private static long crc(byte[] bytes) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(bytes);
+        return crc32.getValue();
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+}